@@ -0,0 +1,43 @@
+package org.example.jmh;
+
+import org.example.MarketDataSnapshot;
+import org.example.StockDataManager;
+import org.example.SyntheticMarketData;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+// Synthetic CSVs for the benchmarks, so they run without the yfinance download. The data only depends on
+// (tickers, years), so every run measures the same input.
+final class BenchmarkData {
+    static final LocalDate END_DATE = LocalDate.of(2024, 11, 29);
+    static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    static LocalDate startDate(int years) {
+        return END_DATE.minusYears(years).plusDays(1);
+    }
+
+    static Path writeCsv(int tickers, int years) throws IOException {
+        Path csv = Files.createTempDirectory("jmh-data").resolve("consolidated_stock_data.csv");
+        new SyntheticMarketData(tickers, startDate(years), END_DATE, SEED).writeCsv(csv);
+        return csv;
+    }
+
+    static StockDataManager load(Path csv, int years, boolean useSnapshots) {
+        StockDataManager dataManager = new StockDataManager(startDate(years), END_DATE);
+        dataManager.setUseSnapshots(useSnapshots);
+        dataManager.loadHistoricalDataFromCSV(csv.toString());
+        return dataManager;
+    }
+
+    static void delete(Path csv) throws IOException {
+        Files.deleteIfExists(MarketDataSnapshot.snapshotPath(csv));
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(csv.getParent());
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.jmh;
+
+import org.example.ArithmeticMode;
+import org.example.BacktestResult;
+import org.example.ExecutionModel;
+import org.example.ExponentialMovingAverage;
+import org.example.StockDataManager;
+import org.example.StrategyParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// One EMA run over a wide universe with each day's signals and sizing on the engine's thread (threads = 1) and
+// split over a pool; CrossSectionTest checks that every pool size gives the serial results
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CrossSectionBenchmarks {
+    private static final StrategyParameters PARAMETERS = new StrategyParameters(10, 50, 14, 3.0);
+
+    @Param({"3000"})
+    public int tickers;
+
+    @Param({"5"})
+    public int years;
+
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    @Param({"FIXED_POINT", "DECIMAL"})
+    public ArithmeticMode arithmetic;
+
+    private StockDataManager dataManager;
+    // null for the serial run
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        Path csv = BenchmarkData.writeCsv(tickers, years);
+        dataManager = BenchmarkData.load(csv, years, false);
+        dataManager.getPanel();
+        BenchmarkData.delete(csv);
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void release() {
+        if (pool != null) pool.shutdown();
+        dataManager = null;
+    }
+
+    @Benchmark
+    public BacktestResult exponentialMovingAverage() {
+        return ExponentialMovingAverage.simulate(dataManager, PARAMETERS, arithmetic, ExecutionModel.IMMEDIATE, pool);
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.jmh;
+
+import org.example.ArithmeticMode;
+import org.example.BacktestEngine;
+import org.example.BacktestResult;
+import org.example.ExponentialMovingAverage;
+import org.example.SimpleMovingAverage;
+import org.example.StockDataManager;
+import org.example.Strategy;
+import org.example.StrategyParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Four strategies run with one BacktestEngine pass each and all together in a single pass, in both arithmetic
+// modes; -prof gc gives the allocation of each. EngineParityTest and ArithmeticModeTest check the results.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmarks {
+    @Param({"200"})
+    public int tickers;
+
+    @Param({"5"})
+    public int years;
+
+    @Param({"FIXED_POINT", "DECIMAL"})
+    public ArithmeticMode arithmetic;
+
+    private BacktestEngine engine;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        Path csv = BenchmarkData.writeCsv(tickers, years);
+        StockDataManager dataManager = BenchmarkData.load(csv, years, false);
+        dataManager.getPanel();
+        BenchmarkData.delete(csv);
+        engine = new BacktestEngine(dataManager, arithmetic);
+    }
+
+    private static List<Strategy> strategies() {
+        return List.of(
+                new SimpleMovingAverage(StrategyParameters.DEFAULT),
+                new ExponentialMovingAverage(StrategyParameters.DEFAULT),
+                new ExponentialMovingAverage(new StrategyParameters(10, 50, 14, 2.0)),
+                new ExponentialMovingAverage(new StrategyParameters(20, 50, 14, 3.0)));
+    }
+
+    @Benchmark
+    public List<BacktestResult> onePassPerStrategy() {
+        List<BacktestResult> results = new ArrayList<>();
+        for (Strategy strategy : strategies()) {
+            results.add(engine.run(strategy));
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<BacktestResult> sharedPass() {
+        return engine.run(strategies());
+    }
+}
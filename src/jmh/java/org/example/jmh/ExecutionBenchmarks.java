@@ -0,0 +1,98 @@
+package org.example.jmh;
+
+import org.example.ArithmeticMode;
+import org.example.ExecutionModel;
+import org.example.MarketPanel;
+import org.example.MissingDataPolicy;
+import org.example.OrderBook;
+import org.example.Portfolio;
+import org.example.PriceSeries;
+import org.example.SyntheticMarketData;
+import org.example.Universe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// The execution stage on its own: every day each symbol submits a random buy or sell, which an OrderBook fills
+// with commissions, slippage, impact, a participation limit and pending orders, against immediate execution of
+// the same orders at the close. OrderBookTest checks the fills.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionBenchmarks {
+    private static final ExecutionModel MODEL = new ExecutionModel(0.005, 0.5, 1.0, 5, 0.1, 0.1, 3);
+
+    @Param({"2000"})
+    public int symbols;
+
+    @Param({"1000"})
+    public int days;
+
+    private MarketPanel panel;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        SyntheticMarketData data = new SyntheticMarketData(symbols, BenchmarkData.END_DATE.minusDays(days * 7L / 5 + 7),
+                BenchmarkData.END_DATE, BenchmarkData.SEED);
+        int[] tradingDays = data.tradingDays();
+        int[] used = Arrays.copyOfRange(tradingDays, Math.max(0, tradingDays.length - days), tradingDays.length);
+        List<PriceSeries> series = new ArrayList<>(symbols);
+        for (int s = 0; s < symbols; s++) {
+            series.add(data.generateSeries(s, used));
+        }
+        panel = MarketPanel.build(series, MissingDataPolicy.SKIP);
+    }
+
+    // Returns the portfolio, whose positions depend on every fill
+    private Portfolio run(ExecutionModel model) {
+        Portfolio portfolio = Portfolio.create(ArithmeticMode.FIXED_POINT, Portfolio.Allocation.POOLED,
+                panel.symbolCount(), Universe.all(panel), 1e12);
+        OrderBook orders = null;
+        if (!model.isImmediate()) {
+            orders = new OrderBook(model, portfolio, panel.symbolCount());
+            portfolio.attach(orders);
+        }
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        for (int d = 0; d < panel.dayCount(); d++) {
+            for (int s = 0; s < panel.symbolCount(); s++) {
+                if (!panel.hasPrice(d, s)) continue;
+                long shares = 1 + random.nextLong(Math.max(1, panel.volume(d, s) / 5));
+                if (random.nextBoolean()) {
+                    portfolio.buy(s, shares, panel.adjClose(d, s));
+                } else {
+                    portfolio.sell(s, shares, panel.adjClose(d, s));
+                }
+            }
+            if (orders != null) orders.fill(panel, d);
+        }
+        return portfolio;
+    }
+
+    @Benchmark
+    public Portfolio immediate() {
+        return run(ExecutionModel.IMMEDIATE);
+    }
+
+    @Benchmark
+    public Portfolio orderBook() {
+        return run(MODEL);
+    }
+}
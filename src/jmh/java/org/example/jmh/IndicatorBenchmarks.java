@@ -0,0 +1,76 @@
+package org.example.jmh;
+
+import org.example.AtrIndicator;
+import org.example.EmaIndicator;
+import org.example.Indicator;
+import org.example.PriceSeries;
+import org.example.RsiIndicator;
+import org.example.SmaIndicator;
+import org.example.SyntheticMarketData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// One streaming pass of each indicator over a single ticker's history
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndicatorBenchmarks {
+    @Param({"5", "20"})
+    public int years;
+
+    @Param({"14", "50", "200"})
+    public int window;
+
+    private PriceSeries series;
+
+    @Setup
+    public void generate() {
+        SyntheticMarketData data = new SyntheticMarketData(1, BenchmarkData.startDate(years), BenchmarkData.END_DATE, BenchmarkData.SEED);
+        series = data.generateSeries(0, data.tradingDays());
+    }
+
+    private double run(Indicator indicator) {
+        double sum = 0;
+        for (int i = 0; i < series.size(); i++) {
+            indicator.update(series, i);
+            if (indicator.isReady()) {
+                sum += indicator.value();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sma() {
+        return run(new SmaIndicator(window));
+    }
+
+    @Benchmark
+    public double ema() {
+        return run(new EmaIndicator(window));
+    }
+
+    @Benchmark
+    public double rsi() {
+        return run(new RsiIndicator(window));
+    }
+
+    @Benchmark
+    public double atr() {
+        return run(new AtrIndicator(window));
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.jmh;
+
+import org.example.BacktestResult;
+import org.example.ExponentialMovingAverage;
+import org.example.IndicatorCache;
+import org.example.ParameterSweep;
+import org.example.StockDataManager;
+import org.example.StrategyParameters;
+import org.example.SyntheticMarketData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Reruns of an EMA parameter grid, one simulate() per parameter set, without an IndicatorCache and with one in
+// each of its states: cold (an empty directory), warm in memory, warm on disk only (a new cache over the same
+// directory, as in a nightly rerun), and on disk with bars appended to the data since. IndicatorCacheTest checks
+// that each gives the uncached results.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndicatorCacheBenchmarks {
+    private static final LocalDate START = LocalDate.of(2020, 1, 1);
+    private static final LocalDate END = BenchmarkData.END_DATE;
+    private static final List<StrategyParameters> GRID = ParameterSweep.grid(new int[]{5, 10, 20}, new int[]{50, 100},
+            new int[]{14}, new int[]{14}, new double[]{2.0, 3.0});
+
+    @Param({"500"})
+    public int tickers;
+
+    @Param({"20"})
+    public int appendedDays;
+
+    private Path directory;
+    // Holds the indicators of the data before the appended days
+    private Path warmDirectory;
+    private StockDataManager before;
+    private StockDataManager after;
+    private StockDataManager warmInMemory;
+
+    // A cache over an empty directory for each call
+    @State(Scope.Thread)
+    public static class Cold {
+        @Setup(Level.Invocation)
+        public void clear(IndicatorCacheBenchmarks data) throws IOException {
+            Path cold = data.directory.resolve("cold");
+            deleteRecursively(cold);
+            data.before.setIndicatorCache(new IndicatorCache(IndicatorCache.DEFAULT_CACHED_VALUES, cold));
+        }
+    }
+
+    // A cache over a copy of the warm directory for each call, as extending the series rewrites their files
+    @State(Scope.Thread)
+    public static class Appended {
+        @Setup(Level.Invocation)
+        public void copy(IndicatorCacheBenchmarks data) throws IOException {
+            Path copy = data.directory.resolve("appended");
+            deleteRecursively(copy);
+            Files.createDirectories(copy);
+            try (Stream<Path> files = Files.list(data.warmDirectory)) {
+                for (Path file : files.toList()) {
+                    Files.copy(file, copy.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            data.after.setIndicatorCache(new IndicatorCache(IndicatorCache.DEFAULT_CACHED_VALUES, copy));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void writeData() throws IOException {
+        directory = Files.createTempDirectory("jmh-indicator-cache");
+        warmDirectory = directory.resolve("warm");
+        Path beforeCsv = directory.resolve("before.csv");
+        Path afterCsv = directory.resolve("after.csv");
+        new SyntheticMarketData(tickers, START, END.minusDays(appendedDays * 7L / 5), BenchmarkData.SEED).writeCsv(beforeCsv);
+        new SyntheticMarketData(tickers, START, END, BenchmarkData.SEED).writeCsv(afterCsv);
+        before = load(beforeCsv);
+        after = load(afterCsv);
+        warmInMemory = load(beforeCsv);
+        warmInMemory.setIndicatorCache(new IndicatorCache(IndicatorCache.DEFAULT_CACHED_VALUES, warmDirectory));
+        sweep(warmInMemory);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteData() throws IOException {
+        deleteRecursively(directory);
+    }
+
+    private static StockDataManager load(Path csv) {
+        StockDataManager dataManager = new StockDataManager();
+        dataManager.setUseSnapshots(false);
+        dataManager.loadHistoricalDataFromCSV(csv.toString());
+        dataManager.getPanel();
+        return dataManager;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) return;
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static List<BacktestResult> sweep(StockDataManager dataManager) {
+        List<BacktestResult> results = new ArrayList<>(GRID.size());
+        for (StrategyParameters parameters : GRID) {
+            results.add(ExponentialMovingAverage.simulate(dataManager, parameters));
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<BacktestResult> noCache() {
+        before.setIndicatorCache(null);
+        return sweep(before);
+    }
+
+    @Benchmark
+    public List<BacktestResult> cold(Cold cold) {
+        return sweep(before);
+    }
+
+    @Benchmark
+    public List<BacktestResult> warmInMemory() {
+        return sweep(warmInMemory);
+    }
+
+    @Benchmark
+    public List<BacktestResult> warmOnDisk() throws IOException {
+        before.setIndicatorCache(new IndicatorCache(IndicatorCache.DEFAULT_CACHED_VALUES, warmDirectory));
+        return sweep(before);
+    }
+
+    @Benchmark
+    public List<BacktestResult> appended(Appended appended) {
+        return sweep(after);
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.jmh;
+
+import org.example.AtrIndicator;
+import org.example.EmaIndicator;
+import org.example.Indicator;
+import org.example.LaggedIndicator;
+import org.example.PriceSeries;
+import org.example.ReferenceIndicators;
+import org.example.RsiIndicator;
+import org.example.SmaIndicator;
+import org.example.SyntheticMarketData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Cost per bar of the streaming indicators against the windowed BigDecimal recomputation they replaced, on 20
+// years of one ticker. The recomputation is too slow for every bar at large windows, so it runs on the last
+// SAMPLES bars only. IndicatorTest checks that both give the same values.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndicatorReferenceBenchmarks {
+    private static final int BARS = 5040;
+    private static final int SAMPLES = 200;
+
+    @Param({"10", "50", "200", "1000"})
+    public int window;
+
+    private PriceSeries series;
+
+    @Setup
+    public void generate() {
+        SyntheticMarketData data = new SyntheticMarketData(1, BenchmarkData.startDate(21), BenchmarkData.END_DATE,
+                BenchmarkData.SEED);
+        int[] days = data.tradingDays();
+        series = data.generateSeries(0, Arrays.copyOfRange(days, days.length - BARS, days.length));
+    }
+
+    private double stream(Indicator indicator) {
+        double sum = 0;
+        for (int i = 0; i < series.size(); i++) {
+            indicator.update(series, i);
+            if (indicator.isReady()) {
+                sum += indicator.value();
+            }
+        }
+        return sum;
+    }
+
+    private interface Reference {
+        BigDecimal at(PriceSeries series, int endIndex, int window);
+    }
+
+    private double recompute(Reference reference) {
+        double sum = 0;
+        for (int i = BARS - SAMPLES; i < BARS; i++) {
+            sum += reference.at(series, i, window).doubleValue();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BARS)
+    public double smaStreaming() {
+        return stream(new LaggedIndicator(new SmaIndicator(window)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double smaReference() {
+        return recompute(ReferenceIndicators::movingAverage);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BARS)
+    public double emaStreaming() {
+        return stream(new EmaIndicator(window));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double emaReference() {
+        return recompute(ReferenceIndicators::ema);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BARS)
+    public double rsiStreaming() {
+        return stream(new RsiIndicator(window));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double rsiReference() {
+        return recompute(ReferenceIndicators::rsi);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BARS)
+    public double atrStreaming() {
+        return stream(new AtrIndicator(window));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double atrReference() {
+        return recompute(ReferenceIndicators::atr);
+    }
+}
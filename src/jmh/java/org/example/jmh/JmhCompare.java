@@ -0,0 +1,358 @@
+package org.example.jmh;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compares two JMH results benchmark by benchmark, including the normalized allocation reported by -prof gc, and
+// exits with status 1 when any score got worse than the threshold. Either file may be a JSON result file (-rf json)
+// or a summary written by --summarize: one line per benchmark with its score, error, unit and allocation, under a
+// header naming the JDK, the JMH settings and the hardware it was recorded on. The committed baseline is a summary.
+// Usage: JmhCompare <baseline.json> <current.json> [thresholdPercent]
+//        JmhCompare --summarize <jmh-result.json> <summary.json> <hardware>
+public class JmhCompare {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private static final class Score {
+        final String benchmark;
+        final Map<String, Object> params;
+        final String mode;
+        final String unit;
+        final double score;
+        final double error;
+        final double allocation;
+
+        Score(String benchmark, Map<String, Object> params, String mode, String unit, double score, double error,
+              double allocation) {
+            this.benchmark = benchmark;
+            this.params = params;
+            this.mode = mode;
+            this.unit = unit;
+            this.score = score;
+            this.error = error;
+            this.allocation = allocation;
+        }
+
+        String key() {
+            StringBuilder key = new StringBuilder(benchmark);
+            params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            return key.toString();
+        }
+    }
+
+    static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> scores = new TreeMap<>();
+        for (Score score : scores(new Json(Files.readString(file)).parse())) {
+            scores.put(score.key(), score);
+        }
+        return scores;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Score> scores(Object parsed) {
+        List<Score> scores = new ArrayList<>();
+        if (parsed instanceof Map) {
+            // A summary
+            for (Object entry : (List<Object>) ((Map<String, Object>) parsed).get("benchmarks")) {
+                Map<String, Object> run = (Map<String, Object>) entry;
+                scores.add(new Score((String) run.get("benchmark"), params(run), (String) run.get("mode"),
+                        (String) run.get("unit"), number(run.get("score")), number(run.get("error")),
+                        number(run.get("allocation"))));
+            }
+            return scores;
+        }
+        for (Object entry : (List<Object>) parsed) {
+            Map<String, Object> run = (Map<String, Object>) entry;
+            Map<String, Object> primary = (Map<String, Object>) run.get("primaryMetric");
+            double allocation = Double.NaN;
+            Map<String, Object> secondary = (Map<String, Object>) run.get("secondaryMetrics");
+            if (secondary != null) {
+                for (Map.Entry<String, Object> metric : secondary.entrySet()) {
+                    // JMH prefixes profiler metrics with a middle dot
+                    if (metric.getKey().endsWith(ALLOCATION)) {
+                        allocation = number(((Map<String, Object>) metric.getValue()).get("score"));
+                    }
+                }
+            }
+            scores.add(new Score((String) run.get("benchmark"), params(run), (String) run.get("mode"),
+                    (String) primary.get("scoreUnit"), number(primary.get("score")), number(primary.get("scoreError")),
+                    allocation));
+        }
+        return scores;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> params(Map<String, Object> run) {
+        Map<String, Object> params = (Map<String, Object>) run.get("params");
+        return params == null ? new TreeMap<>() : new TreeMap<>(params);
+    }
+
+    // Writes the summary of a JSON result file, taking the JDK and JMH settings from its first run
+    @SuppressWarnings("unchecked")
+    static void summarize(Path results, Path summary, String hardware) throws IOException {
+        List<Object> runs = (List<Object>) new Json(Files.readString(results)).parse();
+        if (runs.isEmpty()) {
+            throw new IllegalArgumentException("No benchmarks in " + results);
+        }
+        List<Score> scores = scores(runs);
+        Map<String, Object> first = (Map<String, Object>) runs.get(0);
+        String jdk = first.get("vmName") + " " + first.get("vmVersion");
+        String settings = "JMH " + first.get("jmhVersion") + ", " + integer(first.get("forks")) + " fork(s), "
+                + integer(first.get("warmupIterations")) + " x " + first.get("warmupTime") + " warmup, "
+                + integer(first.get("measurementIterations")) + " x " + first.get("measurementTime") + " measurement"
+                + (scores.stream().anyMatch(score -> !Double.isNaN(score.allocation)) ? ", -prof gc" : "");
+
+        StringBuilder out = new StringBuilder();
+        out.append("{\n");
+        out.append("  \"jdk\" : ").append(quote(jdk)).append(",\n");
+        out.append("  \"settings\" : ").append(quote(settings)).append(",\n");
+        out.append("  \"hardware\" : ").append(quote(hardware)).append(",\n");
+        out.append("  \"benchmarks\" : [\n");
+        for (int i = 0; i < scores.size(); i++) {
+            Score score = scores.get(i);
+            StringBuilder params = new StringBuilder();
+            score.params.forEach((name, value) -> params.append(params.length() == 0 ? "" : ", ")
+                    .append(quote(name)).append(" : ").append(quote(String.valueOf(value))));
+            out.append("    { \"benchmark\" : ").append(quote(score.benchmark))
+                    .append(", \"params\" : { ").append(params).append(params.length() == 0 ? "}" : " }")
+                    .append(", \"mode\" : ").append(quote(score.mode))
+                    .append(", \"unit\" : ").append(quote(score.unit))
+                    .append(", \"score\" : ").append(format(score.score))
+                    .append(", \"error\" : ").append(format(score.error))
+                    .append(", \"allocation\" : ").append(format(score.allocation))
+                    .append(i + 1 < scores.size() ? " },\n" : " }\n");
+        }
+        out.append("  ]\n}\n");
+        Files.writeString(summary, out);
+    }
+
+    private static String integer(Object value) {
+        return String.valueOf(Math.round((Double) value));
+    }
+
+    // Four significant digits, well within any benchmark's error; NaN as a string, as JMH writes it
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "\"NaN\"";
+        }
+        return new BigDecimal(value).round(new MathContext(4)).stripTrailingZeros().toPlainString();
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private static double number(Object value) {
+        // JMH writes "NaN" as a string when an error can't be computed
+        return value instanceof Double ? (Double) value : Double.NaN;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 4 && args[0].equals("--summarize")) {
+            summarize(Path.of(args[1]), Path.of(args[2]), args[3]);
+            return;
+        }
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: JmhCompare <baseline.json> <current.json> [thresholdPercent]"
+                    + " | --summarize <jmh-result.json> <summary.json> <hardware>");
+        }
+        Map<String, Score> baseline = read(Path.of(args[0]));
+        Map<String, Score> current = read(Path.of(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s %12s %12s%n", "benchmark", "baseline", "current", "change", "B/op before", "B/op now");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null || !before.unit.equals(now.unit)) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", entry.getKey(), "-", now.score, "new");
+                continue;
+            }
+            // Positive change is always worse: longer times or lower throughput
+            double change = now.mode.equals("thrpt") ? before.score / now.score - 1 : now.score / before.score - 1;
+            boolean regressed = change > threshold;
+            if (regressed) regressions++;
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %12.0f %12.0f %s%n", entry.getKey(), before.score,
+                    now.score, change * 100, before.allocation, now.allocation, regressed ? "REGRESSION" : "");
+        }
+        for (String missing : baseline.keySet()) {
+            if (!current.containsKey(missing)) {
+                System.out.printf("%-90s missing from the current run%n", missing);
+            }
+        }
+        System.out.printf("%d regression(s) over %.0f%%%n", regressions, threshold * 100);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Just enough JSON to read JMH's result files: objects, arrays, strings, numbers, booleans and null
+    private static final class Json {
+        private final String text;
+        private int position;
+
+        Json(String text) {
+            this.text = text;
+        }
+
+        Object parse() {
+            Object value = value();
+            skipWhitespace();
+            if (position != text.length()) {
+                throw error("Trailing content");
+            }
+            return value;
+        }
+
+        private Object value() {
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw error("Unexpected end of input");
+            }
+            char c = text.charAt(position);
+            switch (c) {
+                case '{':
+                    return object();
+                case '[':
+                    return array();
+                case '"':
+                    return string();
+                case 't':
+                    return literal("true", Boolean.TRUE);
+                case 'f':
+                    return literal("false", Boolean.FALSE);
+                case 'n':
+                    return literal("null", null);
+                default:
+                    return number();
+            }
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            position++;
+            skipWhitespace();
+            if (text.charAt(position) == '}') {
+                position++;
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                map.put(key, value());
+                skipWhitespace();
+                if (text.charAt(position) == ',') {
+                    position++;
+                } else {
+                    expect('}');
+                    return map;
+                }
+            }
+        }
+
+        private List<Object> array() {
+            List<Object> list = new ArrayList<>();
+            position++;
+            skipWhitespace();
+            if (text.charAt(position) == ']') {
+                position++;
+                return list;
+            }
+            while (true) {
+                list.add(value());
+                skipWhitespace();
+                if (text.charAt(position) == ',') {
+                    position++;
+                } else {
+                    expect(']');
+                    return list;
+                }
+            }
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c == '\\') {
+                    char escaped = text.charAt(position++);
+                    switch (escaped) {
+                        case 'n':
+                            sb.append('\n');
+                            break;
+                        case 't':
+                            sb.append('\t');
+                            break;
+                        case 'r':
+                            sb.append('\r');
+                            break;
+                        case 'b':
+                            sb.append('\b');
+                            break;
+                        case 'f':
+                            sb.append('\f');
+                            break;
+                        case 'u':
+                            sb.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                            position += 4;
+                            break;
+                        default:
+                            sb.append(escaped);
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+
+        private Object literal(String word, Object value) {
+            if (!text.startsWith(word, position)) {
+                throw error("Expected " + word);
+            }
+            position += word.length();
+            return value;
+        }
+
+        private Double number() {
+            int start = position;
+            while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            if (start == position) {
+                throw error("Unexpected character '" + text.charAt(position) + "'");
+            }
+            return Double.parseDouble(text.substring(start, position));
+        }
+
+        private void expect(char c) {
+            if (position >= text.length() || text.charAt(position) != c) {
+                throw error("Expected '" + c + "'");
+            }
+            position++;
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at offset " + position);
+        }
+    }
+}
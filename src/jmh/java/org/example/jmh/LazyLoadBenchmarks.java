@@ -0,0 +1,100 @@
+package org.example.jmh;
+
+import org.example.CsvTickerIndex;
+import org.example.PriceSeries;
+import org.example.StockDataManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Time to the first backtest over a few tickers of a large file: building the CsvTickerIndex, reading it back
+// from its sidecar file, and reading it plus decoding the requested tickers, against a full
+// loadHistoricalDataFromCSV of the same file. CsvTickerIndexTest checks the decoded bars.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LazyLoadBenchmarks {
+    @Param({"2000"})
+    public int tickers;
+
+    @Param({"5"})
+    public int years;
+
+    @Param({"20"})
+    public int requested;
+
+    private Path csv;
+    private List<String> symbols;
+
+    // Deletes the sidecar before each call, so every call builds the index
+    @State(Scope.Thread)
+    public static class WithoutSidecar {
+        @Setup(Level.Invocation)
+        public void delete(LazyLoadBenchmarks data) throws IOException {
+            Files.deleteIfExists(CsvTickerIndex.indexPath(data.csv));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void writeData() throws IOException {
+        csv = BenchmarkData.writeCsv(tickers, years);
+        List<String> all = open().tickers();
+        symbols = all.stream().sorted().limit(requested).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteData() throws IOException {
+        Files.deleteIfExists(CsvTickerIndex.indexPath(csv));
+        BenchmarkData.delete(csv);
+    }
+
+    private CsvTickerIndex open() throws IOException {
+        return CsvTickerIndex.open(csv, BenchmarkData.startDate(years), BenchmarkData.END_DATE);
+    }
+
+    @Benchmark
+    public CsvTickerIndex buildIndex(WithoutSidecar withoutSidecar) throws IOException {
+        return open();
+    }
+
+    @Benchmark
+    public CsvTickerIndex readIndex() throws IOException {
+        return open();
+    }
+
+    @Benchmark
+    public double readIndexAndDecode() {
+        StockDataManager dataManager = new StockDataManager(BenchmarkData.startDate(years), BenchmarkData.END_DATE);
+        dataManager.indexHistoricalDataFromCSV(csv.toString());
+        double sum = 0;
+        for (String symbol : symbols) {
+            PriceSeries series = dataManager.getSeries(symbol);
+            sum += series.adjClose(series.size() - 1);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public StockDataManager loadEverything() {
+        return BenchmarkData.load(csv, years, false);
+    }
+}
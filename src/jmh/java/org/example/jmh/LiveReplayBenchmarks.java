@@ -0,0 +1,82 @@
+package org.example.jmh;
+
+import org.example.Bar;
+import org.example.LiveSignalEngine;
+import org.example.PriceSeries;
+import org.example.StrategyParameters;
+import org.example.SyntheticMarketData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// One trading day of bars for every symbol through LiveSignalEngine.onBar, sampled call by call so JMH reports
+// percentiles: a day's time is the latency from its first bar to its last signal when the whole day arrives at
+// once. The days replay in a loop, shifted later by the length of the history each time round so every bar is
+// newer than its symbol's last one.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LiveReplayBenchmarks {
+    @Param({"10000"})
+    public int symbols;
+
+    @Param({"250"})
+    public int days;
+
+    private PriceSeries[] series;
+    private int span;
+    private LiveSignalEngine engine;
+    private int day;
+    private int shift;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        SyntheticMarketData data = new SyntheticMarketData(symbols, BenchmarkData.END_DATE.minusDays(days * 7L / 5 + 7),
+                BenchmarkData.END_DATE, BenchmarkData.SEED);
+        int[] tradingDays = data.tradingDays();
+        int[] replayDays = Arrays.copyOfRange(tradingDays, Math.max(0, tradingDays.length - days), tradingDays.length);
+        series = new PriceSeries[symbols];
+        for (int s = 0; s < symbols; s++) {
+            series[s] = data.generateSeries(s, replayDays);
+        }
+        // Whole weeks, so the replayed days keep their weekdays
+        span = ((replayDays[replayDays.length - 1] - replayDays[0]) / 7 + 1) * 7;
+    }
+
+    @Setup(Level.Iteration)
+    public void start() {
+        engine = new LiveSignalEngine(StrategyParameters.DEFAULT);
+        day = 0;
+        shift = 0;
+    }
+
+    @Benchmark
+    public int oneDay() {
+        if (day == series[0].size()) {
+            day = 0;
+            shift += span;
+        }
+        int signals = 0;
+        for (PriceSeries s : series) {
+            signals += engine.onBar(new Bar(s.getTicker(), s.epochDay(day) + shift, s.open(day), s.high(day), s.low(day),
+                    s.close(day), s.adjClose(day), s.volume(day), System.nanoTime()));
+        }
+        day++;
+        return signals;
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.jmh;
+
+import org.example.BufferedCsvLoader;
+import org.example.MappedCsvLoader;
+import org.example.PriceSeries;
+import org.example.StockDataManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// loadHistoricalDataFromCSV from the CSV and from its binary snapshot, and the two CSV loaders on their own: the
+// line-by-line BufferedCsvLoader the data manager used first and the MappedCsvLoader it uses now
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmarks {
+    @Param({"50", "200"})
+    public int tickers;
+
+    @Param({"5", "20"})
+    public int years;
+
+    private Path csv;
+
+    @Setup(Level.Trial)
+    public void writeData() throws IOException {
+        csv = BenchmarkData.writeCsv(tickers, years);
+        // Leaves the snapshot next to the CSV for fromSnapshot
+        BenchmarkData.load(csv, years, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteData() throws IOException {
+        BenchmarkData.delete(csv);
+    }
+
+    @Benchmark
+    public StockDataManager parseCsv() {
+        return BenchmarkData.load(csv, years, false);
+    }
+
+    @Benchmark
+    public StockDataManager fromSnapshot() {
+        return BenchmarkData.load(csv, years, true);
+    }
+
+    @Benchmark
+    public Map<String, PriceSeries> bufferedCsvLoader() throws IOException {
+        return new BufferedCsvLoader(BenchmarkData.startDate(years), BenchmarkData.END_DATE).load(csv);
+    }
+
+    @Benchmark
+    public Map<String, PriceSeries> mappedCsvLoader() throws IOException {
+        return new MappedCsvLoader(BenchmarkData.startDate(years), BenchmarkData.END_DATE).load(csv);
+    }
+}
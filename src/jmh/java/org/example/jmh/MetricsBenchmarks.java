@@ -0,0 +1,146 @@
+package org.example.jmh;
+
+import org.example.ArithmeticMode;
+import org.example.BacktestEngine;
+import org.example.BacktestResult;
+import org.example.ExponentialMovingAverage;
+import org.example.PerformanceMetrics;
+import org.example.StockDataManager;
+import org.example.StrategyParameters;
+import org.example.Universe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Drawdown, equal-weighted market returns and the market regression on the output of one EMA run, and the
+// fused PerformanceMetrics pass over the same series against the separate BigDecimal stream passes, boxed
+// drawdown and regression it replaced. The fork loads the Vector API module. PerformanceMetricsTest checks the
+// fused pass against a two-pass reference.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class MetricsBenchmarks {
+    @Param({"20", "200"})
+    public int tickers;
+
+    @Param({"5"})
+    public int years;
+
+    private StockDataManager dataManager;
+    private Universe universe;
+    private int warmup;
+    private double[] portfolioValues;
+    private double[] dailyReturns;
+    private double[] marketReturns;
+    private List<BigDecimal> decimalReturns;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        Path csv = BenchmarkData.writeCsv(tickers, years);
+        dataManager = BenchmarkData.load(csv, years, false);
+        BenchmarkData.delete(csv);
+
+        universe = Universe.all(dataManager.getPanel());
+        BacktestResult result = ExponentialMovingAverage.simulate(dataManager, StrategyParameters.DEFAULT);
+        warmup = StrategyParameters.DEFAULT.warmupBars();
+        portfolioValues = result.getPortfolioValues();
+        dailyReturns = result.getDailyReturns();
+        marketReturns = dataManager.equalWeightedMarketReturns(universe, ArithmeticMode.FIXED_POINT);
+        decimalReturns = new ArrayList<>(dailyReturns.length);
+        for (double r : dailyReturns) decimalReturns.add(BigDecimal.valueOf(r));
+    }
+
+    @Benchmark
+    public double maxDrawdown() {
+        return BacktestEngine.calculateMaxDrawdown(portfolioValues);
+    }
+
+    @Benchmark
+    public List<BigDecimal> marketReturnsDecimal() {
+        return dataManager.calculateEqualWeightedMarketReturns(universe);
+    }
+
+    @Benchmark
+    public double[] marketReturnsFixedPoint() {
+        return dataManager.equalWeightedMarketReturns(universe, ArithmeticMode.FIXED_POINT);
+    }
+
+    @Benchmark
+    public double[] regression() {
+        return dataManager.performRegression(marketReturns, dailyReturns, warmup);
+    }
+
+    @Benchmark
+    public PerformanceMetrics fusedScalar() {
+        return PerformanceMetrics.scalarOf(dailyReturns, portfolioValues, marketReturns, warmup);
+    }
+
+    @Benchmark
+    public PerformanceMetrics fusedVector() {
+        return PerformanceMetrics.of(dailyReturns, portfolioValues, marketReturns, warmup);
+    }
+
+    @Benchmark
+    public PerformanceMetrics[] rolling63() {
+        return PerformanceMetrics.rolling(dailyReturns, portfolioValues, marketReturns, warmup, 63);
+    }
+
+    // The end-of-run calculations before the fused pass: mean, variance and accuracy as BigDecimal stream passes,
+    // the drawdown over boxed doubles and the regression over its own means
+    @Benchmark
+    public double[] separatePasses() {
+        List<BigDecimal> returns = decimalReturns;
+        BigDecimal mean = returns.stream().reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(BigDecimal.valueOf(returns.size()), MathContext.DECIMAL128);
+        BigDecimal variance = returns.stream()
+                .map(r -> r.subtract(mean).pow(2))
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(BigDecimal.valueOf(returns.size()), MathContext.DECIMAL128);
+        double sharpe = mean.doubleValue() / Math.sqrt(variance.doubleValue());
+        double accuracy = returns.stream().filter(r -> r.signum() > 0).count() / (double) returns.size();
+
+        List<Double> boxed = new ArrayList<>();
+        for (double value : portfolioValues) boxed.add(value);
+        double peak = boxed.get(0);
+        double drawdown = 0;
+        for (Double value : boxed) {
+            peak = Math.max(peak, value);
+            drawdown = Math.max(drawdown, (peak - value) / peak);
+        }
+
+        double[] r = returns.stream().mapToDouble(BigDecimal::doubleValue).toArray();
+        double[] market = Arrays.copyOfRange(marketReturns, warmup, warmup + r.length);
+        double marketMean = 0;
+        for (double m : market) marketMean += m;
+        marketMean /= market.length;
+        double covariance = 0;
+        double marketVariance = 0;
+        for (int i = 0; i < r.length; i++) {
+            covariance += (market[i] - marketMean) * (r[i] - mean.doubleValue());
+            marketVariance += (market[i] - marketMean) * (market[i] - marketMean);
+        }
+        double beta = covariance / marketVariance;
+        return new double[]{sharpe, accuracy, drawdown, beta, mean.doubleValue() - beta * marketMean};
+    }
+}
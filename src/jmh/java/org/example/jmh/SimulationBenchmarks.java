@@ -0,0 +1,73 @@
+package org.example.jmh;
+
+import org.example.ArithmeticMode;
+import org.example.BacktestResult;
+import org.example.ExponentialMovingAverage;
+import org.example.SimpleMovingAverage;
+import org.example.StockDataManager;
+import org.example.StrategyParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// A full simulate() of each strategy, including the metrics and the market regression
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationBenchmarks {
+    @Param({"20", "200"})
+    public int tickers;
+
+    @Param({"2", "5"})
+    public int years;
+
+    @Param({"50", "200"})
+    public int longWindow;
+
+    @Param({"FIXED_POINT", "DECIMAL"})
+    public ArithmeticMode arithmetic;
+
+    private StockDataManager dataManager;
+    private StrategyParameters parameters;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        Path csv = BenchmarkData.writeCsv(tickers, years);
+        dataManager = BenchmarkData.load(csv, years, false);
+        dataManager.getPanel();
+        BenchmarkData.delete(csv);
+        parameters = new StrategyParameters(10, longWindow, 14, 3.0);
+    }
+
+    @TearDown(Level.Trial)
+    public void release() {
+        dataManager = null;
+    }
+
+    @Benchmark
+    public BacktestResult simpleMovingAverage() {
+        return SimpleMovingAverage.simulate(dataManager, parameters, arithmetic);
+    }
+
+    @Benchmark
+    public BacktestResult exponentialMovingAverage() {
+        return ExponentialMovingAverage.simulate(dataManager, parameters, arithmetic);
+    }
+}
@@ -0,0 +1,28 @@
+package org.example;
+
+// Number representation of a BacktestEngine run's accounting: cash, valuation, returns and position sizing.
+// Indicators are doubles in both modes.
+public enum ArithmeticMode {
+    // Prices are rounded to the nearest 1e-6 and cash, trade amounts and portfolio values are then exact
+    // integers of 1e-6 units in longs; overflow (beyond about 9.2e12 in currency) throws ArithmeticException.
+    // Daily returns, Sharpe ratio, market returns and risk-based share counts are computed in double, so they
+    // carry about 1e-16 relative error per operation, and a share count that truncates a quotient lying
+    // within that error of an integer can come out one share off the DECIMAL result. Nothing is allocated
+    // per trade or per day.
+    FIXED_POINT,
+    // The original BigDecimal accounting with MathContext.DECIMAL128 divisions, kept to audit FIXED_POINT runs
+    DECIMAL;
+
+    // Accepts fixed / decimal as well as the constant names, in any case
+    public static ArithmeticMode parse(String value) {
+        switch (value.toLowerCase()) {
+            case "fixed":
+            case "fixed_point":
+                return FIXED_POINT;
+            case "decimal":
+                return DECIMAL;
+            default:
+                throw new IllegalArgumentException("Unknown arithmetic mode: " + value);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+// Average true range over the last `period` bars as a rolling sum. The previous close is the adjusted close,
+// matching the position sizing in ExponentialMovingAverage.
+public final class AtrIndicator implements StatefulIndicator {
+    private final int period;
+    private final DoubleRingBuffer trueRanges;
+    private double sum;
+    private double previousClose = Double.NaN;
+
+    public AtrIndicator(int period) {
+        this.period = period;
+        this.trueRanges = new DoubleRingBuffer(period);
+    }
+
+    @Override
+    public void update(double high, double low, double close) {
+        if (!Double.isNaN(previousClose)) {
+            double trueRange = Math.max(high - low,
+                    Math.max(Math.abs(high - previousClose), Math.abs(low - previousClose)));
+            sum += trueRange - trueRanges.add(trueRange);
+            if (trueRanges.wrapped()) {
+                sum = trueRanges.sum();
+            }
+        }
+        previousClose = close;
+    }
+
+    @Override
+    public double value() {
+        return sum / period;
+    }
+
+    @Override
+    public boolean isReady() {
+        return trueRanges.isFull();
+    }
+
+    @Override
+    public int stateBytes() {
+        return trueRanges.stateBytes() + 16;
+    }
+
+    @Override
+    public void saveState(ByteBuffer out) {
+        trueRanges.saveState(out);
+        out.putDouble(sum).putDouble(previousClose);
+    }
+
+    @Override
+    public void restoreState(ByteBuffer in) {
+        trueRanges.restoreState(in);
+        sum = in.getDouble();
+        previousClose = in.getDouble();
+    }
+}
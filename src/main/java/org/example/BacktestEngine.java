@@ -0,0 +1,204 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Runs any number of strategies over one pass of the date-aligned panel, each on its own Universe of symbols.
+// Each day the shared indicators are advanced once, then every strategy whose universe trades that day and is
+// past its warm-up generates signals, sizes them against its own Portfolio, and is marked to market at the close.
+// Returns, Sharpe, drawdown, accuracy and the market regression are computed here for all strategies alike, in
+// one PerformanceMetrics pass; DECIMAL runs keep the portfolio's BigDecimal Sharpe ratio and accuracy for auditing.
+// Unless the ExecutionModel is IMMEDIATE, the orders of sizePositions go into an OrderBook per strategy, which is
+// filled after sizing and before the day's mark.
+public class BacktestEngine {
+    public static final double DEFAULT_INITIAL_CAPITAL = 1_000_000.0;
+
+    private final StockDataManager dataManager;
+    private final double initialCapital;
+    private final ArithmeticMode arithmetic;
+    private final ExecutionModel execution;
+
+    public BacktestEngine(StockDataManager dataManager) {
+        this(dataManager, ArithmeticMode.FIXED_POINT);
+    }
+
+    public BacktestEngine(StockDataManager dataManager, ArithmeticMode arithmetic) {
+        this(dataManager, DEFAULT_INITIAL_CAPITAL, arithmetic);
+    }
+
+    public BacktestEngine(StockDataManager dataManager, double initialCapital, ArithmeticMode arithmetic) {
+        this(dataManager, initialCapital, arithmetic, ExecutionModel.IMMEDIATE);
+    }
+
+    public BacktestEngine(StockDataManager dataManager, double initialCapital, ArithmeticMode arithmetic,
+                          ExecutionModel execution) {
+        this.dataManager = dataManager;
+        this.initialCapital = initialCapital;
+        this.arithmetic = arithmetic;
+        this.execution = execution;
+    }
+
+    public ArithmeticMode getArithmetic() { return arithmetic; }
+    public ExecutionModel getExecution() { return execution; }
+
+    // State of one strategy during a run
+    private static final class Run {
+        final Strategy strategy;
+        final Universe universe;
+        final Portfolio portfolio;
+        // null with immediate execution
+        final OrderBook orders;
+        final int[] signals;
+        int day = -1;
+
+        Run(Strategy strategy, Universe universe, Portfolio portfolio, OrderBook orders, int symbolCount) {
+            this.strategy = strategy;
+            this.universe = universe;
+            this.portfolio = portfolio;
+            this.orders = orders;
+            this.signals = new int[symbolCount];
+        }
+    }
+
+    public BacktestResult run(Strategy strategy) {
+        return run(List.of(strategy)).get(0);
+    }
+
+    // Runs every strategy over all loaded symbols; results are returned in the order of the strategies
+    public List<BacktestResult> run(List<? extends Strategy> strategies) {
+        Universe all = Universe.all(dataManager.getPanel());
+        return run(strategies, Collections.nCopies(strategies.size(), all));
+    }
+
+    // strategies.get(i) trades universes.get(i)
+    public List<BacktestResult> run(List<? extends Strategy> strategies, List<Universe> universes) {
+        if (strategies.size() != universes.size()) {
+            throw new IllegalArgumentException("Need one universe per strategy");
+        }
+        List<Run> runs = simulate(strategies, universes, null);
+
+        // Jobs over the same universe share its market returns, which the data manager computes once
+        long start = RunProfiler.ENABLED ? RunProfiler.begin() : 0;
+        List<BacktestResult> results = new ArrayList<>(runs.size());
+        for (Run run : runs) {
+            results.add(report(run, dataManager.equalWeightedMarketReturns(run.universe, arithmetic)));
+        }
+        if (RunProfiler.ENABLED) RunProfiler.end(RunProfiler.Phase.METRICS, start);
+        return results;
+    }
+
+    // Runs a strategy over a partition of a larger universe for ShardedBacktest and returns its portfolio
+    // without computing any metrics. The panel should be built on the larger universe's calendar, which the
+    // partition trades on every day of, and PER_SYMBOL sleeves get the capital they have in the whole.
+    public Portfolio runPartition(Strategy strategy, int sleeves) {
+        Universe partition = Universe.spanning(dataManager.getPanel());
+        return simulate(List.of(strategy), List.of(partition), sleeves).get(0).portfolio;
+    }
+
+    // sleeves: the PER_SYMBOL sleeves of every portfolio, or null for the size of its universe
+    private List<Run> simulate(List<? extends Strategy> strategies, List<Universe> universes, Integer sleeves) {
+        MarketPanel panel = dataManager.getPanel();
+        int symbolCount = panel.symbolCount();
+        IndicatorCache cache = dataManager.getIndicatorCache();
+        IndicatorBank indicators = cache == null ? new IndicatorBank(symbolCount) : new IndicatorBank(panel, cache);
+
+        List<Run> runs = new ArrayList<>(strategies.size());
+        for (int i = 0; i < strategies.size(); i++) {
+            Strategy strategy = strategies.get(i);
+            Universe universe = universes.get(i);
+            strategy.initialize(panel, universe, indicators);
+            Portfolio portfolio = Portfolio.create(arithmetic, strategy.allocation(), symbolCount, universe, initialCapital,
+                    sleeves == null ? universe.size() : sleeves);
+            OrderBook orders = null;
+            if (!execution.isImmediate()) {
+                orders = new OrderBook(execution, portfolio, symbolCount);
+                portfolio.attach(orders);
+            }
+            runs.add(new Run(strategy, universe, portfolio, orders, symbolCount));
+        }
+
+        for (int d = 0; d < panel.dayCount(); d++) {
+            if (RunProfiler.ENABLED) {
+                profiledDay(panel, d, indicators, runs);
+                continue;
+            }
+            indicators.update(panel, d);
+
+            for (Run run : runs) {
+                if (!run.universe.isActive(d)) continue;
+                run.day++;
+                if (run.day < run.strategy.warmupDays()) continue;
+
+                run.strategy.generateSignals(panel, d, run.signals);
+                run.strategy.sizePositions(panel, d, run.signals, run.portfolio);
+                if (run.orders != null) run.orders.fill(panel, d);
+                run.portfolio.markToMarket(panel, d);
+            }
+        }
+        return runs;
+    }
+
+    // The same day as in run(), with each step timed and the signals counted
+    private static void profiledDay(MarketPanel panel, int d, IndicatorBank indicators, List<Run> runs) {
+        long start = RunProfiler.begin();
+        indicators.update(panel, d);
+        RunProfiler.end(RunProfiler.Phase.INDICATORS, start);
+
+        for (Run run : runs) {
+            if (!run.universe.isActive(d)) continue;
+            run.day++;
+            if (run.day < run.strategy.warmupDays()) continue;
+
+            start = RunProfiler.begin();
+            run.strategy.generateSignals(panel, d, run.signals);
+            RunProfiler.end(RunProfiler.Phase.SIGNALS, start);
+            int emitted = 0;
+            for (int signal : run.signals) {
+                if (signal != 0) emitted++;
+            }
+            RunProfiler.count(RunProfiler.Counter.SIGNALS_EMITTED, emitted);
+
+            start = RunProfiler.begin();
+            run.strategy.sizePositions(panel, d, run.signals, run.portfolio);
+            if (run.orders != null) run.orders.fill(panel, d);
+            RunProfiler.end(RunProfiler.Phase.SIZING, start);
+
+            start = RunProfiler.begin();
+            run.portfolio.markToMarket(panel, d);
+            RunProfiler.end(RunProfiler.Phase.MARKING, start);
+        }
+    }
+
+    private BacktestResult report(Run run, double[] marketReturns) {
+        Portfolio portfolio = run.portfolio;
+        double[] dailyReturns = portfolio.dailyReturns();
+        double[] values = portfolio.portfolioValues();
+
+        // The first return falls on the first day after the warm-up
+        int marketFrom = run.strategy.warmupDays();
+        PerformanceMetrics metrics = PerformanceMetrics.of(dailyReturns, values, marketReturns, marketFrom);
+        boolean audit = arithmetic == ArithmeticMode.DECIMAL;
+        double accuracy = audit ? portfolio.accuracy() : metrics.getHitRate();
+        double sharpeRatio = audit ? portfolio.sharpeRatio()*Math.sqrt(252) : metrics.getAnnualizedSharpeRatio();
+
+        return new BacktestResult(run.strategy.getName(), run.strategy.getParameters(), initialCapital,
+                portfolio.getValue(), metrics.getAlpha(), metrics.getBeta(), accuracy, metrics.getMaxDrawdown(),
+                sharpeRatio, dailyReturns, values, metrics, marketReturns, marketFrom,
+                run.orders == null ? null : run.orders.stats());
+    }
+
+    // Scalar reference for PerformanceMetrics.getMaxDrawdown
+    public static double calculateMaxDrawdown(double[] portfolioValues) {
+        double maxDrawdown = 0.0;
+        double peak = portfolioValues[0];
+
+        for (int i = 1; i < portfolioValues.length; i++) {
+            peak = Math.max(peak, portfolioValues[i]);
+            double currentDrawdown = (peak - portfolioValues[i]) / peak;
+            maxDrawdown = Math.max(maxDrawdown, currentDrawdown);
+        }
+
+        return maxDrawdown;
+    }
+}
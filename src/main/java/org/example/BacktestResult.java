@@ -0,0 +1,83 @@
+package org.example;
+
+import java.io.PrintStream;
+import java.math.BigDecimal;
+
+// Outcome of one simulate() call. Holds the summary metrics and the daily series they were computed from.
+// portfolioValues[i] and dailyReturns[i] fall on the day of marketReturns[marketFrom + i].
+public final class BacktestResult {
+    private final String strategy;
+    private final StrategyParameters parameters;
+    private final double initialCapital;
+    private final BigDecimal finalCapital;
+    private final double alpha;
+    private final double beta;
+    private final double accuracy;
+    private final double maxDrawdown;
+    private final double sharpeRatio;
+    private final double[] dailyReturns;
+    private final double[] portfolioValues;
+    private final PerformanceMetrics metrics;
+    private final double[] marketReturns;
+    private final int marketFrom;
+    private final OrderBook.Stats execution;
+
+    public BacktestResult(String strategy, StrategyParameters parameters, double initialCapital, BigDecimal finalCapital,
+                          double alpha, double beta, double accuracy, double maxDrawdown, double sharpeRatio,
+                          double[] dailyReturns, double[] portfolioValues, PerformanceMetrics metrics,
+                          double[] marketReturns, int marketFrom, OrderBook.Stats execution) {
+        this.strategy = strategy;
+        this.parameters = parameters;
+        this.initialCapital = initialCapital;
+        this.finalCapital = finalCapital;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.accuracy = accuracy;
+        this.maxDrawdown = maxDrawdown;
+        this.sharpeRatio = sharpeRatio;
+        this.dailyReturns = dailyReturns;
+        this.portfolioValues = portfolioValues;
+        this.metrics = metrics;
+        this.marketReturns = marketReturns;
+        this.marketFrom = marketFrom;
+        this.execution = execution;
+    }
+
+    public String getStrategy() { return strategy; }
+    public StrategyParameters getParameters() { return parameters; }
+    public double getInitialCapital() { return initialCapital; }
+    public BigDecimal getFinalCapital() { return finalCapital; }
+    public double getAlpha() { return alpha; }
+    public double getBeta() { return beta; }
+    public double getAccuracy() { return accuracy; }
+    public double getMaxDrawdown() { return maxDrawdown; }
+    // Annualized over 252 trading days
+    public double getSharpeRatio() { return sharpeRatio; }
+    public double[] getDailyReturns() { return dailyReturns.clone(); }
+    public double[] getPortfolioValues() { return portfolioValues.clone(); }
+    // Index in the universe's calendar of the first daily return
+    public int getMarketFrom() { return marketFrom; }
+    // Full set of return statistics, including Sortino and volatility
+    public PerformanceMetrics getMetrics() { return metrics; }
+    // Orders, fills and transaction costs, or null when the run executed immediately at the close
+    public OrderBook.Stats getExecution() { return execution; }
+
+    // The metrics over every window of consecutive trading days, from the stored series without re-running
+    public PerformanceMetrics[] rollingMetrics(int window) {
+        return PerformanceMetrics.rolling(dailyReturns, portfolioValues, marketReturns, marketFrom, window);
+    }
+
+    public void print(PrintStream out) {
+        out.printf("Backtest Results using shortWindow = %d and longWindow = %d%n", parameters.getShortWindow(), parameters.getLongWindow());
+        out.printf("Initial Capital: $%.6f%n", initialCapital);
+        out.printf("Final Capital: $%.6f%n", finalCapital);
+        out.printf("Linear Regression coefficients: %.6f, %.6f%n", alpha, beta);
+        out.printf("Accuracy of trading signal: %.6f%n", accuracy);
+        out.printf("Maximum Drawdown : %.6f%n", maxDrawdown);
+        out.printf("Annualized Sharpe Ratio: %.6f%n", sharpeRatio);
+        if (execution != null) {
+            out.printf("Execution: %s%n", execution);
+        }
+        out.println();
+    }
+}
@@ -0,0 +1,38 @@
+package org.example;
+
+// One ticker's daily bar as it arrives on a live feed. arrivalNanos is the System.nanoTime() at which the source
+// received it, so signal latency can be measured from there.
+public final class Bar {
+    private final String ticker;
+    private final int epochDay;
+    private final double open;
+    private final double high;
+    private final double low;
+    private final double close;
+    private final double adjClose;
+    private final long volume;
+    private final long arrivalNanos;
+
+    public Bar(String ticker, int epochDay, double open, double high, double low, double close, double adjClose,
+               long volume, long arrivalNanos) {
+        this.ticker = ticker;
+        this.epochDay = epochDay;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.adjClose = adjClose;
+        this.volume = volume;
+        this.arrivalNanos = arrivalNanos;
+    }
+
+    public String getTicker() { return ticker; }
+    public int getEpochDay() { return epochDay; }
+    public double getOpen() { return open; }
+    public double getHigh() { return high; }
+    public double getLow() { return low; }
+    public double getClose() { return close; }
+    public double getAdjClose() { return adjClose; }
+    public long getVolume() { return volume; }
+    public long getArrivalNanos() { return arrivalNanos; }
+}
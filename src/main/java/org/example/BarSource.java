@@ -0,0 +1,13 @@
+package org.example;
+
+import java.io.IOException;
+
+// Live feed of bars, consumed by LiveSignalEngine.run.
+public interface BarSource extends AutoCloseable {
+    // Blocks until the next bar is available; null once the feed has ended
+    Bar take() throws IOException, InterruptedException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,266 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+// Runs every job of a job file in one BacktestEngine pass over data loaded once, and writes one results file
+// per job. Each non-empty line that isn't a # comment is one job of whitespace-separated key=value tokens:
+//
+//   name=ema-tech strategy=ema short=10 long=50 rsi=14 atr-period=14 atr=3 tickers=AAPL,MSFT,NVDA
+//
+// name and strategy are required. strategy is sma, ema, or the name of a Strategy class with a public
+// (StrategyParameters) constructor. Omitted parameters take StrategyParameters.DEFAULT; without tickers the
+// job trades every loaded stock.
+public class BatchRunner {
+
+    public static final class Job {
+        private final String name;
+        private final String strategy;
+        private final StrategyParameters parameters;
+        private final List<String> tickers;
+
+        public Job(String name, String strategy, StrategyParameters parameters, List<String> tickers) {
+            this.name = name;
+            this.strategy = strategy;
+            this.parameters = parameters;
+            this.tickers = tickers;
+        }
+
+        public String getName() { return name; }
+        public String getStrategy() { return strategy; }
+        public StrategyParameters getParameters() { return parameters; }
+        // Empty for the whole loaded universe
+        public List<String> getTickers() { return tickers; }
+
+        public Strategy newStrategy() {
+            return newStrategy(null);
+        }
+
+        // pool: where ema jobs split each day's cross-section of symbols, or null for the engine's thread
+        public Strategy newStrategy(ForkJoinPool pool) {
+            switch (strategy) {
+                case "sma":
+                    return new SimpleMovingAverage(parameters);
+                case "ema":
+                    return new ExponentialMovingAverage(parameters, pool);
+                default:
+                    try {
+                        return Class.forName(strategy).asSubclass(Strategy.class)
+                                .getConstructor(StrategyParameters.class).newInstance(parameters);
+                    } catch (ClassNotFoundException | ClassCastException | NoSuchMethodException
+                             | InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                        throw new IllegalArgumentException("Cannot create strategy " + strategy + " for job " + name, e);
+                    }
+            }
+        }
+    }
+
+    public static List<Job> parseJobs(List<String> lines) {
+        List<Job> jobs = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            try {
+                Job job = parseJob(line);
+                if (!names.add(job.getName())) {
+                    throw new IllegalArgumentException("Duplicate job name " + job.getName());
+                }
+                jobs.add(job);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return jobs;
+    }
+
+    private static Job parseJob(String line) {
+        Map<String, String> fields = new HashMap<>();
+        for (String token : line.split("\\s+")) {
+            int eq = token.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + token);
+            }
+            fields.put(token.substring(0, eq), token.substring(eq + 1));
+        }
+
+        String name = fields.remove("name");
+        String strategy = fields.remove("strategy");
+        if (name == null || strategy == null) {
+            throw new IllegalArgumentException("A job needs a name and a strategy");
+        }
+        if (!name.matches("[A-Za-z0-9._-]+")) {
+            throw new IllegalArgumentException("Job names may only contain letters, digits, '.', '_' and '-': " + name);
+        }
+        StrategyParameters d = StrategyParameters.DEFAULT;
+        StrategyParameters parameters = new StrategyParameters(
+                Integer.parseInt(fields.getOrDefault("short", String.valueOf(d.getShortWindow()))),
+                Integer.parseInt(fields.getOrDefault("long", String.valueOf(d.getLongWindow()))),
+                Integer.parseInt(fields.getOrDefault("rsi", String.valueOf(d.getRsiPeriod()))),
+                Integer.parseInt(fields.getOrDefault("atr-period", String.valueOf(d.getAtrPeriod()))),
+                Double.parseDouble(fields.getOrDefault("atr", String.valueOf(d.getAtrMultiplier()))));
+        fields.keySet().removeAll(List.of("short", "long", "rsi", "atr-period", "atr"));
+
+        String tickerList = fields.remove("tickers");
+        List<String> tickers = tickerList == null ? List.of() : Arrays.asList(tickerList.split(","));
+        if (!fields.isEmpty()) {
+            throw new IllegalArgumentException("Unknown keys " + fields.keySet());
+        }
+        return new Job(name, strategy, parameters, tickers);
+    }
+
+    // Results are returned in job order
+    public static List<BacktestResult> run(StockDataManager dataManager, List<Job> jobs, ArithmeticMode arithmetic) {
+        return run(dataManager, jobs, arithmetic, ExecutionModel.IMMEDIATE);
+    }
+
+    public static List<BacktestResult> run(StockDataManager dataManager, List<Job> jobs, ArithmeticMode arithmetic,
+                                           ExecutionModel execution) {
+        return run(dataManager, jobs, arithmetic, execution, null);
+    }
+
+    public static List<BacktestResult> run(StockDataManager dataManager, List<Job> jobs, ArithmeticMode arithmetic,
+                                           ExecutionModel execution, ForkJoinPool pool) {
+        MarketPanel panel = dataManager.getPanel();
+        Universe all = Universe.all(panel);
+        Map<List<String>, Universe> universes = new HashMap<>();
+
+        List<Strategy> strategies = new ArrayList<>(jobs.size());
+        List<Universe> jobUniverses = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            strategies.add(job.newStrategy(pool));
+            jobUniverses.add(job.getTickers().isEmpty() ? all
+                    : universes.computeIfAbsent(job.getTickers(), tickers -> Universe.of(panel, tickers)));
+        }
+        return new BacktestEngine(dataManager, BacktestEngine.DEFAULT_INITIAL_CAPITAL, arithmetic, execution)
+                .run(strategies, jobUniverses);
+    }
+
+    private static void writeResult(Path directory, Job job, BacktestResult result) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(job.getName() + ".txt")))) {
+            out.printf("Job: %s%n", job.getName());
+            out.printf("Strategy: %s (%s)%n", result.getStrategy(), result.getParameters());
+            out.printf("Tickers: %s%n", job.getTickers().isEmpty() ? "all" : String.join(",", job.getTickers()));
+            result.print(out);
+        }
+    }
+
+    // One row per window, dated by its last day: the rolling metrics of the job, ready to plot
+    private static void writeRolling(Path directory, Job job, BacktestResult result, MarketPanel panel, int window)
+            throws IOException {
+        Universe universe = job.getTickers().isEmpty() ? Universe.all(panel) : Universe.of(panel, job.getTickers());
+        PerformanceMetrics[] rolling = result.rollingMetrics(window);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(job.getName() + ".rolling.csv")))) {
+            out.println("Date,Mean,Volatility,Sharpe,Sortino,MaxDrawdown,HitRate,Alpha,Beta");
+            for (int i = 0; i < rolling.length; i++) {
+                PerformanceMetrics m = rolling[i];
+                int d = universe.day(result.getMarketFrom() + i + window - 1);
+                out.printf("%s,%.8f,%.8f,%.6f,%.6f,%.6f,%.6f,%.8f,%.6f%n", LocalDate.ofEpochDay(panel.epochDay(d)),
+                        m.getMean(), m.getVolatility(), m.getAnnualizedSharpeRatio(), m.getAnnualizedSortinoRatio(),
+                        m.getMaxDrawdown(), m.getHitRate(), m.getAlpha(), m.getBeta());
+            }
+        }
+    }
+
+    // Usage: BatchRunner <jobFile> [--csv=path] [--out=directory] [--arithmetic=fixed|decimal] [--rolling=days]
+    //                    [--lazy] [--execution=immediate|key=value,...] [--indicator-cache=directory]
+    //                    [--cross-section-threads=N]
+    // With --lazy the CSV is indexed rather than loaded, and when every job lists its tickers only those are decoded
+    // --execution takes an ExecutionModel, e.g. --execution=commission=0.005,min=1,slippage=5,participation=0.1,pending=3
+    // --indicator-cache keeps the indicator series in that directory across runs
+    // --cross-section-threads splits each day's signals and sizing of ema jobs over the symbols on N threads
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: BatchRunner <jobFile> [--csv=path] [--out=directory] [--arithmetic=fixed|decimal] [--rolling=days] [--lazy] [--execution=immediate|key=value,...] [--indicator-cache=directory] [--cross-section-threads=N]");
+        }
+        Path jobFile = Paths.get(args[0]);
+        String csv = "stock_data/consolidated_stock_data.csv";
+        Path out = Paths.get("results");
+        ArithmeticMode arithmetic = ArithmeticMode.FIXED_POINT;
+        int rollingWindow = 0;
+        boolean lazy = false;
+        ExecutionModel execution = ExecutionModel.IMMEDIATE;
+        Path indicatorCache = null;
+        int crossSectionThreads = 1;
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--csv=")) {
+                csv = arg.substring("--csv=".length());
+            } else if (arg.startsWith("--out=")) {
+                out = Paths.get(arg.substring("--out=".length()));
+            } else if (arg.startsWith("--arithmetic=")) {
+                arithmetic = ArithmeticMode.parse(arg.substring("--arithmetic=".length()));
+            } else if (arg.startsWith("--rolling=")) {
+                rollingWindow = Integer.parseInt(arg.substring("--rolling=".length()));
+            } else if (arg.startsWith("--execution=")) {
+                execution = ExecutionModel.parse(arg.substring("--execution=".length()));
+            } else if (arg.startsWith("--indicator-cache=")) {
+                indicatorCache = Paths.get(arg.substring("--indicator-cache=".length()));
+            } else if (arg.startsWith("--cross-section-threads=")) {
+                crossSectionThreads = Integer.parseInt(arg.substring("--cross-section-threads=".length()));
+            } else if (arg.equals("--lazy")) {
+                lazy = true;
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        List<Job> jobs = parseJobs(Files.readAllLines(jobFile));
+        long start = System.nanoTime();
+        StockDataManager dataManager = new StockDataManager();
+        if (lazy) {
+            dataManager.indexHistoricalDataFromCSV(csv);
+            Set<String> used = new LinkedHashSet<>();
+            for (Job job : jobs) {
+                if (job.getTickers().isEmpty()) {
+                    used = null;
+                    break;
+                }
+                used.addAll(job.getTickers());
+            }
+            dataManager.setPanelStocks(used == null ? dataManager.getStocks() : new ArrayList<>(used));
+        } else {
+            dataManager.loadHistoricalDataFromCSV(csv);
+        }
+        if (indicatorCache != null) {
+            dataManager.setIndicatorCache(new IndicatorCache(IndicatorCache.DEFAULT_CACHED_VALUES, indicatorCache));
+        }
+        long loaded = System.nanoTime();
+        ForkJoinPool pool = crossSectionThreads > 1 ? new ForkJoinPool(crossSectionThreads) : null;
+        List<BacktestResult> results;
+        try {
+            results = run(dataManager, jobs, arithmetic, execution, pool);
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+        long finished = System.nanoTime();
+
+        Files.createDirectories(out);
+        for (int i = 0; i < jobs.size(); i++) {
+            writeResult(out, jobs.get(i), results.get(i));
+            if (rollingWindow > 0) {
+                writeRolling(out, jobs.get(i), results.get(i), dataManager.getPanel(), rollingWindow);
+            }
+        }
+        System.out.printf("%d jobs: data loaded in %.2f s, simulated in %.2f s, results in %s%n",
+                jobs.size(), (loaded - start) / 1e9, (finished - loaded) / 1e9, out);
+        if (indicatorCache != null) {
+            System.out.println("Indicator cache: " + dataManager.getIndicatorCache());
+        }
+        RunProfiler.report("BatchRunner " + jobFile, out.resolve("run-report.json"), System.out);
+    }
+}
@@ -0,0 +1,158 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Moving-block bootstrap of a daily return series: each resample strings together random blocks of consecutive
+// days, wrapping around the end, until it is as long as the original, so short-range autocorrelation survives
+// the shuffle. A resample is only a walk over block start indices into the shared returns array; nothing is
+// copied. Resample i draws from its own SplittableRandom seeded from (seed, i), so the results don't depend on
+// the pool size or on which worker ran it.
+public final class BlockBootstrap {
+    private static final double TRADING_DAYS = 252;
+    // Resamples per leaf task; small enough for work stealing to balance thousands of them
+    private static final int GRAIN = 64;
+
+    private final double[] returns;
+    private final int blockLength;
+
+    public BlockBootstrap(double[] returns, int blockLength) {
+        if (returns.length < 2) {
+            throw new IllegalArgumentException("Need at least 2 returns, got " + returns.length);
+        }
+        if (blockLength < 1 || blockLength > returns.length) {
+            throw new IllegalArgumentException("Block length must be between 1 and " + returns.length + ", got " + blockLength);
+        }
+        this.returns = returns.clone();
+        this.blockLength = blockLength;
+    }
+
+    // Percentile interval of one statistic over the resamples, with its median
+    public static final class Interval {
+        private final double lower;
+        private final double median;
+        private final double upper;
+
+        Interval(double lower, double median, double upper) {
+            this.lower = lower;
+            this.median = median;
+            this.upper = upper;
+        }
+
+        public double getLower() { return lower; }
+        public double getMedian() { return median; }
+        public double getUpper() { return upper; }
+
+        @Override
+        public String toString() {
+            return String.format("%.4f [%.4f, %.4f]", median, lower, upper);
+        }
+    }
+
+    // Annualized Sharpe ratio and max drawdown of every resample, in resample order
+    public static final class Result {
+        private final double[] sharpeRatios;
+        private final double[] maxDrawdowns;
+
+        Result(double[] sharpeRatios, double[] maxDrawdowns) {
+            this.sharpeRatios = sharpeRatios;
+            this.maxDrawdowns = maxDrawdowns;
+        }
+
+        public int resamples() { return sharpeRatios.length; }
+        public double[] getSharpeRatios() { return sharpeRatios.clone(); }
+        public double[] getMaxDrawdowns() { return maxDrawdowns.clone(); }
+
+        // Central interval holding `confidence` of the resamples, e.g. 0.95 for the 2.5th to 97.5th percentile
+        public Interval sharpeInterval(double confidence) {
+            return interval(sharpeRatios, confidence);
+        }
+
+        public Interval drawdownInterval(double confidence) {
+            return interval(maxDrawdowns, confidence);
+        }
+    }
+
+    public Result run(int resamples, long seed, ForkJoinPool pool) {
+        double[] sharpeRatios = new double[resamples];
+        double[] maxDrawdowns = new double[resamples];
+        pool.invoke(new Resamples(seed, 0, resamples, sharpeRatios, maxDrawdowns));
+        return new Result(sharpeRatios, maxDrawdowns);
+    }
+
+    private final class Resamples extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long seed;
+        private final int from;
+        private final int to;
+        private final double[] sharpeRatios;
+        private final double[] maxDrawdowns;
+
+        Resamples(long seed, int from, int to, double[] sharpeRatios, double[] maxDrawdowns) {
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+            this.sharpeRatios = sharpeRatios;
+            this.maxDrawdowns = maxDrawdowns;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Resamples(seed, from, middle, sharpeRatios, maxDrawdowns),
+                        new Resamples(seed, middle, to, sharpeRatios, maxDrawdowns));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                resample(new SplittableRandom(seed + i * 0x9E3779B97F4A7C15L), i, sharpeRatios, maxDrawdowns);
+            }
+        }
+    }
+
+    // One resample in a single pass: the return sums for the Sharpe ratio and the compounded value for the drawdown
+    private void resample(SplittableRandom random, int i, double[] sharpeRatios, double[] maxDrawdowns) {
+        int n = returns.length;
+        double sum = 0, squares = 0;
+        double value = 1, peak = 1, drawdown = 0;
+        for (int day = 0; day < n; ) {
+            int start = random.nextInt(n);
+            int length = Math.min(blockLength, n - day);
+            for (int k = 0; k < length; k++) {
+                int index = start + k;
+                double r = returns[index < n ? index : index - n];
+                sum += r;
+                squares += r * r;
+                value *= 1 + r;
+                peak = Math.max(peak, value);
+                drawdown = Math.max(drawdown, (peak - value) / peak);
+            }
+            day += length;
+        }
+        double mean = sum / n;
+        double variance = Math.max(0, squares / n - mean * mean);
+        sharpeRatios[i] = mean / Math.sqrt(variance) * Math.sqrt(TRADING_DAYS);
+        maxDrawdowns[i] = drawdown;
+    }
+
+    // Nearest-rank percentiles; undefined (NaN) samples are left out
+    static Interval interval(double[] samples, double confidence) {
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("Confidence must be between 0 and 1, got " + confidence);
+        }
+        double[] sorted = Arrays.stream(samples).filter(x -> !Double.isNaN(x)).sorted().toArray();
+        if (sorted.length == 0) {
+            return new Interval(Double.NaN, Double.NaN, Double.NaN);
+        }
+        double tail = (1 - confidence) / 2;
+        return new Interval(percentile(sorted, tail), percentile(sorted, 0.5), percentile(sorted, 1 - tail));
+    }
+
+    private static double percentile(double[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+    }
+}
@@ -0,0 +1,82 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+// Line-by-line loader built on BufferedReader, String.split and the JDK parsers. It was StockDataManager's loader
+// before MappedCsvLoader, and is kept as the baseline for LoadBenchmarks.
+public final class BufferedCsvLoader {
+    private final int startDay;
+    private final int endDay;
+
+    public BufferedCsvLoader(LocalDate startDate, LocalDate endDate) {
+        this.startDay = (int) startDate.toEpochDay();
+        this.endDay = (int) endDate.toEpochDay();
+    }
+
+    static void validateHeader(String headerLine) {
+        if (headerLine == null) {
+            throw new IllegalArgumentException("Invalid CSV format. The file is empty.");
+        }
+        String[] headers = headerLine.split(",");
+        if (headers.length < 8 || !headers[7].trim().equalsIgnoreCase("Ticker")) {
+            throw new IllegalArgumentException("Invalid CSV format. Expected 8 columns with Ticker as last column.");
+        }
+    }
+
+    public Map<String, PriceSeries> load(Path path) throws IOException {
+        try (BufferedReader br = Files.newBufferedReader(path)) {
+            // Read and validate header
+            validateHeader(br.readLine());
+
+            // Prepare a map to collect data for each stock
+            Map<String, PriceSeries.Builder> stockDataMap = new HashMap<>();
+
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] columns = line.split(",");
+
+                // Ensure we have enough columns
+                if (columns.length < 8) continue;
+
+                try {
+                    // Parse CSV columns
+                    LocalDate date = LocalDate.parse(columns[0]);
+                    String ticker = columns[7].trim(); // Last column is Ticker
+                    PriceSeries.Builder builder = stockDataMap.computeIfAbsent(ticker, PriceSeries.Builder::new);
+                    addData(builder, columns, date);
+
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    System.err.println("Error parsing line: " + line);
+                }
+            }
+
+            // Sort each stock by date and keep only the bars inside the backtest range
+            Map<String, PriceSeries> historicalData = new HashMap<>();
+            for (Map.Entry<String, PriceSeries.Builder> entry : stockDataMap.entrySet()) {
+                PriceSeries series = entry.getValue()
+                        .sortByDate()
+                        .retainDays(startDay, endDay)
+                        .build();
+                historicalData.put(entry.getKey(), series);
+            }
+            return historicalData;
+        }
+    }
+
+    private static void addData(PriceSeries.Builder builder, String[] columns, LocalDate date) {
+        double open = Double.parseDouble(columns[1]);
+        double high = Double.parseDouble(columns[2]);
+        double low = Double.parseDouble(columns[3]);
+        double close = Double.parseDouble(columns[4]);
+        double adjClose = Double.parseDouble(columns[5]);
+        long volume = Long.parseLong(columns[6]);
+
+        builder.add((int) date.toEpochDay(), open, high, low, close, adjClose, volume);
+    }
+}
@@ -0,0 +1,54 @@
+package org.example;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Splits a per-symbol pass over one trading day into ranges of a ForkJoinPool. The body must only read shared
+// state and write the slots of its own range in symbol-indexed arrays, so the outcome is the same on any pool
+// size, or with no pool at all; anything that depends on the order of the symbols, such as spending pooled cash,
+// is left to a serial pass by the caller afterwards.
+final class CrossSection {
+    // Symbols per task; below twice this a day is not worth splitting
+    static final int GRAIN = 256;
+
+    interface Range {
+        // Handles indices [from, to)
+        void apply(int from, int to);
+    }
+
+    private CrossSection() {
+    }
+
+    // Runs body over [0, count) on pool, or on the calling thread when pool is null or count is small
+    static void forEach(ForkJoinPool pool, int count, Range body) {
+        if (pool == null || pool.getParallelism() == 1 || count < 2 * GRAIN) {
+            body.apply(0, count);
+        } else {
+            pool.invoke(new Split(body, 0, count));
+        }
+    }
+
+    private static final class Split extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Range body;
+        private final int from;
+        private final int to;
+
+        Split(Range body, int from, int to) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Split(body, from, middle), new Split(body, middle, to));
+                return;
+            }
+            body.apply(from, to);
+        }
+    }
+}
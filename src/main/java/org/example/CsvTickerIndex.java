@@ -0,0 +1,335 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Where each ticker's rows are in consolidated_stock_data.csv, so single tickers can be decoded on demand
+// without parsing the rest of the file. One sequential pass over the mapped file reads only the date and
+// ticker columns and records, per ticker, the byte extents holding its rows, the number of rows dated within
+// the range and their first and last date. A file grouped by ticker gives one extent per ticker. In a file
+// sorted by date, a ticker's rows are runs separated by other tickers' rows; runs less than MERGE_GAP_BYTES apart
+// share an extent, whose other lines the loader skips on the ticker column, so the index stays small and a
+// ticker still decodes from a few mapped windows (a date-sorted file of up to ~10,000 tickers a day keeps one
+// extent per ticker, at the price of reading the lines in between).
+//
+// The index is persisted next to the CSV as consolidated_stock_data.csv.index, keyed like MarketDataSnapshot
+// (little-endian header with magic, version, source size, mtime, content hash and date range; then per
+// ticker its name, rows, first and last epoch day and extents) and rebuilt when the key no longer matches.
+public final class CsvTickerIndex {
+    private static final int MAGIC = 0x5844494D; // "MIDX"
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 56;
+    // Extents are mapped in one piece when a ticker is decoded, so longer runs are split
+    private static final long MAX_EXTENT_BYTES = 1L << 30;
+    private static final long WINDOW_BYTES = 1L << 30;
+    // Gap of other tickers' rows below which two runs of a ticker are kept in one extent
+    static final long MERGE_GAP_BYTES = 1L << 20;
+
+    private final Path source;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final Map<String, Entry> entries;
+
+    private CsvTickerIndex(Path source, LocalDate startDate, LocalDate endDate, Map<String, Entry> entries) {
+        this.source = source;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.entries = entries;
+    }
+
+    public static Path indexPath(Path source) {
+        return source.resolveSibling(source.getFileName() + ".index");
+    }
+
+    public static final class Entry {
+        private final String ticker;
+        private final int rows;
+        private final int firstDay;
+        private final int lastDay;
+        private final long[] extents;
+
+        Entry(String ticker, int rows, int firstDay, int lastDay, long[] extents) {
+            this.ticker = ticker;
+            this.rows = rows;
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+            this.extents = extents;
+        }
+
+        public String getTicker() { return ticker; }
+        // Rows dated within the index's range
+        public int getRows() { return rows; }
+        public LocalDate getFirstDate() { return LocalDate.ofEpochDay(firstDay); }
+        public LocalDate getLastDate() { return LocalDate.ofEpochDay(lastDay); }
+        public int extentCount() { return extents.length / 2; }
+    }
+
+    // Reads the sidecar index when it matches the CSV, otherwise scans the CSV and rewrites it
+    public static CsvTickerIndex open(Path source, LocalDate startDate, LocalDate endDate) throws IOException {
+        return open(source, startDate, endDate, false);
+    }
+
+    // sampled: key the index on MarketDataSnapshot's sampled hash instead of the whole file's
+    public static CsvTickerIndex open(Path source, LocalDate startDate, LocalDate endDate, boolean sampled)
+            throws IOException {
+        Path indexFile = indexPath(source);
+        MarketDataSnapshot.Key key = MarketDataSnapshot.keyOf(source, startDate, endDate, sampled);
+        Map<String, Entry> entries = read(indexFile, key);
+        if (entries == null) {
+            entries = scan(source, (int) startDate.toEpochDay(), (int) endDate.toEpochDay());
+            try {
+                write(indexFile, key, entries);
+            } catch (IOException e) {
+                // Like the snapshot, the index is only a cache
+                System.err.println("Could not write index " + indexFile + ": " + e);
+            }
+        }
+        return new CsvTickerIndex(source, startDate, endDate, entries);
+    }
+
+    // Every ticker with at least one row in range, in the order of its first row in the file
+    public List<String> tickers() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    public Entry entry(String ticker) {
+        return entries.get(ticker);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Decodes one ticker's rows, or returns null for a ticker that isn't in the index
+    public PriceSeries load(String ticker) throws IOException {
+        Entry entry = entries.get(ticker);
+        if (entry == null) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            return new MappedCsvLoader(startDate, endDate).loadTicker(channel, ticker, entry.extents);
+        }
+    }
+
+    // Accumulates one ticker's entry during the scan
+    private static final class Scan {
+        final String ticker;
+        final byte[] key;
+        long[] extents = new long[4];
+        int extentCount;
+        int rows;
+        int firstDay = Integer.MAX_VALUE;
+        int lastDay = Integer.MIN_VALUE;
+
+        Scan(String ticker, byte[] key) {
+            this.ticker = ticker;
+            this.key = key;
+        }
+
+        void startExtent(long position) {
+            if (extentCount * 2 == extents.length) {
+                extents = Arrays.copyOf(extents, extents.length * 2);
+            }
+            extents[extentCount * 2] = position;
+            extents[extentCount * 2 + 1] = position;
+            extentCount++;
+        }
+
+        void extendTo(long position) {
+            extents[extentCount * 2 - 1] = position;
+        }
+
+        long extentStart() {
+            return extents[extentCount * 2 - 2];
+        }
+
+        long extentEnd() {
+            return extents[extentCount * 2 - 1];
+        }
+
+        Entry toEntry() {
+            return new Entry(ticker, rows, firstDay, lastDay, Arrays.copyOf(extents, extentCount * 2));
+        }
+    }
+
+    private static Map<String, Entry> scan(Path source, int startDay, int endDay) throws IOException {
+        Map<String, Scan> scans = new LinkedHashMap<>();
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = MappedCsvLoader.readHeader(channel, size);
+            ByteBuffer probe = ByteBuffer.allocate(4096);
+            Scan current = null;
+            int[] commas = new int[7];
+
+            while (position < size) {
+                // Map whole lines, up to WINDOW_BYTES at a time
+                long windowEnd = position + WINDOW_BYTES >= size ? size
+                        : MappedCsvLoader.nextLineStart(channel, probe, position + WINDOW_BYTES, size);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, windowEnd - position);
+                int limit = buffer.limit();
+                int lineStart = 0;
+                while (lineStart < limit) {
+                    int lineEnd = lineStart;
+                    int commaCount = 0;
+                    while (lineEnd < limit) {
+                        byte b = buffer.get(lineEnd);
+                        if (b == '\n') break;
+                        if (b == ',' && commaCount < commas.length) {
+                            commas[commaCount++] = lineEnd;
+                        }
+                        lineEnd++;
+                    }
+                    int next = Math.min(lineEnd + 1, limit);
+                    if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                        lineEnd--;
+                    }
+
+                    if (commaCount == commas.length) {
+                        // Same ticker bounds and trimming as MappedCsvLoader
+                        int from = commas[6] + 1;
+                        int to = from;
+                        while (to < lineEnd && buffer.get(to) != ',') to++;
+                        while (from < to && buffer.get(from) <= ' ') from++;
+                        while (to > from && buffer.get(to - 1) <= ' ') to--;
+                        if (to > from) {
+                            if (current == null || !matches(current.key, buffer, from, to)) {
+                                byte[] key = new byte[to - from];
+                                buffer.get(from, key);
+                                String ticker = new String(key, StandardCharsets.UTF_8);
+                                current = scans.computeIfAbsent(ticker, t -> new Scan(t, key));
+                                long lineOffset = position + lineStart;
+                                if (current.extentCount == 0 || lineOffset - current.extentEnd() > MERGE_GAP_BYTES
+                                        || position + next - current.extentStart() > MAX_EXTENT_BYTES) {
+                                    current.startExtent(lineOffset);
+                                }
+                            } else if (position + next - current.extentStart() > MAX_EXTENT_BYTES) {
+                                current.startExtent(position + lineStart);
+                            }
+                            current.extendTo(position + next);
+                            count(current, buffer, lineStart, commas[0], startDay, endDay);
+                        }
+                    }
+                    lineStart = next;
+                }
+                position = windowEnd;
+            }
+        }
+
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (Scan scan : scans.values()) {
+            if (scan.rows > 0) {
+                entries.put(scan.ticker, scan.toEntry());
+            }
+        }
+        return entries;
+    }
+
+    // Rows with an unreadable date stay in the extent; the loader reports them when the ticker is decoded
+    private static void count(Scan scan, ByteBuffer buffer, int from, int to, int startDay, int endDay) {
+        int day;
+        try {
+            day = MappedCsvLoader.parseEpochDay(buffer, from, to);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (day < startDay || day > endDay) {
+            return;
+        }
+        scan.rows++;
+        scan.firstDay = Math.min(scan.firstDay, day);
+        scan.lastDay = Math.max(scan.lastDay, day);
+    }
+
+    private static boolean matches(byte[] key, ByteBuffer buffer, int from, int to) {
+        if (key.length != to - from) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buffer.get(from + i)) return false;
+        }
+        return true;
+    }
+
+    // Returns null when there is no usable index for this key
+    private static Map<String, Entry> read(Path indexFile, MarketDataSnapshot.Key key) {
+        if (!Files.isRegularFile(indexFile)) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile)).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || !key.matches(buffer) || buffer.getLong(44) != buffer.capacity()) {
+                return null;
+            }
+            int count = buffer.getInt(40);
+            buffer.position(HEADER_BYTES);
+            Map<String, Entry> entries = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(name);
+                int rows = buffer.getInt();
+                int firstDay = buffer.getInt();
+                int lastDay = buffer.getInt();
+                long[] extents = new long[buffer.getInt() * 2];
+                for (int k = 0; k < extents.length; k++) {
+                    extents[k] = buffer.getLong();
+                }
+                String ticker = new String(name, StandardCharsets.UTF_8);
+                entries.put(ticker, new Entry(ticker, rows, firstDay, lastDay, extents));
+            }
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable index " + indexFile + ": " + e);
+            return null;
+        }
+    }
+
+    // Written to a temporary file and renamed over the index, like the snapshot
+    private static void write(Path indexFile, MarketDataSnapshot.Key key, Map<String, Entry> entries) throws IOException {
+        List<byte[]> names = new ArrayList<>(entries.size());
+        int bytes = HEADER_BYTES;
+        for (Entry entry : entries.values()) {
+            byte[] name = entry.ticker.getBytes(StandardCharsets.UTF_8);
+            if (name.length > 0xFFFF) {
+                throw new IOException("Ticker name too long: " + entry.ticker);
+            }
+            names.add(name);
+            bytes += 2 + name.length + 4 * 4 + 8 * entry.extents.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        key.writeTo(buffer);
+        buffer.putInt(entries.size()).putLong(bytes);
+        buffer.position(HEADER_BYTES);
+        int i = 0;
+        for (Entry entry : entries.values()) {
+            byte[] name = names.get(i++);
+            buffer.putShort((short) name.length).put(name)
+                    .putInt(entry.rows).putInt(entry.firstDay).putInt(entry.lastDay).putInt(entry.extents.length / 2);
+            for (long extent : entry.extents) {
+                buffer.putLong(extent);
+            }
+        }
+
+        Path temp = Files.createTempFile(indexFile.toAbsolutePath().getParent(), indexFile.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, buffer.array());
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// ArithmeticMode.DECIMAL: exact BigDecimal cash and valuation, DECIMAL128 divisions for returns and sizing.
+public final class DecimalPortfolio extends Portfolio {
+    private final BigDecimal[] cash;
+    private final double[] lastPrice;
+    private BigDecimal value;
+    private final List<BigDecimal> dailyReturns = new ArrayList<>();
+    private final List<BigDecimal> portfolioValues = new ArrayList<>();
+
+    public DecimalPortfolio(Allocation allocation, int symbolCount, Universe universe, double initialCapital) {
+        this(allocation, symbolCount, universe, initialCapital, universe.size());
+    }
+
+    public DecimalPortfolio(Allocation allocation, int symbolCount, Universe universe, double initialCapital,
+                            int sleeves) {
+        super(allocation, symbolCount, universe, initialCapital);
+        if (allocation == Allocation.PER_SYMBOL) {
+            cash = new BigDecimal[symbolCount];
+            Arrays.fill(cash, BigDecimal.ZERO);
+            for (int s : members) {
+                cash[s] = BigDecimal.valueOf(initialCapital / sleeves);
+            }
+        } else {
+            cash = new BigDecimal[]{BigDecimal.valueOf(initialCapital)};
+        }
+        lastPrice = new double[symbolCount];
+        Arrays.fill(lastPrice, Double.NaN);
+        value = totalCash();
+    }
+
+    // Cash available to trade symbol s
+    public BigDecimal cash(int s) {
+        return cash[account(s)];
+    }
+
+    @Override
+    public double availableCash(int s) {
+        return cash(s).doubleValue();
+    }
+
+    @Override
+    public long affordableShares(int s, double price) {
+        return Math.max(0, cash(s).divideToIntegralValue(BigDecimal.valueOf(price)).longValue());
+    }
+
+    @Override
+    public long riskSizedShares(double riskFraction, double stopDistance, double stopMultiplier, double price) {
+        BigDecimal riskAmount = value.multiply(BigDecimal.valueOf(riskFraction));
+        BigDecimal stopLossDistance = BigDecimal.valueOf(stopDistance).multiply(BigDecimal.valueOf(stopMultiplier));
+        return riskAmount
+                .divide(stopLossDistance, MathContext.DECIMAL128)
+                .divide(BigDecimal.valueOf(price), MathContext.DECIMAL128)
+                .longValue();
+    }
+
+    @Override
+    protected void executeBuy(int s, long shares, double price) {
+        if (RunProfiler.ENABLED && shares > 0) RunProfiler.count(RunProfiler.Counter.TRADES_EXECUTED, 1);
+        int account = account(s);
+        cash[account] = cash[account].subtract(BigDecimal.valueOf(price).multiply(BigDecimal.valueOf(shares)));
+        positions[s] += shares;
+    }
+
+    @Override
+    protected void executeSell(int s, long shares, double price) {
+        if (RunProfiler.ENABLED && shares > 0) RunProfiler.count(RunProfiler.Counter.TRADES_EXECUTED, 1);
+        int account = account(s);
+        cash[account] = cash[account].add(BigDecimal.valueOf(price).multiply(BigDecimal.valueOf(shares)));
+        positions[s] -= shares;
+    }
+
+    @Override
+    protected void charge(int s, double amount) {
+        int account = account(s);
+        cash[account] = cash[account].subtract(BigDecimal.valueOf(amount));
+    }
+
+    public BigDecimal totalCash() {
+        BigDecimal total = BigDecimal.ZERO;
+        if (allocation == Allocation.PER_SYMBOL) {
+            for (int s : members) {
+                total = total.add(cash[s]);
+            }
+        } else {
+            total = total.add(cash[0]);
+        }
+        return total;
+    }
+
+    @Override
+    public void markToMarket(MarketPanel panel, int d) {
+        BigDecimal total = totalCash();
+        for (int s : members) {
+            if (panel.hasPrice(d, s)) {
+                lastPrice[s] = panel.adjClose(d, s);
+            }
+            if (positions[s] != 0) {
+                total = total.add(BigDecimal.valueOf(positions[s]).multiply(BigDecimal.valueOf(lastPrice[s])));
+            }
+        }
+        dailyReturns.add(total.subtract(value).divide(value, MathContext.DECIMAL128));
+        portfolioValues.add(total);
+        value = total;
+    }
+
+    @Override
+    public BigDecimal getValue() {
+        return value;
+    }
+
+    public List<BigDecimal> getDecimalReturns() {
+        return dailyReturns;
+    }
+
+    @Override
+    public double[] dailyReturns() {
+        return dailyReturns.stream().mapToDouble(BigDecimal::doubleValue).toArray();
+    }
+
+    @Override
+    public double[] portfolioValues() {
+        return portfolioValues.stream().mapToDouble(BigDecimal::doubleValue).toArray();
+    }
+
+    @Override
+    public double sharpeRatio() {
+        BigDecimal averageReturn = dailyReturns.stream().reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(BigDecimal.valueOf(dailyReturns.size()), MathContext.DECIMAL128);
+        BigDecimal variance = dailyReturns.stream()
+                .map(r -> r.subtract(averageReturn).pow(2))
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(BigDecimal.valueOf(dailyReturns.size()), MathContext.DECIMAL128);
+        BigDecimal standardDeviation = BigDecimal.valueOf(Math.sqrt(variance.doubleValue()));
+        return averageReturn.divide(standardDeviation, MathContext.DECIMAL128).doubleValue();
+    }
+
+    @Override
+    public double accuracy() {
+        return dailyReturns.stream()
+                .map(r -> r.compareTo(BigDecimal.ZERO) > 0 ? BigDecimal.ONE : BigDecimal.ZERO)
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(BigDecimal.valueOf(dailyReturns.size()), MathContext.DECIMAL128)
+                .doubleValue();
+    }
+}
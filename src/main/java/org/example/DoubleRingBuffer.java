@@ -0,0 +1,85 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+// Fixed-capacity FIFO of doubles; the indicators keep only their window in one of these.
+public final class DoubleRingBuffer {
+    private final double[] values;
+    private int head;
+    private int size;
+
+    public DoubleRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.values = new double[capacity];
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == values.length;
+    }
+
+    // Appends a value, overwriting the oldest one when full. Returns the overwritten value, or 0 when nothing was evicted.
+    public double add(double value) {
+        double evicted = 0.0;
+        if (size == values.length) {
+            evicted = values[head];
+        } else {
+            size++;
+        }
+        values[head] = value;
+        head = head + 1 == values.length ? 0 : head + 1;
+        return evicted;
+    }
+
+    // 0 is the oldest retained value, size() - 1 the newest.
+    public double get(int index) {
+        int start = size == values.length ? head : 0;
+        int i = start + index;
+        return values[i >= values.length ? i - values.length : i];
+    }
+
+    // True right after the write position wraps, which callers use to re-sum and shed rounding drift.
+    public boolean wrapped() {
+        return head == 0 && size == values.length;
+    }
+
+    public double sum() {
+        double sum = 0.0;
+        for (int i = 0; i < size; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    public int stateBytes() {
+        return 8 + 8 * values.length;
+    }
+
+    public void saveState(ByteBuffer out) {
+        out.putInt(head).putInt(size);
+        for (double value : values) out.putDouble(value);
+    }
+
+    public void restoreState(ByteBuffer in) {
+        head = in.getInt();
+        size = in.getInt();
+        if (head < 0 || head >= values.length || size < 0 || size > values.length) {
+            throw new IllegalArgumentException("Saved state doesn't fit a buffer of " + values.length);
+        }
+        for (int i = 0; i < values.length; i++) values[i] = in.getDouble();
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+}
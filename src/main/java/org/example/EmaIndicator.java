@@ -0,0 +1,81 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+// Exponential moving average with the same definition ExponentialMovingAverage has always used: seeded with
+// the simple average of the `window` bars before the current one, then smoothed over the last `window` closes.
+// That value is seed * beta^window + sum(alpha * beta^k * close[t - k], k < window), so both terms are kept
+// incrementally and each bar costs O(1) instead of replaying the window.
+public final class EmaIndicator implements StatefulIndicator {
+    private final int window;
+    private final double alpha;
+    private final double beta;
+    private final double betaPowWindow;
+    private final DoubleRingBuffer prices;
+    private double seedSum;
+    private double smoothed;
+    private double value;
+
+    public EmaIndicator(int window) {
+        this.window = window;
+        this.alpha = 2.0 / (window + 1);
+        this.beta = 1.0 - alpha;
+        this.betaPowWindow = Math.pow(beta, window);
+        // One extra slot: the seed window ends the bar before the smoothing window does
+        this.prices = new DoubleRingBuffer(window + 1);
+    }
+
+    @Override
+    public void update(double high, double low, double close) {
+        double evicted = prices.add(close);
+
+        // The close that just left the smoothing window drops out of the truncated sum
+        smoothed = alpha * close + beta * smoothed;
+        if (prices.size() > window) {
+            smoothed -= alpha * betaPowWindow * prices.get(0);
+        }
+
+        if (prices.size() > 1) {
+            seedSum += prices.get(prices.size() - 2) - evicted;
+        }
+        if (prices.wrapped()) {
+            seedSum = 0.0;
+            for (int i = 0; i < window; i++) {
+                seedSum += prices.get(i);
+            }
+        }
+
+        if (isReady()) {
+            value = betaPowWindow * (seedSum / window) + smoothed;
+        }
+    }
+
+    @Override
+    public double value() {
+        return value;
+    }
+
+    @Override
+    public boolean isReady() {
+        return prices.isFull();
+    }
+
+    @Override
+    public int stateBytes() {
+        return prices.stateBytes() + 24;
+    }
+
+    @Override
+    public void saveState(ByteBuffer out) {
+        prices.saveState(out);
+        out.putDouble(seedSum).putDouble(smoothed).putDouble(value);
+    }
+
+    @Override
+    public void restoreState(ByteBuffer in) {
+        prices.restoreState(in);
+        seedSum = in.getDouble();
+        smoothed = in.getDouble();
+        value = in.getDouble();
+    }
+}
@@ -0,0 +1,146 @@
+package org.example;
+
+import java.util.Objects;
+
+// How a BacktestEngine run turns orders into fills. Fills happen at the day's adjusted close, moved against
+// the order by slippageBps plus impact x the fill's share of the day's volume, and each fill pays
+// max(minCommission, commissionPerShare x shares + commissionBps of the notional). A symbol fills at most
+// maxParticipation of its day's volume; what is left stays in the OrderBook for up to maxPendingDays more
+// days (0: cancelled at the end of the day). IMMEDIATE is the engine's default: every order fills in full at
+// the close with no costs, without going through an order book.
+public final class ExecutionModel {
+    public static final ExecutionModel IMMEDIATE = new ExecutionModel(0, 0, 0, 0, 0, Double.POSITIVE_INFINITY, 0);
+
+    private final double commissionPerShare;
+    private final double commissionBps;
+    private final double minCommission;
+    private final double slippageBps;
+    private final double impact;
+    private final double maxParticipation;
+    private final int maxPendingDays;
+
+    public ExecutionModel(double commissionPerShare, double commissionBps, double minCommission, double slippageBps,
+                          double impact, double maxParticipation, int maxPendingDays) {
+        if (commissionPerShare < 0 || commissionBps < 0 || minCommission < 0 || slippageBps < 0 || impact < 0) {
+            throw new IllegalArgumentException("Costs must not be negative");
+        }
+        if (!(maxParticipation > 0)) {
+            throw new IllegalArgumentException("Participation must be positive: " + maxParticipation);
+        }
+        if (maxPendingDays < 0) {
+            throw new IllegalArgumentException("Pending days must not be negative: " + maxPendingDays);
+        }
+        this.commissionPerShare = commissionPerShare;
+        this.commissionBps = commissionBps;
+        this.minCommission = minCommission;
+        this.slippageBps = slippageBps;
+        this.impact = impact;
+        this.maxParticipation = maxParticipation;
+        this.maxPendingDays = maxPendingDays;
+    }
+
+    // Comma-separated key=value pairs over IMMEDIATE, e.g. "commission=0.005,bps=1,min=1,slippage=5,impact=0.1,
+    // participation=0.1,pending=5"; "immediate" alone is IMMEDIATE
+    public static ExecutionModel parse(String value) {
+        if (value.equalsIgnoreCase("immediate")) {
+            return IMMEDIATE;
+        }
+        double commissionPerShare = 0, commissionBps = 0, minCommission = 0, slippageBps = 0, impact = 0;
+        double maxParticipation = Double.POSITIVE_INFINITY;
+        int maxPendingDays = 0;
+        for (String pair : value.split(",")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + pair);
+            }
+            String number = pair.substring(eq + 1).trim();
+            switch (pair.substring(0, eq).trim()) {
+                case "commission":
+                    commissionPerShare = Double.parseDouble(number);
+                    break;
+                case "bps":
+                    commissionBps = Double.parseDouble(number);
+                    break;
+                case "min":
+                    minCommission = Double.parseDouble(number);
+                    break;
+                case "slippage":
+                    slippageBps = Double.parseDouble(number);
+                    break;
+                case "impact":
+                    impact = Double.parseDouble(number);
+                    break;
+                case "participation":
+                    maxParticipation = Double.parseDouble(number);
+                    break;
+                case "pending":
+                    maxPendingDays = Integer.parseInt(number);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown execution setting: " + pair);
+            }
+        }
+        return new ExecutionModel(commissionPerShare, commissionBps, minCommission, slippageBps, impact,
+                maxParticipation, maxPendingDays);
+    }
+
+    public boolean isImmediate() {
+        return equals(IMMEDIATE);
+    }
+
+    public double getCommissionPerShare() { return commissionPerShare; }
+    public double getCommissionBps() { return commissionBps; }
+    public double getMinCommission() { return minCommission; }
+    public double getSlippageBps() { return slippageBps; }
+    public double getImpact() { return impact; }
+    public double getMaxParticipation() { return maxParticipation; }
+    public int getMaxPendingDays() { return maxPendingDays; }
+
+    // Largest fill the symbol's volume allows on one day
+    public long capacity(long volume) {
+        if (maxParticipation == Double.POSITIVE_INFINITY) {
+            return Long.MAX_VALUE;
+        }
+        double shares = Math.floor(maxParticipation * volume);
+        return shares >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) shares;
+    }
+
+    // Price per share of a fill of `shares` (positive to buy, negative to sell) against the day's volume
+    public double fillPrice(double close, long shares, long volume) {
+        double participation = volume > 0 ? (double) Math.abs(shares) / volume : 0;
+        double move = slippageBps / 10_000 + impact * participation;
+        return shares > 0 ? close * (1 + move) : close * (1 - move);
+    }
+
+    public double commission(long shares, double price) {
+        long quantity = Math.abs(shares);
+        return Math.max(minCommission, commissionPerShare * quantity + commissionBps / 10_000 * quantity * price);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ExecutionModel)) return false;
+        ExecutionModel that = (ExecutionModel) o;
+        return Double.compare(commissionPerShare, that.commissionPerShare) == 0
+                && Double.compare(commissionBps, that.commissionBps) == 0
+                && Double.compare(minCommission, that.minCommission) == 0
+                && Double.compare(slippageBps, that.slippageBps) == 0
+                && Double.compare(impact, that.impact) == 0
+                && Double.compare(maxParticipation, that.maxParticipation) == 0
+                && maxPendingDays == that.maxPendingDays;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(commissionPerShare, commissionBps, minCommission, slippageBps, impact, maxParticipation,
+                maxPendingDays);
+    }
+
+    @Override
+    public String toString() {
+        return isImmediate() ? "immediate" : "commission=" + commissionPerShare + " bps=" + commissionBps
+                + " min=" + minCommission + " slippage=" + slippageBps + " impact=" + impact
+                + " participation=" + maxParticipation + " pending=" + maxPendingDays;
+    }
+}
@@ -1,174 +1,143 @@
 package org.example;
 
-import java.math.BigDecimal;
-import java.math.MathContext;
-import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
-import static org.example.SimpleMovingAverage.calculateMaxDrawdown;
-
-public class ExponentialMovingAverage {
-
-    private static final double INITIAL_CAPITAL = 1_000_000.0;
+// EMA crossover filtered by RSI, with positions sized so that an ATR-based stop risks a fixed share of the portfolio.
+// Given a pool, each day's signals and risk-sized share counts are computed for ranges of the universe in parallel
+// (see CrossSection); the trades are then applied serially in symbol order, as pooled cash is spent by each buy,
+// so results are identical whatever the pool size.
+public class ExponentialMovingAverage implements Strategy {
     private static final double RISK_PER_TRADE = 0.005;
 
-    private static BigDecimal calculateEMA(List<StockData> stockData, int endIndex, int window) {
-        BigDecimal multiplier = BigDecimal.valueOf(2.0 / (window + 1));
+    private final StrategyParameters parameters;
+    // null to run the cross-section on the engine's thread
+    private final ForkJoinPool pool;
+    private int[] symbols;
+    // Risk-sized shares per symbol of the day being sized
+    private long[] riskShares;
+    private Indicator[] shortEMA;
+    private Indicator[] longEMA;
+    private Indicator[] rsi;
+    private Indicator[] atr;
+
+    public ExponentialMovingAverage(StrategyParameters parameters) {
+        this(parameters, null);
+    }
 
-        BigDecimal ema = stockData.stream()
-                .map(StockData::getAdjClose)
-                .skip(endIndex - window)
-                .limit(window)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(window), MathContext.DECIMAL128);
+    public ExponentialMovingAverage(StrategyParameters parameters, ForkJoinPool pool) {
+        this.parameters = parameters;
+        this.pool = pool;
+    }
 
-        for (int i = endIndex - window + 1; i <= endIndex; i++) {
-            BigDecimal price = stockData.get(i).getAdjClose();
-            ema = price.multiply(multiplier).add(ema.multiply(BigDecimal.ONE.subtract(multiplier)));
-        }
+    // Pure function of the loaded data and parameters, so it can run concurrently over a shared StockDataManager
+    public static BacktestResult simulate(StockDataManager dataManager, StrategyParameters parameters) {
+        return simulate(dataManager, parameters, ArithmeticMode.FIXED_POINT);
+    }
 
-        return ema;
+    public static BacktestResult simulate(StockDataManager dataManager, StrategyParameters parameters, ArithmeticMode arithmetic) {
+        return new BacktestEngine(dataManager, arithmetic).run(new ExponentialMovingAverage(parameters));
     }
 
-    private static BigDecimal calculateRSI(List<StockData> stockData, int endIndex, int period) {
-        BigDecimal gainSum = BigDecimal.ZERO;
-        BigDecimal lossSum = BigDecimal.ZERO;
+    public static BacktestResult simulate(StockDataManager dataManager, StrategyParameters parameters, ArithmeticMode arithmetic,
+                                          ExecutionModel execution) {
+        return new BacktestEngine(dataManager, BacktestEngine.DEFAULT_INITIAL_CAPITAL, arithmetic, execution)
+                .run(new ExponentialMovingAverage(parameters));
+    }
 
-        for (int i = endIndex - period + 1; i <= endIndex; i++) {
-            BigDecimal change = stockData.get(i).getAdjClose().subtract(stockData.get(i - 1).getAdjClose());
-            if (change.compareTo(BigDecimal.ZERO) > 0) {
-                gainSum = gainSum.add(change);
-            } else {
-                lossSum = lossSum.add(change.abs());
-            }
-        }
+    public static BacktestResult simulate(StockDataManager dataManager, StrategyParameters parameters, ArithmeticMode arithmetic,
+                                          ExecutionModel execution, ForkJoinPool pool) {
+        return new BacktestEngine(dataManager, BacktestEngine.DEFAULT_INITIAL_CAPITAL, arithmetic, execution)
+                .run(new ExponentialMovingAverage(parameters, pool));
+    }
 
-        if (lossSum.compareTo(BigDecimal.ZERO) == 0) {
-            return BigDecimal.valueOf(100); // Max RSI if no losses
-        }
+    @Override
+    public String getName() {
+        return "ExponentialMovingAverage";
+    }
 
-        BigDecimal avgGain = gainSum.divide(BigDecimal.valueOf(period), MathContext.DECIMAL128);
-        BigDecimal avgLoss = lossSum.divide(BigDecimal.valueOf(period), MathContext.DECIMAL128);
+    @Override
+    public StrategyParameters getParameters() {
+        return parameters;
+    }
 
-        BigDecimal rs = avgGain.divide(avgLoss, MathContext.DECIMAL128);
-        return BigDecimal.valueOf(100).subtract(BigDecimal.valueOf(100).divide(rs.add(BigDecimal.ONE), MathContext.DECIMAL128));
+    @Override
+    public int warmupDays() {
+        return parameters.warmupBars();
     }
 
-    private static BigDecimal calculateATR(List<StockData> stockData, int endIndex, int period) {
-        BigDecimal atrSum = BigDecimal.ZERO;
+    @Override
+    public void initialize(MarketPanel panel, Universe universe, IndicatorBank indicators) {
+        symbols = universe.symbols();
+        shortEMA = indicators.ema(parameters.getShortWindow());
+        longEMA = indicators.ema(parameters.getLongWindow());
+        rsi = indicators.rsi(parameters.getRsiPeriod());
+        atr = indicators.atr(parameters.getAtrPeriod());
+        riskShares = new long[panel.symbolCount()];
+    }
 
-        for (int i = endIndex - period + 1; i <= endIndex; i++) {
-            BigDecimal highLow = stockData.get(i).getHigh().subtract(stockData.get(i).getLow());
-            BigDecimal highPrevClose = stockData.get(i).getHigh().subtract(stockData.get(i - 1).getAdjClose()).abs();
-            BigDecimal lowPrevClose = stockData.get(i).getLow().subtract(stockData.get(i - 1).getAdjClose()).abs();
+    // Generate signals with RSI and EMA-based conditions, only for stocks trading today
+    @Override
+    public void generateSignals(MarketPanel panel, int d, int[] signals) {
+        CrossSection.forEach(pool, symbols.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int s = symbols[i];
+                signals[s] = 0; // Hold
+                if (!panel.isObserved(d, s) || !longEMA[s].isReady() || !shortEMA[s].isReady()
+                        || !rsi[s].isReady() || !atr[s].isReady()) continue;
+
+                signals[s] = signal(shortEMA[s].value(), longEMA[s].value(), rsi[s].value());
+            }
+        });
+    }
 
-            BigDecimal trueRange = highLow.max(highPrevClose).max(lowPrevClose);
-            atrSum = atrSum.add(trueRange);
+    // The signal rule on its own, shared with LiveSignalEngine: 1 buy, -1 sell, 0 hold
+    public static int signal(double shortValue, double longValue, double rsiValue) {
+        if (shortValue > longValue && rsiValue > 30) {
+            return 1; // Buy signal
+        } else if (shortValue < longValue && rsiValue < 70) {
+            return -1; // Sell signal
         }
-
-        return atrSum.divide(BigDecimal.valueOf(period), MathContext.DECIMAL128);
+        return 0;
     }
 
-    private static void simulate(int shortWindow, int longWindow) {
-        StockDataManager dataManager = new StockDataManager();
-        dataManager.loadHistoricalDataFromCSV("stock_data/consolidated_stock_data.csv");
-        List<String> stocks = dataManager.getStocks();
-
-        BigDecimal cash = BigDecimal.valueOf(INITIAL_CAPITAL);
-        Map<String, Long> portfolio = new HashMap<>();
-        Map<String, BigDecimal> closingPrice = new HashMap<>();
-        List<BigDecimal> dailyReturns = new ArrayList<>();
-        List<BigDecimal> portfolioValues = new ArrayList<>();
-        BigDecimal portfolioValue = cash;
-
-        for (int i = longWindow; i < dataManager.getHistoricalData(stocks.get(0)).size(); i++) {
-            Map<String, Integer> signals = new HashMap<>();
-
-            // Generate signals with RSI and EMA-based conditions
-            for (String stock : stocks) {
-                List<StockData> stockData = dataManager.getHistoricalData(stock);
-                closingPrice.put(stock, stockData.get(i).getAdjClose());
-
-                BigDecimal shortEMA = calculateEMA(stockData, i, shortWindow);
-                BigDecimal longEMA = calculateEMA(stockData, i, longWindow);
-
-                BigDecimal rsi = calculateRSI(stockData, i, 14); // 14-day RSI
-
-                if (shortEMA.compareTo(longEMA) > 0 && rsi.compareTo(BigDecimal.valueOf(30)) > 0) {
-                    signals.put(stock, 1); // Buy signal
-                } else if (shortEMA.compareTo(longEMA) < 0 && rsi.compareTo(BigDecimal.valueOf(70)) < 0) {
-                    signals.put(stock, -1); // Sell signal
-                } else {
-                    signals.put(stock, 0); // Hold
-                }
+    // Adjust positions with volatility-based sizing
+    @Override
+    public void sizePositions(MarketPanel panel, int d, int[] signals, Portfolio portfolio) {
+        // Risk RISK_PER_TRADE of the portfolio against a stop atrMultiplier ATRs away. This only reads the value
+        // of the last mark, which no trade of the day changes, so every symbol can be sized independently.
+        CrossSection.forEach(pool, symbols.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int s = symbols[i];
+                if (signals[s] == 0) continue;
+                riskShares[s] = portfolio.riskSizedShares(RISK_PER_TRADE, atr[s].value(),
+                        parameters.getAtrMultiplier(), panel.adjClose(d, s));
             }
+        });
 
-            // Adjust positions with volatility-based sizing
-            for (String stock : stocks) {
-                BigDecimal atr = calculateATR(dataManager.getHistoricalData(stock), i, 14);
-                BigDecimal price = closingPrice.get(stock);
-
-                BigDecimal riskAmount = portfolioValue.multiply(BigDecimal.valueOf(RISK_PER_TRADE));
-                BigDecimal stopLossDistance = atr.multiply(BigDecimal.valueOf(3));
-
-                long maxSharesBasedOnRisk = riskAmount
-                        .divide(stopLossDistance, MathContext.DECIMAL128)
-                        .divide(price, MathContext.DECIMAL128)
-                        .longValue();
-
-                if (signals.get(stock) == 1) {
-                    long affordableShares = cash.divideToIntegralValue(price).longValue();
-                    long sharesToBuy = Math.min(maxSharesBasedOnRisk, affordableShares);
-
-                    if (sharesToBuy > 0) {
-                        cash = cash.subtract(price.multiply(BigDecimal.valueOf(sharesToBuy)));
-                        portfolio.put(stock, portfolio.getOrDefault(stock, 0L) + sharesToBuy);
-                    }
-                } else if (signals.get(stock) == -1) {
-                    long currentHoldings = portfolio.getOrDefault(stock, 0L);
-                    cash = cash.add(price.multiply(BigDecimal.valueOf(maxSharesBasedOnRisk)));
-                    portfolio.put(stock, currentHoldings - maxSharesBasedOnRisk);
-                }
-            }
+        for (int s : symbols) {
+            if (signals[s] == 0) continue;
+            double price = panel.adjClose(d, s);
+            long maxSharesBasedOnRisk = riskShares[s];
 
-            BigDecimal newPortfolioValue = cash;
-            for (String stock : stocks) {
-                BigDecimal currentHolding = BigDecimal.valueOf(portfolio.getOrDefault(stock, 0L));
-                newPortfolioValue = newPortfolioValue.add(currentHolding.multiply(closingPrice.get(stock)));
-            }
+            if (signals[s] == 1) {
+                long affordableShares = portfolio.affordableShares(s, price);
+                long sharesToBuy = Math.min(maxSharesBasedOnRisk, affordableShares);
 
-            BigDecimal dailyReturn = newPortfolioValue.subtract(portfolioValue).divide(portfolioValue, MathContext.DECIMAL128);
-            dailyReturns.add(dailyReturn);
-            portfolioValue = newPortfolioValue;
-            portfolioValues.add(portfolioValue);
+                if (sharesToBuy > 0) {
+                    portfolio.buy(s, sharesToBuy, price);
+                }
+            } else if (maxSharesBasedOnRisk > 0) {
+                portfolio.sell(s, maxSharesBasedOnRisk, price);
+            }
         }
-
-        // Calculate Sharpe ratio
-        BigDecimal averageReturn = dailyReturns.stream().reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(dailyReturns.size()), MathContext.DECIMAL128);
-        BigDecimal variance = dailyReturns.stream()
-                .map(r -> r.subtract(averageReturn).pow(2))
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(dailyReturns.size()), MathContext.DECIMAL128);
-        BigDecimal standardDeviation = BigDecimal.valueOf(Math.sqrt(variance.doubleValue()));
-        BigDecimal sharpeRatio = averageReturn.divide(standardDeviation, MathContext.DECIMAL128);
-
-        // Linear regression on market returns
-        double[] coefficients = dataManager.performRegression(dailyReturns, longWindow);
-
-        System.out.printf("Backtest Results using shortWindow = %d and longWindow = %d%n", shortWindow, longWindow);
-        System.out.printf("Initial Capital: $%.6f%n", INITIAL_CAPITAL);
-        System.out.printf("Final Capital: $%.6f%n", portfolioValue);
-        System.out.printf("Linear Regression coefficients: %.6f, %.6f%n", coefficients[0], coefficients[1]);
-        System.out.printf("Accuracy of trading signal: %.6f%n", dailyReturns.stream()
-                .map(r -> r.compareTo(BigDecimal.ZERO) > 0 ? BigDecimal.ONE : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(dailyReturns.size()), MathContext.DECIMAL128)
-                .doubleValue());
-        System.out.printf("Maximum Drawdown : %.6f%n", calculateMaxDrawdown(portfolioValues.stream().map(BigDecimal::doubleValue).toList()));
-        System.out.printf("Annualized Sharpe Ratio: %.6f%n%n", sharpeRatio.doubleValue()*Math.sqrt(252));
     }
 
+    // Usage: ExponentialMovingAverage [fixed|decimal]
     public static void main(String[] args) {
-        simulate(10, 50);
+        ArithmeticMode arithmetic = args.length > 0 ? ArithmeticMode.parse(args[0]) : ArithmeticMode.FIXED_POINT;
+        StockDataManager dataManager = new StockDataManager();
+        dataManager.loadHistoricalDataFromCSV("stock_data/consolidated_stock_data.csv");
+        simulate(dataManager, new StrategyParameters(10, 50, 14, 3.0), arithmetic).print(System.out);
+        RunProfiler.report("ExponentialMovingAverage " + arithmetic, RunProfiler.defaultReportPath(), System.out);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,174 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+// ArithmeticMode.FIXED_POINT: cash, prices and values as longs of 1e-6 units, returns and sizing in double.
+// See ArithmeticMode for the accuracy contract.
+public final class FixedPointPortfolio extends Portfolio {
+    public static final int SCALE_DIGITS = 6;
+    public static final long SCALE = 1_000_000L;
+
+    private final long[] cash;
+    private final long[] lastPrice;
+    private long value;
+    private final long initialValue;
+    private final long[] values;
+    private final double[] dailyReturns;
+    private final double[] portfolioValues;
+    private int days;
+
+    public FixedPointPortfolio(Allocation allocation, int symbolCount, Universe universe, double initialCapital) {
+        this(allocation, symbolCount, universe, initialCapital, universe.size());
+    }
+
+    public FixedPointPortfolio(Allocation allocation, int symbolCount, Universe universe, double initialCapital,
+                               int sleeves) {
+        super(allocation, symbolCount, universe, initialCapital);
+        if (allocation == Allocation.PER_SYMBOL) {
+            cash = new long[symbolCount];
+            for (int s : members) {
+                cash[s] = toUnits(initialCapital / sleeves);
+            }
+        } else {
+            cash = new long[]{toUnits(initialCapital)};
+        }
+        lastPrice = new long[symbolCount];
+        Arrays.fill(lastPrice, -1);
+        value = totalCash();
+        initialValue = value;
+        values = new long[universe.dayCount()];
+        dailyReturns = new double[universe.dayCount()];
+        portfolioValues = new double[universe.dayCount()];
+    }
+
+    // Nearest multiple of 1e-6
+    public static long toUnits(double amount) {
+        double units = Math.rint(amount * SCALE);
+        if (Math.abs(units) >= 0x1p63) {
+            throw new ArithmeticException("Amount out of fixed-point range: " + amount);
+        }
+        return (long) units;
+    }
+
+    // Cash available to trade symbol s, in 1e-6 units
+    public long cash(int s) {
+        return cash[account(s)];
+    }
+
+    @Override
+    public double availableCash(int s) {
+        return (double) cash(s) / SCALE;
+    }
+
+    @Override
+    public long affordableShares(int s, double price) {
+        return Math.max(0, cash(s) / toUnits(price));
+    }
+
+    @Override
+    public long riskSizedShares(double riskFraction, double stopDistance, double stopMultiplier, double price) {
+        return (long) ((double) value / SCALE * riskFraction / (stopDistance * stopMultiplier) / price);
+    }
+
+    @Override
+    protected void executeBuy(int s, long shares, double price) {
+        if (RunProfiler.ENABLED && shares > 0) RunProfiler.count(RunProfiler.Counter.TRADES_EXECUTED, 1);
+        int account = account(s);
+        cash[account] = Math.subtractExact(cash[account], Math.multiplyExact(toUnits(price), shares));
+        positions[s] += shares;
+    }
+
+    @Override
+    protected void executeSell(int s, long shares, double price) {
+        if (RunProfiler.ENABLED && shares > 0) RunProfiler.count(RunProfiler.Counter.TRADES_EXECUTED, 1);
+        int account = account(s);
+        cash[account] = Math.addExact(cash[account], Math.multiplyExact(toUnits(price), shares));
+        positions[s] -= shares;
+    }
+
+    @Override
+    protected void charge(int s, double amount) {
+        int account = account(s);
+        cash[account] = Math.subtractExact(cash[account], toUnits(amount));
+    }
+
+    public long totalCash() {
+        if (allocation != Allocation.PER_SYMBOL) {
+            return cash[0];
+        }
+        long total = 0;
+        for (int s : members) {
+            total = Math.addExact(total, cash[s]);
+        }
+        return total;
+    }
+
+    @Override
+    public void markToMarket(MarketPanel panel, int d) {
+        long total = totalCash();
+        for (int s : members) {
+            if (panel.hasPrice(d, s)) {
+                lastPrice[s] = toUnits(panel.adjClose(d, s));
+            }
+            if (positions[s] != 0) {
+                total = Math.addExact(total, Math.multiplyExact(positions[s], lastPrice[s]));
+            }
+        }
+        dailyReturns[days] = (double) (total - value) / value;
+        values[days] = total;
+        portfolioValues[days] = (double) total / SCALE;
+        days++;
+        value = total;
+    }
+
+    // Cash before the first mark and the marked values, in 1e-6 units: exact, so the values of partitions of a
+    // universe add up to those of the whole
+    public long initialValueUnits() {
+        return initialValue;
+    }
+
+    public long[] valueUnits() {
+        return Arrays.copyOf(values, days);
+    }
+
+    @Override
+    public BigDecimal getValue() {
+        return BigDecimal.valueOf(value, SCALE_DIGITS);
+    }
+
+    @Override
+    public double[] dailyReturns() {
+        return Arrays.copyOf(dailyReturns, days);
+    }
+
+    @Override
+    public double[] portfolioValues() {
+        return Arrays.copyOf(portfolioValues, days);
+    }
+
+    @Override
+    public double sharpeRatio() {
+        double mean = 0;
+        for (int i = 0; i < days; i++) {
+            mean += dailyReturns[i];
+        }
+        mean /= days;
+        double variance = 0;
+        for (int i = 0; i < days; i++) {
+            double deviation = dailyReturns[i] - mean;
+            variance += deviation * deviation;
+        }
+        variance /= days;
+        return mean / Math.sqrt(variance);
+    }
+
+    @Override
+    public double accuracy() {
+        int positive = 0;
+        for (int i = 0; i < days; i++) {
+            if (dailyReturns[i] > 0) positive++;
+        }
+        return (double) positive / days;
+    }
+}
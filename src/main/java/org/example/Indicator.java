@@ -0,0 +1,15 @@
+package org.example;
+
+// Streaming indicator: fed one bar at a time in date order, O(1) work per bar.
+public interface Indicator {
+    void update(double high, double low, double close);
+
+    // Only meaningful once isReady() returns true.
+    double value();
+
+    boolean isReady();
+
+    default void update(PriceSeries series, int index) {
+        update(series.high(index), series.low(index), series.adjClose(index));
+    }
+}
@@ -0,0 +1,98 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Per-symbol indicator instances for one engine run, keyed by what they compute. Each distinct indicator is
+// advanced once per observed bar however many strategies read it. With an IndicatorCache the instances replay
+// cached series, and only series the cache doesn't hold for these bars yet are computed, when first requested.
+public final class IndicatorBank {
+    private final int symbolCount;
+    private final Map<String, Indicator[]> byKey = new HashMap<>();
+    private final List<Indicator[]> all = new ArrayList<>();
+    private final MarketPanel panel;
+    private final IndicatorCache cache;
+    // IndicatorCache.prefixFingerprints per symbol, computed on first request and dropped at the first update
+    private long[][] fingerprints;
+
+    public IndicatorBank(int symbolCount) {
+        this.symbolCount = symbolCount;
+        this.panel = null;
+        this.cache = null;
+    }
+
+    public IndicatorBank(MarketPanel panel, IndicatorCache cache) {
+        this.symbolCount = panel.symbolCount();
+        this.panel = panel;
+        this.cache = cache;
+    }
+
+    // Returns the indicators registered under key, creating one per symbol on first request
+    public Indicator[] get(String key, Supplier<Indicator> factory) {
+        Indicator[] indicators = byKey.get(key);
+        if (indicators == null) {
+            indicators = new Indicator[symbolCount];
+            for (int s = 0; s < symbolCount; s++) {
+                indicators[s] = cache == null ? factory.get() : cache.indicator(panel, s, fingerprints(s), key, factory);
+            }
+            byKey.put(key, indicators);
+            all.add(indicators);
+        }
+        return indicators;
+    }
+
+    public Indicator[] sma(int window) {
+        return get("SMA(" + window + ")", () -> new SmaIndicator(window));
+    }
+
+    // Simple average ending the day before the current bar
+    public Indicator[] laggedSma(int window) {
+        return get("LaggedSMA(" + window + ")", () -> new LaggedIndicator(new SmaIndicator(window)));
+    }
+
+    public Indicator[] ema(int window) {
+        return get("EMA(" + window + ")", () -> new EmaIndicator(window));
+    }
+
+    public Indicator[] rsi(int period) {
+        return get("RSI(" + period + ")", () -> new RsiIndicator(period));
+    }
+
+    public Indicator[] atr(int period) {
+        return get("ATR(" + period + ")", () -> new AtrIndicator(period));
+    }
+
+    public int size() {
+        return all.size();
+    }
+
+    private long[] fingerprints(int s) {
+        if (fingerprints == null) {
+            fingerprints = new long[symbolCount][];
+        }
+        if (fingerprints[s] == null) {
+            fingerprints[s] = IndicatorCache.prefixFingerprints(panel, s);
+        }
+        return fingerprints[s];
+    }
+
+    // Feeds day d's bar to every indicator of the symbols observed on that day
+    public void update(MarketPanel panel, int d) {
+        fingerprints = null;
+        int observed = 0;
+        for (int s = 0; s < symbolCount; s++) {
+            if (!panel.isObserved(d, s)) continue;
+            observed++;
+            double high = panel.high(d, s);
+            double low = panel.low(d, s);
+            double close = panel.adjClose(d, s);
+            for (Indicator[] indicators : all) {
+                indicators[s].update(high, low, close);
+            }
+        }
+        if (RunProfiler.ENABLED) RunProfiler.count(RunProfiler.Counter.BARS_PROCESSED, observed);
+    }
+}
@@ -0,0 +1,342 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Two-tier cache of indicator series, keyed by ticker, the IndicatorBank key (indicator and parameters) and a
+// fingerprint of the bars the indicator was fed: an LRU of double[] series bounded by their total length, over
+// an optional directory of one memory-mapped file per series. A series holds the value after every observed
+// bar, the first bar it was ready on and the indicator's saved state after the last bar. When the ticker's bars
+// start with the cached ones, only the appended bars are computed, from that state; any other change to the
+// bars recomputes the series. Indicators that aren't StatefulIndicators have no state to save, so their series
+// are only kept in memory.
+//
+// The fingerprint is a hash of every prefix of the ticker's bars (epoch day, high, low, adjusted close), so
+// checking an entry costs one pass over the bars per ticker and IndicatorBank, shared by all its indicators.
+// Lookups are thread-safe; two threads missing on the same series may both compute it.
+public final class IndicatorCache {
+    private static final int MAGIC = 0x43414349; // "ICAC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    public static final long DEFAULT_CACHED_VALUES = 8_000_000;
+
+    // Values after every bar, the first index whose value is ready, and the state after the last bar
+    private static final class Entry {
+        final int bars;
+        final long fingerprint;
+        final double[] values;
+        final int firstReady;
+        final byte[] state;
+
+        Entry(int bars, long fingerprint, double[] values, int firstReady, byte[] state) {
+            this.bars = bars;
+            this.fingerprint = fingerprint;
+            this.values = values;
+            this.firstReady = firstReady;
+            this.state = state;
+        }
+    }
+
+    // Replays a cached series: each update moves to the value after the next bar
+    private static final class CachedIndicator implements Indicator {
+        private final double[] values;
+        private final int firstReady;
+        private int next;
+
+        CachedIndicator(double[] values, int firstReady) {
+            this.values = values;
+            this.firstReady = firstReady;
+        }
+
+        @Override
+        public void update(double high, double low, double close) {
+            next++;
+        }
+
+        @Override
+        public double value() {
+            return next == 0 ? 0.0 : values[next - 1];
+        }
+
+        @Override
+        public boolean isReady() {
+            return next > firstReady;
+        }
+    }
+
+    private final long maxValues;
+    private final Path directory;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long values;
+    private long memoryHits;
+    private long diskHits;
+    private long extensions;
+    private long misses;
+    private long evictions;
+    private long computedBars;
+
+    // directory may be null for a memory-only cache
+    public IndicatorCache(long maxValues, Path directory) throws IOException {
+        if (maxValues <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive, got " + maxValues);
+        }
+        this.maxValues = maxValues;
+        this.directory = directory;
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+    }
+
+    // Hash after each prefix of symbol s's observed bars: prefixes[n] covers the first n
+    public static long[] prefixFingerprints(MarketPanel panel, int s) {
+        int bars = 0;
+        for (int d = 0; d < panel.dayCount(); d++) {
+            if (panel.isObserved(d, s)) bars++;
+        }
+        long[] prefixes = new long[bars + 1];
+        long hash = 0x9E3779B97F4A7C15L;
+        int n = 0;
+        for (int d = 0; d < panel.dayCount(); d++) {
+            if (!panel.isObserved(d, s)) continue;
+            hash = mix(hash ^ panel.epochDay(d));
+            hash = mix(hash ^ Double.doubleToLongBits(panel.high(d, s)));
+            hash = mix(hash ^ Double.doubleToLongBits(panel.low(d, s)));
+            hash = mix(hash ^ Double.doubleToLongBits(panel.adjClose(d, s)));
+            prefixes[++n] = hash;
+        }
+        return prefixes;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // An indicator for symbol s that replays its cached series, computing or extending the series first if needed.
+    // prefixes are s's prefixFingerprints.
+    public Indicator indicator(MarketPanel panel, int s, long[] prefixes, String key, Supplier<Indicator> factory) {
+        String ticker = panel.symbol(s);
+        String name = ticker + '\u0000' + key;
+        int bars = prefixes.length - 1;
+
+        Entry cached;
+        synchronized (this) {
+            cached = entries.get(name);
+            if (cached != null && cached.bars == bars && cached.fingerprint == prefixes[bars]) {
+                memoryHits++;
+                return new CachedIndicator(cached.values, cached.firstReady);
+            }
+        }
+        boolean inMemory = cached != null;
+        if (!matches(cached, prefixes)) {
+            cached = read(ticker, key);
+            inMemory = false;
+        }
+
+        Entry entry;
+        if (matches(cached, prefixes) && cached.bars == bars) {
+            entry = cached;
+            synchronized (this) {
+                diskHits++;
+            }
+        } else {
+            Indicator indicator = factory.get();
+            int from = 0;
+            if (indicator instanceof StatefulIndicator && matches(cached, prefixes) && cached.state != null) {
+                StatefulIndicator stateful = (StatefulIndicator) indicator;
+                if (stateful.stateBytes() == cached.state.length) {
+                    stateful.restoreState(ByteBuffer.wrap(cached.state).order(ByteOrder.LITTLE_ENDIAN));
+                    from = cached.bars;
+                }
+            }
+            entry = compute(panel, s, prefixes, indicator, from == 0 ? null : cached);
+            synchronized (this) {
+                if (from == 0) misses++;
+                else extensions++;
+                computedBars += bars - from;
+            }
+            if (entry.state != null) {
+                write(ticker, key, entry);
+            }
+        }
+        if (!inMemory || entry != cached) {
+            put(name, entry);
+        }
+        return new CachedIndicator(entry.values, entry.firstReady);
+    }
+
+    // Whether the entry was computed from a prefix of these bars
+    private static boolean matches(Entry entry, long[] prefixes) {
+        return entry != null && entry.bars < prefixes.length && entry.fingerprint == prefixes[entry.bars];
+    }
+
+    // Feeds the bars after `from`'s to the indicator, whose state is already that after from's last bar
+    private static Entry compute(MarketPanel panel, int s, long[] prefixes, Indicator indicator, Entry from) {
+        int bars = prefixes.length - 1;
+        double[] values = new double[bars];
+        int n = 0;
+        int firstReady = -1;
+        if (from != null) {
+            System.arraycopy(from.values, 0, values, 0, from.bars);
+            n = from.bars;
+            if (from.firstReady < from.bars) firstReady = from.firstReady;
+        }
+        int skip = n;
+        for (int d = 0; d < panel.dayCount() && n < bars; d++) {
+            if (!panel.isObserved(d, s)) continue;
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            indicator.update(panel.high(d, s), panel.low(d, s), panel.adjClose(d, s));
+            values[n] = indicator.value();
+            if (firstReady < 0 && indicator.isReady()) firstReady = n;
+            n++;
+        }
+        if (firstReady < 0) firstReady = bars;
+        byte[] state = null;
+        if (indicator instanceof StatefulIndicator) {
+            StatefulIndicator stateful = (StatefulIndicator) indicator;
+            ByteBuffer buffer = ByteBuffer.allocate(stateful.stateBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            stateful.saveState(buffer);
+            state = buffer.array();
+        }
+        return new Entry(bars, prefixes[bars], values, firstReady, state);
+    }
+
+    private synchronized void put(String name, Entry entry) {
+        Entry previous = entries.put(name, entry);
+        if (previous != null) {
+            values -= previous.bars;
+        }
+        values += entry.bars;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (values > maxValues && entries.size() > 1) {
+            values -= eldest.next().getValue().bars;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    // File of one series: the ticker and key spelled out, then a hash of both against collisions
+    private Path file(String ticker, String key) {
+        String name = (ticker + "." + key).replaceAll("[^A-Za-z0-9._-]", "_");
+        long hash = mix(ticker.hashCode() * 31L + key.hashCode());
+        return directory.resolve(name + "." + Long.toHexString(hash) + ".ind");
+    }
+
+    // Returns null when there is no readable file for the series
+    private Entry read(String ticker, String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = file(ticker, key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.limit() < HEADER_BYTES || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+                return null;
+            }
+            int bars = mapped.getInt(8);
+            int firstReady = mapped.getInt(12);
+            long fingerprint = mapped.getLong(16);
+            int stateBytes = mapped.getInt(24);
+            int nameBytes = mapped.getInt(28);
+            byte[] name = new byte[nameBytes];
+            mapped.get(HEADER_BYTES, name);
+            if (!new String(name, StandardCharsets.UTF_8).equals(ticker + '\u0000' + key)) {
+                return null;
+            }
+            int valuesAt = align(HEADER_BYTES + nameBytes);
+            double[] values = new double[bars];
+            mapped.slice(valuesAt, bars * 8).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values);
+            byte[] state = new byte[stateBytes];
+            mapped.get(valuesAt + bars * 8, state);
+            return new Entry(bars, fingerprint, values, firstReady, state);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable indicator cache file " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private void write(String ticker, String key, Entry entry) {
+        if (directory == null) {
+            return;
+        }
+        Path file = file(ticker, key);
+        byte[] name = (ticker + '\u0000' + key).getBytes(StandardCharsets.UTF_8);
+        int valuesAt = align(HEADER_BYTES + name.length);
+        ByteBuffer buffer = ByteBuffer.allocate(valuesAt + entry.bars * 8 + entry.state.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(entry.bars).putInt(entry.firstReady).putLong(entry.fingerprint)
+                .putInt(entry.state.length).putInt(name.length).put(name);
+        buffer.position(valuesAt);
+        for (double value : entry.values) buffer.putDouble(value);
+        buffer.put(entry.state);
+        try {
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, buffer.array());
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // The files are only a cache, a read-only directory shouldn't stop the run
+            System.err.println("Could not write indicator cache file " + file + ": " + e);
+        }
+    }
+
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        values = 0;
+    }
+
+    public long getMaxValues() { return maxValues; }
+    public Path getDirectory() { return directory; }
+    public synchronized long getCachedValues() { return values; }
+    public synchronized int getCachedSeries() { return entries.size(); }
+    public synchronized long getMemoryHits() { return memoryHits; }
+    public synchronized long getDiskHits() { return diskHits; }
+    // Series extended with appended bars from their saved state
+    public synchronized long getExtensions() { return extensions; }
+    // Series computed from the first bar
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    // Bars fed to real indicators, by misses and extensions
+    public synchronized long getComputedBars() { return computedBars; }
+
+    // Share of lookups served without computing anything
+    public synchronized double getHitRate() {
+        long lookups = memoryHits + diskHits + extensions + misses;
+        return lookups == 0 ? 0 : (double) (memoryHits + diskHits) / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d series, %d of %d values cached, %d memory hits, %d disk hits, %d extended, "
+                        + "%d computed (hit rate %.1f%%, %d bars computed), %d evictions",
+                entries.size(), values, maxValues, memoryHits, diskHits, extensions, misses, 100 * getHitRate(),
+                computedBars, evictions);
+    }
+}
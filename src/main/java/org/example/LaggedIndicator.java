@@ -0,0 +1,52 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+// Reports the wrapped indicator's value as of the previous bar.
+// SimpleMovingAverage compares averages that end the day before the bar being traded.
+public final class LaggedIndicator implements StatefulIndicator {
+    private final StatefulIndicator delegate;
+    private double value;
+    private boolean ready;
+
+    public LaggedIndicator(StatefulIndicator delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void update(double high, double low, double close) {
+        ready = delegate.isReady();
+        if (ready) {
+            value = delegate.value();
+        }
+        delegate.update(high, low, close);
+    }
+
+    @Override
+    public double value() {
+        return value;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public int stateBytes() {
+        return delegate.stateBytes() + 9;
+    }
+
+    @Override
+    public void saveState(ByteBuffer out) {
+        delegate.saveState(out);
+        out.putDouble(value).put((byte) (ready ? 1 : 0));
+    }
+
+    @Override
+    public void restoreState(ByteBuffer in) {
+        delegate.restoreState(in);
+        value = in.getDouble();
+        ready = in.get() != 0;
+    }
+}
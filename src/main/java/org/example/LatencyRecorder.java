@@ -0,0 +1,49 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Collects latency samples in nanoseconds and reports exact percentiles.
+public final class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int count;
+    private boolean sorted = true;
+
+    public void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+        sorted = false;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    // p in [0, 100]; nearest-rank percentile
+    public long percentile(double p) {
+        if (count == 0) {
+            throw new IllegalStateException("No samples recorded");
+        }
+        if (!sorted) {
+            Arrays.sort(samples, 0, count);
+            sorted = true;
+        }
+        int rank = (int) Math.ceil(p / 100 * count);
+        return samples[Math.max(0, Math.min(count, rank) - 1)];
+    }
+
+    public double mean() {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        return sum / count;
+    }
+
+    public String summary() {
+        return String.format("p50 %8.2f us  p90 %8.2f us  p99 %8.2f us  p99.9 %8.2f us  max %9.2f us  (%d samples)",
+                percentile(50) / 1e3, percentile(90) / 1e3, percentile(99) / 1e3, percentile(99.9) / 1e3,
+                percentile(100) / 1e3, count);
+    }
+}
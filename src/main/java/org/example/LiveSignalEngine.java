@@ -0,0 +1,103 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+// The ExponentialMovingAverage signal rule run bar by bar against a live feed. Each symbol keeps only its four
+// streaming indicators, whose ring buffers hold a window of closes, so memory per symbol is bounded by the
+// windows rather than growing with the history, and each bar costs O(1).
+public class LiveSignalEngine {
+
+    public interface SignalListener {
+        // signal is 1 (buy), -1 (sell) or 0 (hold, including while the symbol is still warming up)
+        void onSignal(Bar bar, int signal);
+    }
+
+    private static final class SymbolState {
+        final Indicator shortEMA;
+        final Indicator longEMA;
+        final Indicator rsi;
+        final Indicator atr;
+        int lastDay = Integer.MIN_VALUE;
+
+        SymbolState(StrategyParameters parameters) {
+            shortEMA = new EmaIndicator(parameters.getShortWindow());
+            longEMA = new EmaIndicator(parameters.getLongWindow());
+            rsi = new RsiIndicator(parameters.getRsiPeriod());
+            atr = new AtrIndicator(parameters.getAtrPeriod());
+        }
+    }
+
+    private final StrategyParameters parameters;
+    private final Map<String, SymbolState> symbols = new HashMap<>();
+    private long barsProcessed;
+    private long barsRejected;
+
+    public LiveSignalEngine(StrategyParameters parameters) {
+        this.parameters = parameters;
+    }
+
+    // Advances the bar's symbol and returns its signal. A bar that isn't newer than the symbol's last one is
+    // a duplicate or arrived out of order; it is counted and ignored.
+    public int onBar(Bar bar) {
+        SymbolState state = symbols.get(bar.getTicker());
+        if (state == null) {
+            state = new SymbolState(parameters);
+            symbols.put(bar.getTicker(), state);
+        }
+        if (bar.getEpochDay() <= state.lastDay) {
+            barsRejected++;
+            return 0;
+        }
+        state.lastDay = bar.getEpochDay();
+        barsProcessed++;
+
+        double high = bar.getHigh();
+        double low = bar.getLow();
+        double close = bar.getAdjClose();
+        state.shortEMA.update(high, low, close);
+        state.longEMA.update(high, low, close);
+        state.rsi.update(high, low, close);
+        state.atr.update(high, low, close);
+
+        if (!state.longEMA.isReady() || !state.shortEMA.isReady() || !state.rsi.isReady() || !state.atr.isReady()) {
+            return 0;
+        }
+        return ExponentialMovingAverage.signal(state.shortEMA.value(), state.longEMA.value(), state.rsi.value());
+    }
+
+    // Processes bars until the source ends
+    public void run(BarSource source, SignalListener listener) throws IOException, InterruptedException {
+        Bar bar;
+        while ((bar = source.take()) != null) {
+            listener.onSignal(bar, onBar(bar));
+        }
+    }
+
+    public int symbolCount() { return symbols.size(); }
+    public long getBarsProcessed() { return barsProcessed; }
+    public long getBarsRejected() { return barsRejected; }
+
+    // Usage: LiveSignalEngine <csv> [--follow]
+    // Prints the buy and sell signals of the bars in the file, and with --follow keeps waiting for appended rows.
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: LiveSignalEngine <csv> [--follow]");
+        }
+        boolean follow = args.length > 1 && args[1].equals("--follow");
+        LiveSignalEngine engine = new LiveSignalEngine(StrategyParameters.DEFAULT);
+        try (BarSource source = new TailingCsvBarSource(Paths.get(args[0]), follow, 100)) {
+            engine.run(source, (bar, signal) -> {
+                if (signal != 0) {
+                    System.out.println(LocalDate.ofEpochDay(bar.getEpochDay()) + " " + bar.getTicker() + " "
+                            + (signal > 0 ? "BUY" : "SELL") + " at " + bar.getAdjClose());
+                }
+            });
+        }
+        System.out.println("Processed " + engine.getBarsProcessed() + " bars for " + engine.symbolCount()
+                + " symbols, ignored " + engine.getBarsRejected());
+    }
+}
@@ -0,0 +1,542 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Loads consolidated_stock_data.csv by memory-mapping it, cutting it into chunks at line boundaries and parsing
+// the chunks in parallel. Dates, prices and volumes are decoded straight from the mapped bytes; a String is only
+// created for the first occurrence of each ticker in a chunk, for lines that fail to parse and for the unusual
+// numbers that fall back to Double.parseDouble. Rows outside [startDate, endDate] are dropped as soon as their date
+// is read.
+//
+// Every price decodes to exactly the double Double.parseDouble returns. Mantissas below 2^53 with at most 22
+// decimals take one exact division. Longer ones of up to 18 significant digits and 18 decimals, such as the
+// 17-digit prices of the yfinance export and of SyntheticMarketData, take the nearest division and are then
+// checked against the exact halfway points to the neighbouring doubles in 128-bit integer arithmetic. The rest
+// (19 or more digits, exponents, NaN, ties at a halfway point) go through Double.parseDouble.
+public final class MappedCsvLoader {
+    private static final long TARGET_CHUNK_BYTES = 16L << 20;
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+    private static final double[] POWERS_OF_TEN = new double[23];
+    private static final long[] LONG_POWERS_OF_TEN = new long[19];
+    // compareToMidpoint result when the operands don't fit its 128-bit comparison
+    private static final int UNDECIDED = 2;
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+        LONG_POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < LONG_POWERS_OF_TEN.length; i++) {
+            LONG_POWERS_OF_TEN[i] = LONG_POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final int startDay;
+    private final int endDay;
+    private final ForkJoinPool pool;
+
+    public MappedCsvLoader(LocalDate startDate, LocalDate endDate) {
+        this(startDate, endDate, ForkJoinPool.commonPool());
+    }
+
+    public MappedCsvLoader(LocalDate startDate, LocalDate endDate, ForkJoinPool pool) {
+        this.startDay = (int) startDate.toEpochDay();
+        this.endDay = (int) endDate.toEpochDay();
+        this.pool = pool;
+    }
+
+    // Tickers are returned in the order of their first row in the file
+    public Map<String, PriceSeries> load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long dataStart = readHeader(channel, size);
+            long[] bounds = chunkBounds(channel, dataStart, size);
+
+            List<Callable<ChunkResult>> tasks = new ArrayList<>(bounds.length - 1);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                tasks.add(() -> parseChunk(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from)));
+            }
+
+            // Concatenate each ticker's rows in chunk order, which is file order
+            Map<String, List<PriceSeries.Builder>> parts = new LinkedHashMap<>();
+            for (Future<ChunkResult> future : pool.invokeAll(tasks)) {
+                ChunkResult chunk = get(future);
+                for (int i = 0; i < chunk.count; i++) {
+                    parts.computeIfAbsent(chunk.tickers[i], k -> new ArrayList<>()).add(chunk.builders[i]);
+                }
+            }
+
+            Map<String, PriceSeries> historicalData = new HashMap<>();
+            for (Map.Entry<String, List<PriceSeries.Builder>> entry : parts.entrySet()) {
+                List<PriceSeries.Builder> builders = entry.getValue();
+                PriceSeries.Builder merged = builders.get(0);
+                for (int i = 1; i < builders.size(); i++) {
+                    merged.addAll(builders.get(i));
+                }
+                historicalData.put(entry.getKey(), merged.sortByDate().build());
+            }
+            return historicalData;
+        }
+    }
+
+    // Decodes one ticker from the byte ranges [extents[2k], extents[2k + 1]) of an open CSV, which must start at
+    // line boundaries and be in file order; rows of other tickers in the ranges are skipped without being parsed.
+    // Consecutive ranges are mapped together, up to MAX_CHUNK_BYTES at a time, so a ticker whose rows are spread
+    // over thousands of ranges costs a few mappings rather than one per range. Used by CsvTickerIndex.
+    PriceSeries loadTicker(FileChannel channel, String ticker, long[] extents) throws IOException {
+        byte[] key = ticker.getBytes(StandardCharsets.UTF_8);
+        ChunkResult result = new ChunkResult();
+        for (int k = 0; k + 1 < extents.length; ) {
+            long windowStart = extents[k];
+            int last = k;
+            while (last + 3 < extents.length && extents[last + 3] - windowStart <= MAX_CHUNK_BYTES) {
+                last += 2;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                    extents[last + 1] - windowStart);
+            for (; k <= last; k += 2) {
+                parseRange(buffer, (int) (extents[k] - windowStart), (int) (extents[k + 1] - windowStart), key, result);
+            }
+        }
+        PriceSeries.Builder rows = result.find(ticker);
+        return (rows == null ? new PriceSeries.Builder(ticker, 1) : rows.sortByDate()).build();
+    }
+
+    private static ChunkResult get(Future<ChunkResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading CSV", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Failed to parse CSV chunk", e.getCause());
+        }
+    }
+
+    // Validates the header line and returns the offset of the first data row
+    static long readHeader(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        StringBuilder header = new StringBuilder();
+        long position = 0;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    BufferedCsvLoader.validateHeader(stripCarriageReturn(header));
+                    return position + i + 1;
+                }
+                header.append((char) (b & 0xFF));
+            }
+            position += read;
+        }
+        BufferedCsvLoader.validateHeader(size == 0 ? null : stripCarriageReturn(header));
+        return size;
+    }
+
+    private static String stripCarriageReturn(StringBuilder line) {
+        int length = line.length();
+        return length > 0 && line.charAt(length - 1) == '\r' ? line.substring(0, length - 1) : line.toString();
+    }
+
+    // Offsets where chunks start; every chunk but the first begins right after a newline
+    private long[] chunkBounds(FileChannel channel, long dataStart, long size) throws IOException {
+        long length = size - dataStart;
+        long chunks = Math.max(1, Math.max((long) pool.getParallelism() * 4, (length + TARGET_CHUNK_BYTES - 1) / TARGET_CHUNK_BYTES));
+        chunks = Math.max(chunks, (length + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(dataStart);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (long k = 1; k < chunks; k++) {
+            long position = Math.max(dataStart + length * k / chunks, bounds.get(bounds.size() - 1));
+            long boundary = nextLineStart(channel, buffer, position, size);
+            if (boundary > bounds.get(bounds.size() - 1) && boundary < size) {
+                bounds.add(boundary);
+            }
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    static long nextLineStart(FileChannel channel, ByteBuffer buffer, long position, long size) throws IOException {
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private ChunkResult parseChunk(MappedByteBuffer buffer) {
+        ChunkResult result = new ChunkResult();
+        parseRange(buffer, 0, buffer.limit(), null, result);
+        return result;
+    }
+
+    // Parses the lines of [from, to) into result; with a ticker, only the lines of that ticker
+    private void parseRange(MappedByteBuffer buffer, int from, int to, byte[] ticker, ChunkResult result) {
+        int[] commas = new int[7];
+        int lineStart = from;
+
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            int commaCount = 0;
+            while (lineEnd < to) {
+                byte b = buffer.get(lineEnd);
+                if (b == '\n') break;
+                if (b == ',' && commaCount < commas.length) {
+                    commas[commaCount++] = lineEnd;
+                }
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+
+            // Ticker is the eighth column and runs to the next comma or the end of the line
+            if (commaCount == commas.length) {
+                int tickerStart = commas[6] + 1;
+                int tickerEnd = tickerStart;
+                while (tickerEnd < lineEnd && buffer.get(tickerEnd) != ',') tickerEnd++;
+                if (tickerEnd > tickerStart && (ticker == null || isTicker(ticker, buffer, tickerStart, tickerEnd))) {
+                    parseLine(buffer, lineStart, lineEnd, commas, tickerStart, tickerEnd, result);
+                }
+            }
+            lineStart = next;
+        }
+    }
+
+    // Same whitespace trimming as ChunkResult.builder
+    private static boolean isTicker(byte[] ticker, ByteBuffer buffer, int from, int to) {
+        while (from < to && buffer.get(from) <= ' ') from++;
+        while (to > from && buffer.get(to - 1) <= ' ') to--;
+        return ChunkResult.matches(ticker, buffer, from, to);
+    }
+
+    private void parseLine(MappedByteBuffer buffer, int lineStart, int lineEnd, int[] commas,
+                           int tickerStart, int tickerEnd, ChunkResult result) {
+        try {
+            int day = parseEpochDay(buffer, lineStart, commas[0]);
+            if (day < startDay || day > endDay) {
+                return;
+            }
+            double open = parseDouble(buffer, commas[0] + 1, commas[1]);
+            double high = parseDouble(buffer, commas[1] + 1, commas[2]);
+            double low = parseDouble(buffer, commas[2] + 1, commas[3]);
+            double close = parseDouble(buffer, commas[3] + 1, commas[4]);
+            double adjClose = parseDouble(buffer, commas[4] + 1, commas[5]);
+            long volume = parseLong(buffer, commas[5] + 1, commas[6]);
+
+            result.builder(buffer, tickerStart, tickerEnd).add(day, open, high, low, close, adjClose, volume);
+        } catch (NumberFormatException e) {
+            System.err.println("Error parsing line: " + text(buffer, lineStart, lineEnd));
+        }
+    }
+
+    private static String text(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int digit(ByteBuffer buffer, int index) {
+        int d = buffer.get(index) - '0';
+        if (d < 0 || d > 9) {
+            throw new NumberFormatException("Not a digit at offset " + index);
+        }
+        return d;
+    }
+
+    // ISO yyyy-MM-dd to days since 1970-01-01, validated like LocalDate.parse
+    static int parseEpochDay(ByteBuffer buffer, int from, int to) {
+        if (to - from != 10 || buffer.get(from + 4) != '-' || buffer.get(from + 7) != '-') {
+            throw new NumberFormatException("Not an ISO date");
+        }
+        int year = digit(buffer, from) * 1000 + digit(buffer, from + 1) * 100 + digit(buffer, from + 2) * 10 + digit(buffer, from + 3);
+        int month = digit(buffer, from + 5) * 10 + digit(buffer, from + 6);
+        int day = digit(buffer, from + 8) * 10 + digit(buffer, from + 9);
+        return epochDay(year, month, day);
+    }
+
+    static int epochDay(int year, int month, int day) {
+        boolean leap = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+        int monthLength = month == 2 ? (leap ? 29 : 28) : (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+        if (month < 1 || month > 12 || day < 1 || day > monthLength) {
+            throw new NumberFormatException("Invalid date " + year + "-" + month + "-" + day);
+        }
+
+        // Same arithmetic as LocalDate.toEpochDay, for non-negative years
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367L * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!leap) total--;
+        }
+        return (int) (total - 719528L);
+    }
+
+    static long parseLong(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        if (i == to) {
+            throw new NumberFormatException("Empty number");
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int d = digit(buffer, i);
+            if (value > (Long.MAX_VALUE - d) / 10) {
+                throw new NumberFormatException("Number out of range");
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    static double parseDouble(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean digits = false;
+        boolean dot = false;
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                digits = true;
+                if (mantissa == 0 && b == '0') {
+                    if (dot) exponent--;
+                    continue;
+                }
+                // 18 digits always fit a long; longer mantissas can overflow and go to the exact parser
+                if (++significantDigits > 18) {
+                    return slowParse(buffer, from, to);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (dot) exponent--;
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (i != to || !digits) {
+            // Exponent notation, NaN/Infinity and malformed text
+            return slowParse(buffer, from, to);
+        }
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (exponent < -22 || exponent > 22) {
+            return slowParse(buffer, from, to);
+        }
+
+        double value;
+        if (mantissa < (1L << 53)) {
+            // Both operands are exact, so the single rounding is the correct one
+            value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        } else if (exponent <= 0 && -exponent < LONG_POWERS_OF_TEN.length) {
+            value = nearestQuotient(mantissa, -exponent);
+            if (Double.isNaN(value)) {
+                return slowParse(buffer, from, to);
+            }
+        } else {
+            return slowParse(buffer, from, to);
+        }
+        return negative ? -value : value;
+    }
+
+    // The double nearest to mantissa / 10^k for 0 < mantissa < 10^18 and k <= 18, or NaN when it lies on a
+    // halfway point or out of the range compareToMidpoint handles. The division rounds the mantissa and then the
+    // quotient, so it lands within an ulp or so; the candidate moves up or down until the exact value lies
+    // between the halfway points below and above it.
+    static double nearestQuotient(long mantissa, int k) {
+        long power = LONG_POWERS_OF_TEN[k];
+        double candidate = mantissa / POWERS_OF_TEN[k];
+        for (int step = 0; step < 4; step++) {
+            int above = compareToMidpoint(mantissa, power, candidate);
+            if (above == 0 || above == UNDECIDED) {
+                return Double.NaN;
+            }
+            if (above > 0) {
+                candidate = Math.nextUp(candidate);
+                continue;
+            }
+            int below = compareToMidpoint(mantissa, power, Math.nextDown(candidate));
+            if (below == 0 || below == UNDECIDED) {
+                return Double.NaN;
+            }
+            if (below < 0) {
+                candidate = Math.nextDown(candidate);
+                continue;
+            }
+            return candidate;
+        }
+        return Double.NaN;
+    }
+
+    // Sign of mantissa / power - (d + nextUp(d)) / 2 for a positive normal d, or UNDECIDED when the comparison
+    // needs more than 128 bits. With d = f * 2^e the halfway point is (2f + 1) * 2^(e - 1), so this compares
+    // mantissa * 2^(1 - e) with (2f + 1) * power, or mantissa with (2f + 1) * power * 2^(e - 1) when e > 1.
+    // mantissa < 2^60, 2f + 1 < 2^54 and power < 2^60 keep both sides below 2^127 for 1 - e <= 67 and d < 2^61.
+    private static int compareToMidpoint(long mantissa, long power, double d) {
+        long bits = Double.doubleToRawLongBits(d);
+        int biased = (int) (bits >>> 52);
+        if (biased == 0 || biased == 0x7FF) return UNDECIDED;
+        long f = (bits & ((1L << 52) - 1)) | (1L << 52);
+        int shift = 1 - (biased - 1075);
+        if (shift < -8 || shift > 67) return UNDECIDED;
+
+        long leftHigh = shift <= 0 ? 0 : shift < 64 ? mantissa >>> (64 - shift) : mantissa << (shift - 64);
+        long leftLow = shift <= 0 ? mantissa : shift < 64 ? mantissa << shift : 0;
+        long halfway = 2 * f + 1;
+        long rightHigh = Math.multiplyHigh(halfway, power);
+        long rightLow = halfway * power;
+        if (shift < 0) {
+            rightHigh = (rightHigh << -shift) | (rightLow >>> (64 + shift));
+            rightLow <<= -shift;
+        }
+        int high = Long.compare(leftHigh, rightHigh);
+        return high != 0 ? high : Integer.signum(Long.compareUnsigned(leftLow, rightLow));
+    }
+
+    private static double slowParse(ByteBuffer buffer, int from, int to) {
+        return Double.parseDouble(text(buffer, from, to));
+    }
+
+    // Rows of one chunk, grouped by ticker through a small open-addressing table keyed on the raw ticker bytes
+    private static final class ChunkResult {
+        private String[] tickers = new String[16];
+        private PriceSeries.Builder[] builders = new PriceSeries.Builder[16];
+        private byte[][] keys = new byte[16][];
+        private int[] hashes = new int[16];
+        private int[] slots = new int[64];
+        private int count;
+
+        ChunkResult() {
+            Arrays.fill(slots, -1);
+        }
+
+        PriceSeries.Builder builder(ByteBuffer buffer, int from, int to) {
+            // Same whitespace trimming as String.trim
+            while (from < to && buffer.get(from) <= ' ') from++;
+            while (to > from && buffer.get(to - 1) <= ' ') to--;
+
+            int hash = 1;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + buffer.get(i);
+            }
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int index = slots[slot];
+                if (index < 0) {
+                    return add(slot, hash, buffer, from, to);
+                }
+                if (hashes[index] == hash && matches(keys[index], buffer, from, to)) {
+                    return builders[index];
+                }
+            }
+        }
+
+        PriceSeries.Builder find(String ticker) {
+            for (int i = 0; i < count; i++) {
+                if (tickers[i].equals(ticker)) return builders[i];
+            }
+            return null;
+        }
+
+        private static boolean matches(byte[] key, ByteBuffer buffer, int from, int to) {
+            if (key.length != to - from) return false;
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(from + i)) return false;
+            }
+            return true;
+        }
+
+        private PriceSeries.Builder add(int slot, int hash, ByteBuffer buffer, int from, int to) {
+            if (count == tickers.length) {
+                tickers = Arrays.copyOf(tickers, count * 2);
+                builders = Arrays.copyOf(builders, count * 2);
+                keys = Arrays.copyOf(keys, count * 2);
+                hashes = Arrays.copyOf(hashes, count * 2);
+            }
+            byte[] key = new byte[to - from];
+            buffer.get(from, key);
+            String ticker = new String(key, StandardCharsets.UTF_8);
+
+            tickers[count] = ticker;
+            builders[count] = new PriceSeries.Builder(ticker);
+            keys[count] = key;
+            hashes[count] = hash;
+            slots[slot] = count;
+            count++;
+
+            if (count * 2 > slots.length) {
+                rehash();
+            }
+            return builders[count - 1];
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            Arrays.fill(slots, -1);
+            int mask = slots.length - 1;
+            for (int index = 0; index < count; index++) {
+                int slot = hashes[index] & mask;
+                while (slots[slot] >= 0) slot = (slot + 1) & mask;
+                slots[slot] = index;
+            }
+        }
+    }
+}
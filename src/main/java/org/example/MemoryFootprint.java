@@ -0,0 +1,71 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares retained heap per bar of List<StockData> against PriceSeries on a synthetic universe.
+// Usage: MemoryFootprint [tickers] [years]
+// Defaults to 5,000 tickers x 5 years, which needs about 2.5 GB of heap for the StockData side (-Xmx4g); the full
+// 20 years of 5,000 tickers needs roughly 8 GB (-Xmx10g).
+public class MemoryFootprint {
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<List<StockData>> buildStockData(SyntheticMarketData generator, int tickers, int[] days) {
+        List<List<StockData>> universe = new ArrayList<>(tickers);
+        for (int t = 0; t < tickers; t++) {
+            PriceSeries series = generator.generateSeries(t, days);
+            List<StockData> bars = new ArrayList<>(series.size());
+            for (int i = 0; i < series.size(); i++) {
+                // Mirrors the old loader: one LocalDate and five BigDecimals parsed from text per bar
+                bars.add(new StockData(LocalDate.ofEpochDay(series.epochDay(i)),
+                        new BigDecimal(Double.toString(series.open(i))),
+                        new BigDecimal(Double.toString(series.high(i))),
+                        new BigDecimal(Double.toString(series.low(i))),
+                        new BigDecimal(Double.toString(series.close(i))),
+                        new BigDecimal(Double.toString(series.adjClose(i))),
+                        series.volume(i),
+                        new String(series.getTicker())));
+            }
+            universe.add(bars);
+        }
+        return universe;
+    }
+
+    private static List<PriceSeries> buildSeries(SyntheticMarketData generator, int tickers, int[] days) {
+        List<PriceSeries> universe = new ArrayList<>(tickers);
+        for (int t = 0; t < tickers; t++) {
+            universe.add(generator.generateSeries(t, days));
+        }
+        return universe;
+    }
+
+    public static void main(String[] args) {
+        int tickers = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int years = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        LocalDate end = LocalDate.of(2024, 11, 30);
+        SyntheticMarketData generator = new SyntheticMarketData(tickers, end.minusYears(years), end, 42L);
+        int[] days = generator.tradingDays();
+        long bars = (long) tickers * days.length;
+
+        long before = usedHeap();
+        List<List<StockData>> stockData = buildStockData(generator, tickers, days);
+        long stockDataBytes = usedHeap() - before;
+        System.out.printf("List<StockData>: %d bars, %.1f bytes/bar%n", bars, (double) stockDataBytes / bars);
+        stockData.clear();
+
+        before = usedHeap();
+        List<PriceSeries> series = buildSeries(generator, tickers, days);
+        long seriesBytes = usedHeap() - before;
+        System.out.printf("PriceSeries:     %d bars, %.1f bytes/bar%n", bars, (double) seriesBytes / bars);
+        System.out.printf("Reduction: %.2fx (%d series retained)%n", (double) stockDataBytes / seriesBytes, series.size());
+    }
+}
@@ -0,0 +1,7 @@
+package org.example;
+
+// Accumulates the PerformanceMetrics sums of days [0, n) into acc (layout in PerformanceMetrics) and returns how
+// many leading days it covered; PerformanceMetrics.accumulate does the rest
+interface MetricsKernel {
+    int accumulate(double[] returns, double[] market, int marketFrom, double[] values, int n, double[] acc);
+}
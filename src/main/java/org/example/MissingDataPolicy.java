@@ -0,0 +1,9 @@
+package org.example;
+
+// What a MarketPanel holds in cells where a symbol has no bar for a calendar day.
+public enum MissingDataPolicy {
+    // Missing cells hold NaN prices and zero volume
+    SKIP,
+    // Missing cells repeat the symbol's last observed prices with zero volume; cells before its first bar stay NaN
+    FORWARD_FILL
+}
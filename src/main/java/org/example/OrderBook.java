@@ -0,0 +1,201 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Pending orders of one Portfolio, filled against the panel by an ExecutionModel. Orders are held in parallel
+// primitive arrays in arrival order (symbol, signed remaining shares, day submitted), at most one per symbol:
+// a new order for a symbol replaces the one still pending. Each day fill() sorts the book sells first, then by
+// symbol, so sells free pooled cash before buys spend it and fills don't depend on the order strategies
+// submitted in. A symbol without a real bar that day doesn't fill; buys are cut to what the cash pays for,
+// costs included, while sells may go short as with immediate execution.
+public final class OrderBook {
+
+    // Totals over a run, as reported in the BacktestResult
+    public static final class Stats {
+        private final long submitted;
+        private final long fills;
+        private final long filledShares;
+        private final long expiredShares;
+        private final double commissions;
+        private final double slippage;
+
+        Stats(long submitted, long fills, long filledShares, long expiredShares, double commissions, double slippage) {
+            this.submitted = submitted;
+            this.fills = fills;
+            this.filledShares = filledShares;
+            this.expiredShares = expiredShares;
+            this.commissions = commissions;
+            this.slippage = slippage;
+        }
+
+        public long getSubmitted() { return submitted; }
+        public long getFills() { return fills; }
+        public long getFilledShares() { return filledShares; }
+        // Shares left unfilled when their orders expired or were replaced
+        public long getExpiredShares() { return expiredShares; }
+        public double getCommissions() { return commissions; }
+        // Difference between the fill prices and the closes, over all filled shares
+        public double getSlippage() { return slippage; }
+        public double getTransactionCosts() { return commissions + slippage; }
+
+        @Override
+        public String toString() {
+            return String.format("%d orders, %d fills of %d shares, %d shares unfilled, commissions %.2f, slippage %.2f",
+                    submitted, fills, filledShares, expiredShares, commissions, slippage);
+        }
+    }
+
+    private final ExecutionModel model;
+    private final Portfolio portfolio;
+    // Index in the order arrays of the pending order of each symbol, or -1
+    private final int[] pending;
+    private int[] symbol;
+    private long[] remaining;
+    private int[] day;
+    private long[] keys;
+    private int count;
+
+    private long submitted;
+    private long fills;
+    private long filledShares;
+    private long expiredShares;
+    private double commissions;
+    private double slippage;
+
+    public OrderBook(ExecutionModel model, Portfolio portfolio, int symbolCount) {
+        this.model = model;
+        this.portfolio = portfolio;
+        this.pending = new int[symbolCount];
+        Arrays.fill(pending, -1);
+        int capacity = Math.min(symbolCount, 64);
+        this.symbol = new int[capacity];
+        this.remaining = new long[capacity];
+        this.day = new int[capacity];
+        this.keys = new long[capacity];
+    }
+
+    public ExecutionModel getModel() { return model; }
+    public int size() { return count; }
+
+    public long pendingShares(int s) {
+        return pending[s] < 0 ? 0 : remaining[pending[s]];
+    }
+
+    // Orders are filled from the next fill() on. shares must be positive, so a miscomputed size can't turn a
+    // buy into a sell.
+    public void submitBuy(int s, long shares) {
+        submit(s, checkShares(s, shares));
+    }
+
+    public void submitSell(int s, long shares) {
+        submit(s, -checkShares(s, shares));
+    }
+
+    private static long checkShares(int s, long shares) {
+        if (shares <= 0) {
+            throw new IllegalArgumentException("Order for symbol " + s + " must be for a positive number of shares: " + shares);
+        }
+        return shares;
+    }
+
+    // Signed shares: positive to buy, negative to sell
+    private void submit(int s, long shares) {
+        submitted++;
+        int i = pending[s];
+        if (i >= 0) {
+            expiredShares += Math.abs(remaining[i]);
+            remaining[i] = shares;
+            day[i] = -1;
+            return;
+        }
+        if (count == symbol.length) {
+            int capacity = Math.max(8, count * 2);
+            symbol = Arrays.copyOf(symbol, capacity);
+            remaining = Arrays.copyOf(remaining, capacity);
+            day = Arrays.copyOf(day, capacity);
+            keys = new long[capacity];
+        }
+        symbol[count] = s;
+        remaining[count] = shares;
+        day[count] = -1;
+        pending[s] = count++;
+    }
+
+    // Fills what day d allows of every pending order, then drops the filled and expired ones
+    public void fill(MarketPanel panel, int d) {
+        // Sells sort before buys, then by symbol; new orders count their pending days from today
+        for (int i = 0; i < count; i++) {
+            if (day[i] < 0) day[i] = d;
+            keys[i] = (remaining[i] > 0 ? 1L << 32 : 0) | symbol[i];
+        }
+        Arrays.sort(keys, 0, count);
+
+        for (int k = 0; k < count; k++) {
+            int s = (int) keys[k];
+            if (!panel.isObserved(d, s)) continue;
+            int i = pending[s];
+            long volume = panel.volume(d, s);
+            long shares = Math.min(Math.abs(remaining[i]), model.capacity(volume));
+            if (shares == 0) continue;
+            double close = panel.adjClose(d, s);
+
+            if (remaining[i] > 0) {
+                shares = Math.min(shares, affordable(s, close, shares, volume));
+                if (shares <= 0) continue;
+                double price = model.fillPrice(close, shares, volume);
+                portfolio.executeBuy(s, shares, price);
+                record(s, shares, price, close);
+                remaining[i] -= shares;
+            } else {
+                double price = model.fillPrice(close, -shares, volume);
+                portfolio.executeSell(s, shares, price);
+                record(s, shares, price, close);
+                remaining[i] += shares;
+            }
+        }
+
+        // Compact in arrival order
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int s = symbol[i];
+            if (remaining[i] != 0 && d - day[i] < model.getMaxPendingDays()) {
+                symbol[kept] = s;
+                remaining[kept] = remaining[i];
+                day[kept] = day[i];
+                pending[s] = kept++;
+            } else {
+                expiredShares += Math.abs(remaining[i]);
+                pending[s] = -1;
+            }
+        }
+        count = kept;
+    }
+
+    // Largest buy of at most `shares` the cash of s pays for, commission included. The fill price only falls
+    // as the fill shrinks, so pricing at the full size is conservative.
+    private long affordable(int s, double close, long shares, long volume) {
+        double price = model.fillPrice(close, shares, volume);
+        double cash = portfolio.availableCash(s);
+        double perShare = price * (1 + model.getCommissionBps() / 10_000) + model.getCommissionPerShare();
+        long n = (long) Math.floor(cash / perShare);
+        if (n > 0 && model.getMinCommission() > perShare * n - price * n) {
+            n = Math.min(n, (long) Math.floor((cash - model.getMinCommission()) / price));
+        }
+        return Math.max(0, Math.min(n, shares));
+    }
+
+    private void record(int s, long shares, double price, double close) {
+        double commission = model.commission(shares, price);
+        if (commission > 0) {
+            portfolio.charge(s, commission);
+        }
+        fills++;
+        filledShares += shares;
+        commissions += commission;
+        slippage += Math.abs(price - close) * shares;
+    }
+
+    public Stats stats() {
+        return new Stats(submitted, fills, filledShares, expiredShares, commissions, slippage);
+    }
+}
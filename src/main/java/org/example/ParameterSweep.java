@@ -0,0 +1,216 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Runs one strategy over a grid of parameters in parallel. The data is loaded once and shared read-only
+// between the simulations, which are pure functions of (data, parameters).
+public class ParameterSweep {
+
+    public interface Simulation {
+        BacktestResult run(StockDataManager dataManager, StrategyParameters parameters);
+    }
+
+    // Best Sharpe first (undefined Sharpe last), then the shallower drawdown, then the larger final capital
+    public static final Comparator<BacktestResult> RANKING = Comparator
+            .comparingDouble((BacktestResult r) -> Double.isNaN(r.getSharpeRatio()) ? Double.NEGATIVE_INFINITY : r.getSharpeRatio())
+            .reversed()
+            .thenComparingDouble(BacktestResult::getMaxDrawdown)
+            .thenComparing(BacktestResult::getFinalCapital, Comparator.reverseOrder());
+
+    private final StockDataManager dataManager;
+    private final Simulation simulation;
+    private final ForkJoinPool pool;
+
+    public ParameterSweep(StockDataManager dataManager, Simulation simulation, ForkJoinPool pool) {
+        this.dataManager = dataManager;
+        this.simulation = simulation;
+        this.pool = pool;
+    }
+
+    // Every combination with shortWindow < longWindow
+    public static List<StrategyParameters> grid(int[] shortWindows, int[] longWindows, int[] rsiPeriods, int[] atrPeriods,
+                                                double[] atrMultipliers) {
+        List<StrategyParameters> grid = new ArrayList<>();
+        for (int shortWindow : shortWindows) {
+            for (int longWindow : longWindows) {
+                if (shortWindow >= longWindow) continue;
+                for (int rsiPeriod : rsiPeriods) {
+                    for (int atrPeriod : atrPeriods) {
+                        for (double atrMultiplier : atrMultipliers) {
+                            grid.add(new StrategyParameters(shortWindow, longWindow, rsiPeriod, atrPeriod, atrMultiplier));
+                        }
+                    }
+                }
+            }
+        }
+        return grid;
+    }
+
+    // Returns the results ranked by RANKING
+    public List<BacktestResult> run(List<StrategyParameters> grid) {
+        List<Callable<BacktestResult>> tasks = new ArrayList<>(grid.size());
+        for (StrategyParameters parameters : grid) {
+            tasks.add(() -> simulation.run(dataManager, parameters));
+        }
+
+        List<BacktestResult> results = new ArrayList<>(grid.size());
+        for (Future<BacktestResult> future : pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Parameter sweep interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Simulation failed", e.getCause());
+            }
+        }
+        results.sort(RANKING);
+        return results;
+    }
+
+    public static void printTable(List<BacktestResult> results, int limit, PrintStream out) {
+        out.printf("%4s %6s %6s %4s %6s %6s %10s %10s %16s %10s %10s%n",
+                "rank", "short", "long", "rsi", "atr-p", "atr", "sharpe", "drawdown", "final capital", "accuracy", "beta");
+        for (int i = 0; i < Math.min(limit, results.size()); i++) {
+            BacktestResult result = results.get(i);
+            StrategyParameters p = result.getParameters();
+            out.printf("%4d %6d %6d %4d %6d %6.2f %10.4f %10.4f %16.2f %10.4f %10.4f%n",
+                    i + 1, p.getShortWindow(), p.getLongWindow(), p.getRsiPeriod(), p.getAtrPeriod(), p.getAtrMultiplier(),
+                    result.getSharpeRatio(), result.getMaxDrawdown(), result.getFinalCapital(),
+                    result.getAccuracy(), result.getBeta());
+        }
+    }
+
+    static int[] parseInts(String value) {
+        String[] parts = value.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    static double[] parseDoubles(String value) {
+        String[] parts = value.split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i].trim());
+        }
+        return values;
+    }
+
+    // Usage: ParameterSweep [--strategy=sma|ema] [--csv=path] [--short=5,10,20] [--long=50,100,200]
+    //                       [--rsi=14] [--atr-period=14] [--atr=3] [--threads=N] [--top=20] [--arithmetic=fixed|decimal]
+    //                       [--indicator-cache=directory]
+    // With --indicator-cache the simulations share one IndicatorCache, kept in the directory across sweeps
+    public static void main(String[] args) throws IOException {
+        String strategy = "ema";
+        String csv = "stock_data/consolidated_stock_data.csv";
+        int[] shortWindows = {5, 10, 15, 20};
+        int[] longWindows = {50, 100, 150, 200};
+        int[] rsiPeriods = {14};
+        int[] atrPeriods = {StrategyParameters.DEFAULT_ATR_PERIOD};
+        double[] atrMultipliers = {2.0, 3.0};
+        int threads = Runtime.getRuntime().availableProcessors();
+        int top = 20;
+        ArithmeticMode arithmetic = ArithmeticMode.FIXED_POINT;
+        Path indicatorCache = null;
+
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (name) {
+                case "strategy":
+                    strategy = value;
+                    break;
+                case "csv":
+                    csv = value;
+                    break;
+                case "short":
+                    shortWindows = parseInts(value);
+                    break;
+                case "long":
+                    longWindows = parseInts(value);
+                    break;
+                case "rsi":
+                    rsiPeriods = parseInts(value);
+                    break;
+                case "atr-period":
+                    atrPeriods = parseInts(value);
+                    break;
+                case "atr":
+                    atrMultipliers = parseDoubles(value);
+                    break;
+                case "threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "top":
+                    top = Integer.parseInt(value);
+                    break;
+                case "arithmetic":
+                    arithmetic = ArithmeticMode.parse(value);
+                    break;
+                case "indicator-cache":
+                    indicatorCache = Path.of(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        ArithmeticMode mode = arithmetic;
+        Simulation simulation;
+        switch (strategy) {
+            case "sma":
+                simulation = (data, parameters) -> SimpleMovingAverage.simulate(data, parameters, mode);
+                break;
+            case "ema":
+                simulation = (data, parameters) -> ExponentialMovingAverage.simulate(data, parameters, mode);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + strategy);
+        }
+        if (strategy.equals("sma")) {
+            // The RSI period and the ATR period and multiplier don't affect the SMA strategy
+            rsiPeriods = new int[]{rsiPeriods[0]};
+            atrPeriods = new int[]{atrPeriods[0]};
+            atrMultipliers = new double[]{atrMultipliers[0]};
+        }
+
+        StockDataManager dataManager = new StockDataManager();
+        dataManager.loadHistoricalDataFromCSV(csv);
+        if (indicatorCache != null) {
+            dataManager.setIndicatorCache(new IndicatorCache(IndicatorCache.DEFAULT_CACHED_VALUES, indicatorCache));
+        }
+        List<StrategyParameters> grid = grid(shortWindows, longWindows, rsiPeriods, atrPeriods, atrMultipliers);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<BacktestResult> results = new ParameterSweep(dataManager, simulation, pool).run(grid);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%d %s simulations on %d threads in %.2f s%n%n", grid.size(), strategy, threads, seconds);
+            printTable(results, top, System.out);
+            if (indicatorCache != null) {
+                System.out.println("Indicator cache: " + dataManager.getIndicatorCache());
+            }
+            RunProfiler.report("ParameterSweep " + strategy, RunProfiler.defaultReportPath(), System.out);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Summary statistics of a daily return series, computed in one fused pass over primitive arrays: mean,
+// variance, Sharpe, Sortino, max drawdown, hit rate and the alpha/beta regression on market returns.
+// The sums run on the Vector API when the build includes VectorMetricsKernel (mvn -P vector) and the
+// jdk.incubator.vector module is present (java --add-modules jdk.incubator.vector), and in plain Java otherwise;
+// -Dbacktest.vector=false forces the scalar version.
+// Ratios are daily, as Portfolio.sharpeRatio(); the annualized getters scale them by sqrt(252).
+public final class PerformanceMetrics {
+    private static final double TRADING_DAYS = 252;
+
+    // Layout of the accumulator array shared with VectorMetricsKernel. SUM, SUM_SQUARES and CROSS are over the
+    // returns minus SHIFT, the MARKET_ sums over the market returns minus MARKET_SHIFT: with the shifts near the
+    // means, the variances and covariance don't come out of the difference of two large, nearly equal sums.
+    static final int SUM = 0;
+    static final int SUM_SQUARES = 1;
+    static final int DOWNSIDE_SQUARES = 2;
+    static final int POSITIVE = 3;
+    static final int MARKET_SUM = 4;
+    static final int MARKET_SQUARES = 5;
+    static final int CROSS = 6;
+    static final int PEAK = 7;
+    static final int DRAWDOWN = 8;
+    static final int SHIFT = 9;
+    static final int MARKET_SHIFT = 10;
+    static final int ACCUMULATORS = 11;
+
+    // null when the scalar pass is used
+    private static final MetricsKernel VECTOR = vectorKernel();
+
+    private final int days;
+    private final double mean;
+    private final double variance;
+    private final double sharpeRatio;
+    private final double sortinoRatio;
+    private final double maxDrawdown;
+    private final double hitRate;
+    private final double alpha;
+    private final double beta;
+
+    private PerformanceMetrics(int days, double[] acc) {
+        this.days = days;
+        double n = days;
+        double shiftedMean = acc[SUM] / n;
+        mean = acc[SHIFT] + shiftedMean;
+        // Rounding can still leave a zero variance a few ulps below zero
+        variance = Math.max(0, acc[SUM_SQUARES] / n - shiftedMean * shiftedMean);
+        sharpeRatio = mean / Math.sqrt(variance);
+        sortinoRatio = mean / Math.sqrt(acc[DOWNSIDE_SQUARES] / n);
+        maxDrawdown = acc[DRAWDOWN];
+        hitRate = acc[POSITIVE] / n;
+
+        // Least squares of the returns on the market returns; covariance and market variance share the
+        // same divisor, so it cancels out of beta
+        double shiftedMarketMean = acc[MARKET_SUM] / n;
+        double marketMean = acc[MARKET_SHIFT] + shiftedMarketMean;
+        double covariance = acc[CROSS] - n * shiftedMean * shiftedMarketMean;
+        double marketVariance = acc[MARKET_SQUARES] - n * shiftedMarketMean * shiftedMarketMean;
+        beta = covariance / marketVariance;
+        alpha = mean - beta * marketMean;
+    }
+
+    private static MetricsKernel vectorKernel() {
+        if ("false".equals(System.getProperty("backtest.vector"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (MetricsKernel) Class.forName("org.example.VectorMetricsKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Built without the vector profile
+            return null;
+        }
+    }
+
+    public static boolean isVectorized() {
+        return VECTOR != null;
+    }
+
+    // returns[i] and values[i] are the strategy's return and value on the same day, market[marketFrom + i]
+    // the market return of that day. values may be null to skip the drawdown, market null to skip alpha/beta.
+    public static PerformanceMetrics of(double[] returns, double[] values, double[] market, int marketFrom) {
+        return compute(returns, values, market, marketFrom, VECTOR);
+    }
+
+    // The same without the Vector API, for comparison
+    public static PerformanceMetrics scalarOf(double[] returns, double[] values, double[] market, int marketFrom) {
+        return compute(returns, values, market, marketFrom, null);
+    }
+
+    private static PerformanceMetrics compute(double[] returns, double[] values, double[] market, int marketFrom,
+                                              MetricsKernel kernel) {
+        int n = returns.length;
+        if (market == null) {
+            market = new double[n];
+            marketFrom = 0;
+        }
+        check(returns, values, market, marketFrom);
+        double[] acc = new double[ACCUMULATORS];
+        if (n > 0) {
+            acc[SHIFT] = returns[0];
+            acc[MARKET_SHIFT] = market[marketFrom];
+        }
+        if (values != null && n > 0) acc[PEAK] = values[0];
+
+        int done = kernel != null ? kernel.accumulate(returns, market, marketFrom, values, n, acc) : 0;
+        accumulate(returns, market, marketFrom, values, done, n, acc);
+        if (values == null) acc[DRAWDOWN] = Double.NaN;
+        return new PerformanceMetrics(n, acc);
+    }
+
+    private static void check(double[] returns, double[] values, double[] market, int marketFrom) {
+        if (values != null && values.length != returns.length) {
+            throw new IllegalArgumentException("Expected one value per return, got " + values.length
+                    + " values for " + returns.length + " returns");
+        }
+        if (returns.length > 0 && (marketFrom < 0 || marketFrom + returns.length > market.length)) {
+            throw new IllegalArgumentException("Market returns from " + marketFrom + " don't cover "
+                    + returns.length + " days, only " + market.length + " available");
+        }
+    }
+
+    // Adds days [from, to) to the accumulators; also finishes the days the vector kernel leaves over
+    static void accumulate(double[] returns, double[] market, int marketFrom, double[] values, int from, int to,
+                           double[] acc) {
+        double sum = acc[SUM], squares = acc[SUM_SQUARES], downside = acc[DOWNSIDE_SQUARES], positive = acc[POSITIVE];
+        double marketSum = acc[MARKET_SUM], marketSquares = acc[MARKET_SQUARES], cross = acc[CROSS];
+        double peak = acc[PEAK], drawdown = acc[DRAWDOWN];
+        double shift = acc[SHIFT], marketShift = acc[MARKET_SHIFT];
+        for (int i = from; i < to; i++) {
+            double r = returns[i];
+            double deviation = r - shift;
+            double m = market[marketFrom + i] - marketShift;
+            sum += deviation;
+            squares += deviation * deviation;
+            if (r < 0) downside += r * r;
+            if (r > 0) positive++;
+            marketSum += m;
+            marketSquares += m * m;
+            cross += deviation * m;
+            if (values != null) {
+                peak = Math.max(peak, values[i]);
+                drawdown = Math.max(drawdown, (peak - values[i]) / peak);
+            }
+        }
+        acc[SUM] = sum; acc[SUM_SQUARES] = squares; acc[DOWNSIDE_SQUARES] = downside; acc[POSITIVE] = positive;
+        acc[MARKET_SUM] = marketSum; acc[MARKET_SQUARES] = marketSquares; acc[CROSS] = cross;
+        acc[PEAK] = peak; acc[DRAWDOWN] = drawdown;
+    }
+
+    // Metrics over every window of `window` consecutive days; element i covers days [i, i + window).
+    // The sums slide in O(1) per day and are summed afresh every `window` days, so the rounding errors of the
+    // slides don't build up over long series. The drawdown is rescanned within each window, so it costs O(window)
+    // per window and O(n * window) in all, e.g. 570k steps for ten years of 252-day windows: a monotonic deque
+    // would slide the window's peak, but the worst drawdown depends on which trough follows which peak, so it
+    // doesn't slide in O(1). Pass null values to skip it.
+    public static PerformanceMetrics[] rolling(double[] returns, double[] values, double[] market, int marketFrom,
+                                               int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Window must be at least 2 days, got " + window);
+        }
+        int n = returns.length;
+        if (market == null) {
+            market = new double[n];
+            marketFrom = 0;
+        }
+        check(returns, values, market, marketFrom);
+        if (n < window) {
+            return new PerformanceMetrics[0];
+        }
+
+        PerformanceMetrics[] rolling = new PerformanceMetrics[n - window + 1];
+        double[] acc = new double[ACCUMULATORS];
+        double[] sums = new double[ACCUMULATORS];
+        acc[SHIFT] = returns[0];
+        acc[MARKET_SHIFT] = market[marketFrom];
+        for (int end = 0; end < n; end++) {
+            int start = end - window + 1;
+            if (start > 0 && start % window == 0) {
+                // Shifted by the window's first day, as in compute()
+                Arrays.fill(acc, 0);
+                acc[SHIFT] = returns[start];
+                acc[MARKET_SHIFT] = market[marketFrom + start];
+                accumulate(returns, market, marketFrom, null, start, end + 1, acc);
+            } else {
+                slide(returns[end], market[marketFrom + end], acc, 1);
+                if (start > 0) slide(returns[start - 1], market[marketFrom + start - 1], acc, -1);
+            }
+            if (start < 0) continue;
+
+            System.arraycopy(acc, 0, sums, 0, ACCUMULATORS);
+            sums[DRAWDOWN] = values == null ? Double.NaN : drawdown(values, start, end + 1);
+            rolling[start] = new PerformanceMetrics(window, sums);
+        }
+        return rolling;
+    }
+
+    private static void slide(double r, double m, double[] acc, int sign) {
+        double deviation = r - acc[SHIFT];
+        m -= acc[MARKET_SHIFT];
+        acc[SUM] += sign * deviation;
+        acc[SUM_SQUARES] += sign * deviation * deviation;
+        if (r < 0) acc[DOWNSIDE_SQUARES] += sign * r * r;
+        if (r > 0) acc[POSITIVE] += sign;
+        acc[MARKET_SUM] += sign * m;
+        acc[MARKET_SQUARES] += sign * m * m;
+        acc[CROSS] += sign * deviation * m;
+    }
+
+    private static double drawdown(double[] values, int from, int to) {
+        double peak = values[from];
+        double drawdown = 0;
+        for (int i = from + 1; i < to; i++) {
+            peak = Math.max(peak, values[i]);
+            drawdown = Math.max(drawdown, (peak - values[i]) / peak);
+        }
+        return drawdown;
+    }
+
+    public int getDays() { return days; }
+    public double getMean() { return mean; }
+    public double getVariance() { return variance; }
+    public double getVolatility() { return Math.sqrt(variance); }
+    public double getSharpeRatio() { return sharpeRatio; }
+    public double getAnnualizedSharpeRatio() { return sharpeRatio * Math.sqrt(TRADING_DAYS); }
+    // Mean over the root mean square of the negative returns
+    public double getSortinoRatio() { return sortinoRatio; }
+    public double getAnnualizedSortinoRatio() { return sortinoRatio * Math.sqrt(TRADING_DAYS); }
+    public double getMaxDrawdown() { return maxDrawdown; }
+    // Fraction of days with a positive return
+    public double getHitRate() { return hitRate; }
+    public double getAlpha() { return alpha; }
+    public double getBeta() { return beta; }
+
+    @Override
+    public String toString() {
+        return String.format("days=%d mean=%.6f volatility=%.6f sharpe=%.6f sortino=%.6f maxDrawdown=%.6f "
+                        + "hitRate=%.6f alpha=%.6f beta=%.6f", days, mean, getVolatility(), getAnnualizedSharpeRatio(),
+                getAnnualizedSortinoRatio(), maxDrawdown, hitRate, alpha, beta);
+    }
+}
@@ -0,0 +1,112 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+// Cash, share positions and the daily value series of one strategy in a BacktestEngine run. Cash is either one
+// pooled account or one sleeve per member of the universe (the initial capital split equally), in which case a
+// symbol can only trade its own sleeve. Prices are passed as the panel's doubles; how cash and values are
+// represented is up to the ArithmeticMode implementation.
+public abstract class Portfolio {
+    public enum Allocation {
+        POOLED,
+        PER_SYMBOL
+    }
+
+    protected final Allocation allocation;
+    protected final double initialCapital;
+    protected final int[] members;
+    protected final long[] positions;
+    private OrderBook orders;
+
+    protected Portfolio(Allocation allocation, int symbolCount, Universe universe, double initialCapital) {
+        this.allocation = allocation;
+        this.initialCapital = initialCapital;
+        this.members = universe.symbols();
+        this.positions = new long[symbolCount];
+    }
+
+    public static Portfolio create(ArithmeticMode mode, Allocation allocation, int symbolCount, Universe universe,
+                                   double initialCapital) {
+        return create(mode, allocation, symbolCount, universe, initialCapital, universe.size());
+    }
+
+    // PER_SYMBOL sleeves hold initialCapital / sleeves each, so a partition of a larger universe can be given the
+    // sleeves it has in the whole; POOLED accounts ignore sleeves
+    public static Portfolio create(ArithmeticMode mode, Allocation allocation, int symbolCount, Universe universe,
+                                   double initialCapital, int sleeves) {
+        return mode == ArithmeticMode.DECIMAL
+                ? new DecimalPortfolio(allocation, symbolCount, universe, initialCapital, sleeves)
+                : new FixedPointPortfolio(allocation, symbolCount, universe, initialCapital, sleeves);
+    }
+
+    public Allocation getAllocation() { return allocation; }
+    public double getInitialCapital() { return initialCapital; }
+
+    public long position(int s) {
+        return positions[s];
+    }
+
+    protected int account(int s) {
+        return allocation == Allocation.PER_SYMBOL ? s : 0;
+    }
+
+    // Cash available to trade symbol s, for sizing fills
+    public abstract double availableCash(int s);
+
+    // Whole shares of s the cash available to it buys at price, truncated towards zero; 0 when commissions
+    // have left that cash negative
+    public abstract long affordableShares(int s, double price);
+
+    // floor(value x riskFraction / (stopDistance x stopMultiplier) / price) at the last marked value
+    public abstract long riskSizedShares(double riskFraction, double stopDistance, double stopMultiplier, double price);
+
+    // Orders from sizePositions go through the book when one is attached, and are filled when the engine calls
+    // OrderBook.fill; otherwise they are executed right away at price
+    public void attach(OrderBook orders) {
+        this.orders = orders;
+    }
+
+    public OrderBook getOrderBook() { return orders; }
+
+    public final void buy(int s, long shares, double price) {
+        if (orders != null) {
+            orders.submitBuy(s, shares);
+        } else {
+            executeBuy(s, shares, price);
+        }
+    }
+
+    // Positions may go short when a strategy sells more than it holds
+    public final void sell(int s, long shares, double price) {
+        if (orders != null) {
+            orders.submitSell(s, shares);
+        } else {
+            executeSell(s, shares, price);
+        }
+    }
+
+    // The trades themselves, at price per share
+    protected abstract void executeBuy(int s, long shares, double price);
+
+    protected abstract void executeSell(int s, long shares, double price);
+
+    // Takes a commission out of the cash of s
+    protected abstract void charge(int s, double amount);
+
+    // Values positions at day d's close, symbols without a price that day at their last close, and records
+    // the value and the return since the previous mark (or since the initial capital)
+    public abstract void markToMarket(MarketPanel panel, int d);
+
+    // Value as of the last markToMarket, or the initial capital before the first one
+    public abstract BigDecimal getValue();
+
+    public abstract double[] dailyReturns();
+
+    public abstract double[] portfolioValues();
+
+    // Mean over standard deviation of the daily returns, not annualized
+    public abstract double sharpeRatio();
+
+    // Share of days with a positive return
+    public abstract double accuracy();
+}
@@ -0,0 +1,239 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Columnar daily bars for a single ticker. Bar i is spread over the primitive arrays at index i,
+// which costs 52 bytes per bar instead of a StockData object with five BigDecimals and a LocalDate.
+//
+// Prices are held as IEEE doubles parsed from the CSV text. The BigDecimal values handed out by the
+// StockData view are BigDecimal.valueOf(double): exact for CSV values with up to 15 significant digits,
+// and within 1 ulp (about 1e-16 relative) of the text otherwise.
+public final class PriceSeries {
+    private final String ticker;
+    private final int size;
+    private final int[] epochDays;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] adjClose;
+    private final long[] volume;
+
+    PriceSeries(String ticker, int size, int[] epochDays, double[] open, double[] high, double[] low,
+                double[] close, double[] adjClose, long[] volume) {
+        this.ticker = ticker;
+        this.size = size;
+        this.epochDays = epochDays;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.adjClose = adjClose;
+        this.volume = volume;
+    }
+
+    public String getTicker() { return ticker; }
+    public int size() { return size; }
+
+    public int epochDay(int i) { return epochDays[i]; }
+    public LocalDate date(int i) { return LocalDate.ofEpochDay(epochDays[i]); }
+    public double open(int i) { return open[i]; }
+    public double high(int i) { return high[i]; }
+    public double low(int i) { return low[i]; }
+    public double close(int i) { return close[i]; }
+    public double adjClose(int i) { return adjClose[i]; }
+    public long volume(int i) { return volume[i]; }
+
+    // Index of the bar on the given day, or -(insertion point) - 1 when there is none.
+    public int indexOfDay(int epochDay) {
+        return Arrays.binarySearch(epochDays, 0, size, epochDay);
+    }
+
+    public StockData toStockData(int i) {
+        return new StockData(date(i),
+                BigDecimal.valueOf(open[i]),
+                BigDecimal.valueOf(high[i]),
+                BigDecimal.valueOf(low[i]),
+                BigDecimal.valueOf(close[i]),
+                BigDecimal.valueOf(adjClose[i]),
+                volume[i],
+                ticker);
+    }
+
+    // Read-only StockData view for code that still works on List<StockData>. Elements are created on access.
+    public List<StockData> asStockDataList() {
+        return new StockDataView();
+    }
+
+    private final class StockDataView extends AbstractList<StockData> implements RandomAccess {
+        @Override
+        public StockData get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return toStockData(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    public static final class Builder {
+        private final String ticker;
+        private int size;
+        private int[] epochDays;
+        private double[] open;
+        private double[] high;
+        private double[] low;
+        private double[] close;
+        private double[] adjClose;
+        private long[] volume;
+
+        public Builder(String ticker) {
+            this(ticker, 256);
+        }
+
+        public Builder(String ticker, int initialCapacity) {
+            int capacity = Math.max(initialCapacity, 1);
+            this.ticker = ticker;
+            this.epochDays = new int[capacity];
+            this.open = new double[capacity];
+            this.high = new double[capacity];
+            this.low = new double[capacity];
+            this.close = new double[capacity];
+            this.adjClose = new double[capacity];
+            this.volume = new long[capacity];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Builder add(int epochDay, double open, double high, double low, double close, double adjClose, long volume) {
+            if (size == epochDays.length) {
+                grow();
+            }
+            this.epochDays[size] = epochDay;
+            this.open[size] = open;
+            this.high[size] = high;
+            this.low[size] = low;
+            this.close[size] = close;
+            this.adjClose[size] = adjClose;
+            this.volume[size] = volume;
+            size++;
+            return this;
+        }
+
+        // Appends all of other's bars after this builder's bars
+        public Builder addAll(Builder other) {
+            ensureCapacity(size + other.size);
+            System.arraycopy(other.epochDays, 0, epochDays, size, other.size);
+            System.arraycopy(other.open, 0, open, size, other.size);
+            System.arraycopy(other.high, 0, high, size, other.size);
+            System.arraycopy(other.low, 0, low, size, other.size);
+            System.arraycopy(other.close, 0, close, size, other.size);
+            System.arraycopy(other.adjClose, 0, adjClose, size, other.size);
+            System.arraycopy(other.volume, 0, volume, size, other.size);
+            size += other.size;
+            return this;
+        }
+
+        private void grow() {
+            ensureCapacity(epochDays.length + (epochDays.length >> 1) + 1);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= epochDays.length) {
+                return;
+            }
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            open = Arrays.copyOf(open, capacity);
+            high = Arrays.copyOf(high, capacity);
+            low = Arrays.copyOf(low, capacity);
+            close = Arrays.copyOf(close, capacity);
+            adjClose = Arrays.copyOf(adjClose, capacity);
+            volume = Arrays.copyOf(volume, capacity);
+        }
+
+        // Stable sort by date, so rows sharing a date keep their file order.
+        public Builder sortByDate() {
+            boolean sorted = true;
+            for (int i = 1; i < size && sorted; i++) {
+                sorted = epochDays[i - 1] <= epochDays[i];
+            }
+            if (sorted) {
+                return this;
+            }
+
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) epochDays[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+
+            int[] days = new int[epochDays.length];
+            double[] o = new double[open.length];
+            double[] h = new double[high.length];
+            double[] l = new double[low.length];
+            double[] c = new double[close.length];
+            double[] ac = new double[adjClose.length];
+            long[] v = new long[volume.length];
+            for (int i = 0; i < size; i++) {
+                int from = (int) keys[i];
+                days[i] = epochDays[from];
+                o[i] = open[from];
+                h[i] = high[from];
+                l[i] = low[from];
+                c[i] = close[from];
+                ac[i] = adjClose[from];
+                v[i] = volume[from];
+            }
+            epochDays = days;
+            open = o;
+            high = h;
+            low = l;
+            close = c;
+            adjClose = ac;
+            volume = v;
+            return this;
+        }
+
+        // Keeps only the bars dated within [startDay, endDay], preserving order.
+        public Builder retainDays(int startDay, int endDay) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (epochDays[i] < startDay || epochDays[i] > endDay) continue;
+                if (kept != i) {
+                    epochDays[kept] = epochDays[i];
+                    open[kept] = open[i];
+                    high[kept] = high[i];
+                    low[kept] = low[i];
+                    close[kept] = close[i];
+                    adjClose[kept] = adjClose[i];
+                    volume[kept] = volume[i];
+                }
+                kept++;
+            }
+            size = kept;
+            return this;
+        }
+
+        public PriceSeries build() {
+            return new PriceSeries(ticker, size,
+                    Arrays.copyOf(epochDays, size),
+                    Arrays.copyOf(open, size),
+                    Arrays.copyOf(high, size),
+                    Arrays.copyOf(low, size),
+                    Arrays.copyOf(close, size),
+                    Arrays.copyOf(adjClose, size),
+                    Arrays.copyOf(volume, size));
+        }
+    }
+}
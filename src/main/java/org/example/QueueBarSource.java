@@ -0,0 +1,36 @@
+package org.example;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// In-process feed: producers publish bars into a bounded queue, the signal engine takes them in order.
+// A full queue blocks the producer, so a slow consumer can't make memory grow without bound.
+public final class QueueBarSource implements BarSource {
+    private static final Bar END = new Bar("", 0, 0, 0, 0, 0, 0, 0, 0);
+
+    private final BlockingQueue<Bar> queue;
+
+    public QueueBarSource(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public void publish(Bar bar) throws InterruptedException {
+        queue.put(bar);
+    }
+
+    // Ends the feed once the bars already published have been taken
+    public void finish() throws InterruptedException {
+        queue.put(END);
+    }
+
+    @Override
+    public Bar take() throws InterruptedException {
+        Bar bar = queue.take();
+        if (bar == END) {
+            // Leave the marker for any other consumer
+            queue.put(END);
+            return null;
+        }
+        return bar;
+    }
+}
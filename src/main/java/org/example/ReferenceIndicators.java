@@ -0,0 +1,79 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+// The original windowed BigDecimal indicator calculations, recomputed from scratch at every bar.
+// The streaming indicators are checked and benchmarked against these.
+public final class ReferenceIndicators {
+    private ReferenceIndicators() {
+    }
+
+    public static BigDecimal movingAverage(PriceSeries series, int endIndex, int window) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = endIndex - window; i < endIndex; i++) {
+            sum = sum.add(BigDecimal.valueOf(series.adjClose(i)));
+        }
+        return sum.divide(BigDecimal.valueOf(window), MathContext.DECIMAL128);
+    }
+
+    public static BigDecimal ema(PriceSeries series, int endIndex, int window) {
+        BigDecimal multiplier = BigDecimal.valueOf(2.0 / (window + 1));
+
+        BigDecimal ema = BigDecimal.ZERO;
+        for (int i = endIndex - window; i < endIndex; i++) {
+            ema = ema.add(BigDecimal.valueOf(series.adjClose(i)));
+        }
+        ema = ema.divide(BigDecimal.valueOf(window), MathContext.DECIMAL128);
+
+        for (int i = endIndex - window + 1; i <= endIndex; i++) {
+            BigDecimal price = BigDecimal.valueOf(series.adjClose(i));
+            ema = price.multiply(multiplier).add(ema.multiply(BigDecimal.ONE.subtract(multiplier)));
+        }
+
+        return ema;
+    }
+
+    public static BigDecimal rsi(PriceSeries series, int endIndex, int period) {
+        BigDecimal gainSum = BigDecimal.ZERO;
+        BigDecimal lossSum = BigDecimal.ZERO;
+
+        for (int i = endIndex - period + 1; i <= endIndex; i++) {
+            BigDecimal change = BigDecimal.valueOf(series.adjClose(i)).subtract(BigDecimal.valueOf(series.adjClose(i - 1)));
+            if (change.compareTo(BigDecimal.ZERO) > 0) {
+                gainSum = gainSum.add(change);
+            } else {
+                lossSum = lossSum.add(change.abs());
+            }
+        }
+
+        if (lossSum.compareTo(BigDecimal.ZERO) == 0) {
+            return BigDecimal.valueOf(100); // Max RSI if no losses
+        }
+
+        BigDecimal avgGain = gainSum.divide(BigDecimal.valueOf(period), MathContext.DECIMAL128);
+        BigDecimal avgLoss = lossSum.divide(BigDecimal.valueOf(period), MathContext.DECIMAL128);
+
+        BigDecimal rs = avgGain.divide(avgLoss, MathContext.DECIMAL128);
+        return BigDecimal.valueOf(100).subtract(BigDecimal.valueOf(100).divide(rs.add(BigDecimal.ONE), MathContext.DECIMAL128));
+    }
+
+    public static BigDecimal atr(PriceSeries series, int endIndex, int period) {
+        BigDecimal atrSum = BigDecimal.ZERO;
+
+        for (int i = endIndex - period + 1; i <= endIndex; i++) {
+            BigDecimal high = BigDecimal.valueOf(series.high(i));
+            BigDecimal low = BigDecimal.valueOf(series.low(i));
+            BigDecimal prevClose = BigDecimal.valueOf(series.adjClose(i - 1));
+
+            BigDecimal highLow = high.subtract(low);
+            BigDecimal highPrevClose = high.subtract(prevClose).abs();
+            BigDecimal lowPrevClose = low.subtract(prevClose).abs();
+
+            BigDecimal trueRange = highLow.max(highPrevClose).max(lowPrevClose);
+            atrSum = atrSum.add(trueRange);
+        }
+
+        return atrSum.divide(BigDecimal.valueOf(period), MathContext.DECIMAL128);
+    }
+}
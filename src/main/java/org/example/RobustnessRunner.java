@@ -0,0 +1,160 @@
+package org.example;
+
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+// Checks how much a backtest result can be trusted. Runs a parameter grid over all loaded stocks in one
+// BacktestEngine pass, walks it forward (fit in-sample, evaluate out-of-sample), and block-bootstraps the daily
+// returns of the chosen parameters and of the walk-forward series for confidence intervals of the Sharpe ratio
+// and max drawdown.
+public class RobustnessRunner {
+
+    private static void printBootstrap(String label, double[] returns, int block, int resamples, long seed,
+                                       double confidence, ForkJoinPool pool, PrintStream out) {
+        if (returns.length < Math.max(2, block)) {
+            out.printf("%-28s too few returns (%d) to resample%n", label, returns.length);
+            return;
+        }
+        long start = System.nanoTime();
+        BlockBootstrap.Result result = new BlockBootstrap(returns, block).run(resamples, seed, pool);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        out.printf("%-28s sharpe %-30s drawdown %-30s (%d resamples in %.2f s)%n", label,
+                result.sharpeInterval(confidence), result.drawdownInterval(confidence), resamples, seconds);
+    }
+
+    // Usage: RobustnessRunner [--strategy=sma|ema] [--csv=path] [--short=5,10,20] [--long=50,100,200] [--rsi=14]
+    //                         [--atr-period=14] [--atr=3] [--train=504] [--test=126] [--resamples=5000] [--block=20]
+    //                         [--confidence=0.95] [--seed=42] [--threads=N] [--arithmetic=fixed|decimal]
+    public static void main(String[] args) {
+        String strategy = "ema";
+        String csv = "stock_data/consolidated_stock_data.csv";
+        int[] shortWindows = {5, 10, 20};
+        int[] longWindows = {50, 100, 200};
+        int[] rsiPeriods = {14};
+        int[] atrPeriods = {StrategyParameters.DEFAULT_ATR_PERIOD};
+        double[] atrMultipliers = {3.0};
+        int train = 504;
+        int test = 126;
+        int resamples = 5000;
+        int block = 20;
+        double confidence = 0.95;
+        long seed = 42L;
+        int threads = Runtime.getRuntime().availableProcessors();
+        ArithmeticMode arithmetic = ArithmeticMode.FIXED_POINT;
+
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (name) {
+                case "strategy":
+                    strategy = value;
+                    break;
+                case "csv":
+                    csv = value;
+                    break;
+                case "short":
+                    shortWindows = ParameterSweep.parseInts(value);
+                    break;
+                case "long":
+                    longWindows = ParameterSweep.parseInts(value);
+                    break;
+                case "rsi":
+                    rsiPeriods = ParameterSweep.parseInts(value);
+                    break;
+                case "atr-period":
+                    atrPeriods = ParameterSweep.parseInts(value);
+                    break;
+                case "atr":
+                    atrMultipliers = ParameterSweep.parseDoubles(value);
+                    break;
+                case "train":
+                    train = Integer.parseInt(value);
+                    break;
+                case "test":
+                    test = Integer.parseInt(value);
+                    break;
+                case "resamples":
+                    resamples = Integer.parseInt(value);
+                    break;
+                case "block":
+                    block = Integer.parseInt(value);
+                    break;
+                case "confidence":
+                    confidence = Double.parseDouble(value);
+                    break;
+                case "seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "arithmetic":
+                    arithmetic = ArithmeticMode.parse(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (!strategy.equals("sma") && !strategy.equals("ema")) {
+            throw new IllegalArgumentException("Unknown strategy: " + strategy);
+        }
+
+        StockDataManager dataManager = new StockDataManager();
+        dataManager.loadHistoricalDataFromCSV(csv);
+        MarketPanel panel = dataManager.getPanel();
+        Universe universe = Universe.all(panel);
+
+        Function<StrategyParameters, Strategy> newStrategy = strategy.equals("sma")
+                ? SimpleMovingAverage::new : ExponentialMovingAverage::new;
+        List<StrategyParameters> grid = ParameterSweep.grid(shortWindows, longWindows, rsiPeriods, atrPeriods, atrMultipliers);
+        List<Strategy> strategies = new ArrayList<>(grid.size());
+        for (StrategyParameters parameters : grid) {
+            strategies.add(newStrategy.apply(parameters));
+        }
+        long start = System.nanoTime();
+        BacktestEngine engine = new BacktestEngine(dataManager, arithmetic);
+        List<BacktestResult> results = engine.run(strategies);
+        double[] marketReturns = dataManager.equalWeightedMarketReturns(universe, arithmetic);
+        System.out.printf("%d %s runs in one pass in %.2f s%n%n", grid.size(), strategy, (System.nanoTime() - start) / 1e9);
+
+        WalkForward.Result walkForward = new WalkForward(train, test).run(results, marketReturns, engine, universe, newStrategy);
+        System.out.printf("Walk-forward: %d training days, %d test days%n", train, test);
+        System.out.printf("%-12s %-12s %-12s %-52s %12s %12s %12s%n",
+                "train from", "test from", "test to", "parameters", "IS sharpe", "OOS sharpe", "OOS drawdown");
+        for (WalkForward.Fold fold : walkForward.getFolds()) {
+            System.out.printf("%-12s %-12s %-12s %-52s %12.4f %12.4f %12.4f%n",
+                    date(panel, universe, fold.getTrainStart()), date(panel, universe, fold.getTestStart()),
+                    date(panel, universe, fold.getTestEnd() - 1), fold.getParameters(),
+                    fold.getInSample().getAnnualizedSharpeRatio(), fold.getOutOfSample().getAnnualizedSharpeRatio(),
+                    fold.getOutOfSample().getMaxDrawdown());
+        }
+        System.out.printf("Out-of-sample: %s%n%n", walkForward.getMetrics());
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            System.out.printf("Block bootstrap: %d-day blocks, %.0f%% intervals, seed %d, %d threads%n",
+                    block, confidence * 100, seed, threads);
+            results.sort(ParameterSweep.RANKING);
+            BacktestResult best = results.get(0);
+            printBootstrap("best in full sample", best.getDailyReturns(), block, resamples, seed, confidence, pool, System.out);
+            printBootstrap("walk-forward out-of-sample", walkForward.getReturns(), block, resamples, seed, confidence, pool, System.out);
+            System.out.printf("(best in full sample: %s, sharpe %.4f, drawdown %.4f)%n",
+                    best.getParameters(), best.getSharpeRatio(), best.getMaxDrawdown());
+            RunProfiler.report("RobustnessRunner " + strategy, RunProfiler.defaultReportPath(), System.out);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static LocalDate date(MarketPanel panel, Universe universe, int day) {
+        return LocalDate.ofEpochDay(panel.epochDay(universe.day(day)));
+    }
+}
@@ -0,0 +1,82 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+// Relative strength index over the last `period` close-to-close changes, using plain rolling sums of gains and
+// losses (the definition ExponentialMovingAverage has always used) rather than Wilder smoothing.
+public final class RsiIndicator implements StatefulIndicator {
+    private final int period;
+    private final DoubleRingBuffer gains;
+    private final DoubleRingBuffer losses;
+    private double gainSum;
+    private double lossSum;
+    private int lossCount;
+    private double previousClose = Double.NaN;
+
+    public RsiIndicator(int period) {
+        this.period = period;
+        this.gains = new DoubleRingBuffer(period);
+        this.losses = new DoubleRingBuffer(period);
+    }
+
+    @Override
+    public void update(double high, double low, double close) {
+        if (!Double.isNaN(previousClose)) {
+            double change = close - previousClose;
+            double gain = change > 0 ? change : 0.0;
+            double loss = change < 0 ? -change : 0.0;
+
+            boolean full = losses.isFull();
+            double evictedLoss = losses.add(loss);
+            if (full && evictedLoss > 0) lossCount--;
+            if (loss > 0) lossCount++;
+
+            gainSum += gain - gains.add(gain);
+            lossSum += loss - evictedLoss;
+            if (gains.wrapped()) {
+                gainSum = gains.sum();
+                lossSum = losses.sum();
+            }
+        }
+        previousClose = close;
+    }
+
+    @Override
+    public double value() {
+        // Counting losing days keeps "no losses" exact even after rolling-sum rounding
+        if (lossCount == 0) {
+            return 100.0;
+        }
+        double avgGain = gainSum / period;
+        double avgLoss = lossSum / period;
+        double rs = avgGain / avgLoss;
+        return 100.0 - 100.0 / (rs + 1.0);
+    }
+
+    @Override
+    public boolean isReady() {
+        return gains.isFull();
+    }
+
+    @Override
+    public int stateBytes() {
+        return gains.stateBytes() + losses.stateBytes() + 28;
+    }
+
+    @Override
+    public void saveState(ByteBuffer out) {
+        gains.saveState(out);
+        losses.saveState(out);
+        out.putDouble(gainSum).putDouble(lossSum).putInt(lossCount).putDouble(previousClose);
+    }
+
+    @Override
+    public void restoreState(ByteBuffer in) {
+        gains.restoreState(in);
+        losses.restoreState(in);
+        gainSum = in.getDouble();
+        lossSum = in.getDouble();
+        lossCount = in.getInt();
+        previousClose = in.getDouble();
+    }
+}
@@ -0,0 +1,226 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Per-phase wall time, allocation and counters of a run, switched on with -Dbacktest.profile=true. ENABLED is a
+// static final, so with profiling off the JIT removes the guarded calls and the hot loops run as before.
+//
+// Callers bracket a phase as
+//     long start = RunProfiler.ENABLED ? RunProfiler.begin() : 0;
+//     ...
+//     if (RunProfiler.ENABLED) RunProfiler.end(Phase.SIGNALS, start);
+// Allocation is the calling thread's (com.sun.management.ThreadMXBean), so the worker threads of the parallel
+// CSV parser are not counted in LOAD. Every phase also emits an org.example.Phase JFR event when a recording has
+// it enabled (java -XX:StartFlightRecording ...). Totals are summed over all threads and runs of the JVM.
+public final class RunProfiler {
+    public static final boolean ENABLED = Boolean.getBoolean("backtest.profile");
+
+    public enum Phase {
+        // CSV or snapshot read, parse, date filter and sort, or decoding of indexed tickers
+        LOAD,
+        // Calendar alignment into the MarketPanel; with indexed data this includes the LOAD of the tickers it decodes
+        PANEL,
+        INDICATORS,
+        SIGNALS,
+        // Position sizing and trades, including OrderBook fills
+        SIZING,
+        MARKING,
+        // Market returns, PerformanceMetrics and the BacktestResult
+        METRICS
+    }
+
+    public enum Counter {
+        BARS_LOADED,
+        // Observed bars fed to the indicator bank
+        BARS_PROCESSED,
+        // Non-zero signals
+        SIGNALS_EMITTED,
+        TRADES_EXECUTED
+    }
+
+    @Name("org.example.Phase")
+    @Label("Backtest Phase")
+    @Category("Backtest")
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+
+        @Label("Allocation Measured")
+        @Description("False when the JVM does not support thread allocation measurement")
+        boolean allocationMeasured;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final boolean ALLOCATION = ENABLED && THREADS.isThreadAllocatedMemorySupported()
+            && THREADS.isThreadAllocatedMemoryEnabled();
+    // Only registered when profiling, so jdk.jfr isn't initialized otherwise
+    private static final EventType PHASE_EVENT = ENABLED ? EventType.getEventType(PhaseEvent.class) : null;
+    // Allocated bytes at begin(), per thread and nesting depth; phases nest at most a few levels deep
+    private static final ThreadLocal<long[]> ALLOCATED_AT_BEGIN = ThreadLocal.withInitial(() -> new long[8]);
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private static final LongAdder[] NANOS = adders(Phase.values().length);
+    private static final LongAdder[] CALLS = adders(Phase.values().length);
+    private static final LongAdder[] BYTES = adders(Phase.values().length);
+    private static final LongAdder[] COUNTS = adders(Counter.values().length);
+
+    private RunProfiler() {
+    }
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    // Start of a phase; returns the start time to pass to end()
+    public static long begin() {
+        int[] depth = DEPTH.get();
+        long[] allocated = ALLOCATED_AT_BEGIN.get();
+        if (depth[0] < allocated.length) {
+            allocated[depth[0]] = ALLOCATION ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+        }
+        depth[0]++;
+        return System.nanoTime();
+    }
+
+    public static void end(Phase phase, long start) {
+        long elapsed = System.nanoTime() - start;
+        int[] depth = DEPTH.get();
+        depth[0]--;
+        long allocated = 0;
+        if (ALLOCATION && depth[0] < ALLOCATED_AT_BEGIN.get().length) {
+            allocated = THREADS.getCurrentThreadAllocatedBytes() - ALLOCATED_AT_BEGIN.get()[depth[0]];
+        }
+        NANOS[phase.ordinal()].add(elapsed);
+        CALLS[phase.ordinal()].increment();
+        BYTES[phase.ordinal()].add(allocated);
+
+        if (PHASE_EVENT.isEnabled()) {
+            PhaseEvent event = new PhaseEvent();
+            event.phase = phase.name();
+            event.elapsed = elapsed;
+            event.allocated = allocated;
+            event.allocationMeasured = ALLOCATION;
+            event.commit();
+        }
+    }
+
+    public static void count(Counter counter, long amount) {
+        COUNTS[counter.ordinal()].add(amount);
+    }
+
+    public static long nanos(Phase phase) { return NANOS[phase.ordinal()].sum(); }
+    public static long calls(Phase phase) { return CALLS[phase.ordinal()].sum(); }
+    public static long allocatedBytes(Phase phase) { return BYTES[phase.ordinal()].sum(); }
+    public static long count(Counter counter) { return COUNTS[counter.ordinal()].sum(); }
+
+    public static void reset() {
+        for (LongAdder[] adders : new LongAdder[][]{NANOS, CALLS, BYTES, COUNTS}) {
+            for (LongAdder adder : adders) adder.reset();
+        }
+    }
+
+    // Prints the summary and writes the JSON report next to it; does nothing when profiling is off
+    public static void report(String run, Path json, PrintStream out) {
+        if (!ENABLED) {
+            return;
+        }
+        printSummary(run, out);
+        try {
+            Path parent = json.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Files.writeString(json, toJson(run));
+            out.println("Run report written to " + json);
+        } catch (IOException e) {
+            System.err.println("Could not write run report " + json + ": " + e);
+        }
+    }
+
+    // Where report() writes unless the caller has a better place: -Dbacktest.profile.report, else run-report.json
+    public static Path defaultReportPath() {
+        return Path.of(System.getProperty("backtest.profile.report", "run-report.json"));
+    }
+
+    public static void printSummary(String run, PrintStream out) {
+        long total = 0;
+        for (Phase phase : Phase.values()) total += nanos(phase);
+        out.printf("%nProfile of %s%n", run);
+        out.printf("%-12s %12s %7s %12s %14s%n", "phase", "ms", "share", "calls", "allocated MB");
+        for (Phase phase : Phase.values()) {
+            if (calls(phase) == 0) continue;
+            out.printf("%-12s %12.1f %6.1f%% %12d %14s%n", phase, nanos(phase) / 1e6,
+                    total == 0 ? 0 : 100.0 * nanos(phase) / total, calls(phase),
+                    ALLOCATION ? String.format("%.1f", allocatedBytes(phase) / 1e6) : "n/a");
+        }
+        for (Counter counter : Counter.values()) {
+            out.printf("%-18s %d%n", counter.name().toLowerCase(), count(counter));
+        }
+    }
+
+    public static String toJson(String run) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"run\": \"").append(escape(run)).append("\",\n");
+        json.append("  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"allocationMeasured\": ").append(ALLOCATION).append(",\n");
+        json.append("  \"phases\": {");
+        Phase[] phases = Phase.values();
+        for (int i = 0; i < phases.length; i++) {
+            Phase phase = phases[i];
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    \"").append(phase.name().toLowerCase()).append("\": {\"nanos\": ").append(nanos(phase))
+                    .append(", \"calls\": ").append(calls(phase))
+                    .append(", \"allocatedBytes\": ").append(allocatedBytes(phase)).append('}');
+        }
+        json.append("\n  },\n  \"counters\": {");
+        Counter[] counters = Counter.values();
+        for (int i = 0; i < counters.length; i++) {
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    \"").append(counters[i].name().toLowerCase()).append("\": ").append(count(counters[i]));
+        }
+        json.append("\n  }\n}\n");
+        return json.toString();
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Least-recently-used cache of decoded PriceSeries, bounded by the total number of bars it holds (about 52
+// bytes each). The most recent series is always kept, even when it alone is over the bound. Decoding runs
+// outside the lock, so two threads missing on the same ticker at once may both decode it; the second result
+// simply replaces the first.
+public final class SeriesCache {
+
+    public interface Loader {
+        // Returns null for an unknown ticker
+        PriceSeries load(String ticker) throws IOException;
+    }
+
+    private final long maxBars;
+    private final Loader loader;
+    private final LinkedHashMap<String, PriceSeries> series = new LinkedHashMap<>(16, 0.75f, true);
+    private long bars;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SeriesCache(long maxBars, Loader loader) {
+        if (maxBars <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive, got " + maxBars);
+        }
+        this.maxBars = maxBars;
+        this.loader = loader;
+    }
+
+    public PriceSeries get(String ticker) throws IOException {
+        synchronized (this) {
+            PriceSeries cached = series.get(ticker);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        PriceSeries loaded = loader.load(ticker);
+        if (loaded == null) {
+            return null;
+        }
+        synchronized (this) {
+            PriceSeries previous = series.put(ticker, loaded);
+            if (previous != null) {
+                bars -= previous.size();
+            }
+            bars += loaded.size();
+            Iterator<Map.Entry<String, PriceSeries>> eldest = series.entrySet().iterator();
+            while (bars > maxBars && series.size() > 1) {
+                bars -= eldest.next().getValue().size();
+                eldest.remove();
+                evictions++;
+            }
+        }
+        return loaded;
+    }
+
+    public synchronized void clear() {
+        series.clear();
+        bars = 0;
+    }
+
+    public long getMaxBars() { return maxBars; }
+    public synchronized long getCachedBars() { return bars; }
+    public synchronized int getCachedSeries() { return series.size(); }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d series, %d of %d bars cached, %d hits, %d misses, %d evictions",
+                series.size(), bars, maxBars, hits, misses, evictions);
+    }
+}
@@ -0,0 +1,442 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Backtest of a universe too large for one heap, split into partitions of its tickers that run independently,
+// each holding only its own tickers. Every partition is run on the calendar of the whole universe with the
+// capital its sleeves have in the whole, and writes a Partial: its daily values in exact 1e-6 units and the
+// sum and count of its members' daily returns. merge() adds the partials up into the portfolio values, returns
+// and metrics of the whole, identical to a single run over all tickers; the equal-weighted market return is the
+// sum over partitions divided by the count, so it and the regression only differ in the last bits from the
+// single run, which sums in one pass.
+//
+// Partitions only add up for PER_SYMBOL strategies in FIXED_POINT, as POOLED cash is shared across tickers.
+// The coordinator indexes the CSV once (see CsvTickerIndex), writes the calendar and the ticker lists to the
+// work directory, and starts one worker JVM per partition, or runs them on threads with --in-process.
+public class ShardedBacktest {
+    private static final int MAGIC = 0x44524853; // "SHRD"
+    private static final int CALENDAR_MAGIC = 0x4C414353; // "SCAL"
+    private static final int VERSION = 1;
+
+    // What one partition contributes to the whole
+    public static final class Partial {
+        private final int members;
+        private final int marketFrom;
+        private final long initialValue;
+        private final long[] values;
+        private final double[] marketTotals;
+        private final int[] marketContributors;
+        // null with immediate execution
+        private final OrderBook.Stats execution;
+
+        public Partial(int members, int marketFrom, long initialValue, long[] values, double[] marketTotals,
+                       int[] marketContributors, OrderBook.Stats execution) {
+            this.members = members;
+            this.marketFrom = marketFrom;
+            this.initialValue = initialValue;
+            this.values = values;
+            this.marketTotals = marketTotals;
+            this.marketContributors = marketContributors;
+            this.execution = execution;
+        }
+
+        public int getMembers() { return members; }
+        public int getMarketFrom() { return marketFrom; }
+        public int getCalendarDays() { return marketTotals.length; }
+
+        public void write(Path path) throws IOException {
+            int days = marketTotals.length;
+            ByteBuffer buffer = ByteBuffer.allocate(32 + 8 * values.length + 12 * days + 1 + 48)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(members).putInt(marketFrom).putInt(days).putInt(values.length)
+                    .putLong(initialValue);
+            for (long value : values) buffer.putLong(value);
+            for (double total : marketTotals) buffer.putDouble(total);
+            for (int count : marketContributors) buffer.putInt(count);
+            buffer.put((byte) (execution == null ? 0 : 1));
+            if (execution != null) {
+                buffer.putLong(execution.getSubmitted()).putLong(execution.getFills())
+                        .putLong(execution.getFilledShares()).putLong(execution.getExpiredShares())
+                        .putDouble(execution.getCommissions()).putDouble(execution.getSlippage());
+            }
+            writeAtomically(path, Arrays.copyOf(buffer.array(), buffer.position()));
+        }
+
+        public static Partial read(Path path) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < 32 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a partial result: " + path);
+            }
+            int members = buffer.getInt();
+            int marketFrom = buffer.getInt();
+            int days = buffer.getInt();
+            long[] values = new long[buffer.getInt()];
+            long initialValue = buffer.getLong();
+            for (int i = 0; i < values.length; i++) values[i] = buffer.getLong();
+            double[] totals = new double[days];
+            for (int i = 0; i < days; i++) totals[i] = buffer.getDouble();
+            int[] contributors = new int[days];
+            for (int i = 0; i < days; i++) contributors[i] = buffer.getInt();
+            OrderBook.Stats execution = null;
+            if (buffer.get() != 0) {
+                execution = new OrderBook.Stats(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                        buffer.getDouble(), buffer.getDouble());
+            }
+            return new Partial(members, marketFrom, initialValue, values, totals, contributors, execution);
+        }
+    }
+
+    private static void writeAtomically(Path path, byte[] bytes) throws IOException {
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, bytes);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    static void writeCalendar(Path path, int[] epochDays) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(12 + 4 * epochDays.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(CALENDAR_MAGIC).putInt(VERSION).putInt(epochDays.length);
+        for (int day : epochDays) buffer.putInt(day);
+        writeAtomically(path, buffer.array());
+    }
+
+    static int[] readCalendar(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 12 || buffer.getInt() != CALENDAR_MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a calendar: " + path);
+        }
+        int[] days = new int[buffer.getInt()];
+        for (int i = 0; i < days.length; i++) days[i] = buffer.getInt();
+        return days;
+    }
+
+    // Sorted union of the calendar and the series' days
+    static int[] union(int[] calendar, PriceSeries series) {
+        int[] merged = new int[calendar.length + series.size()];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < calendar.length || j < series.size()) {
+            int day = j == series.size() || (i < calendar.length && calendar[i] <= series.epochDay(j))
+                    ? calendar[i++] : series.epochDay(j++);
+            if (n == 0 || merged[n - 1] != day) merged[n++] = day;
+        }
+        return Arrays.copyOf(merged, n);
+    }
+
+    private static void checkPartitionable(Strategy strategy) {
+        if (strategy.allocation() != Portfolio.Allocation.PER_SYMBOL) {
+            throw new IllegalArgumentException(strategy.getName() + " pools its cash across tickers, so its "
+                    + "partitions are not independent; only PER_SYMBOL strategies can be sharded");
+        }
+    }
+
+    // Runs one partition: the tickers, on the calendar of the whole universe, with `sleeves` sleeves in all
+    public static Partial runPartition(StockDataManager dataManager, List<String> tickers, int[] calendar,
+                                       int sleeves, Strategy strategy, double initialCapital, ExecutionModel execution) {
+        checkPartitionable(strategy);
+        dataManager.setPanelStocks(tickers);
+        dataManager.setPanelCalendar(calendar);
+        BacktestEngine engine = new BacktestEngine(dataManager, initialCapital, ArithmeticMode.FIXED_POINT, execution);
+        FixedPointPortfolio portfolio = (FixedPointPortfolio) engine.runPartition(strategy, sleeves);
+
+        MarketPanel panel = dataManager.getPanel();
+        double[] totals = new double[panel.dayCount()];
+        int[] contributors = new int[panel.dayCount()];
+        StockDataManager.sumMarketReturns(panel, Universe.spanning(panel), totals, contributors);
+        OrderBook orders = portfolio.getOrderBook();
+        return new Partial(tickers.size(), strategy.warmupDays(), portfolio.initialValueUnits(), portfolio.valueUnits(),
+                totals, contributors, orders == null ? null : orders.stats());
+    }
+
+    // The result of the whole universe from the partials of all of its partitions
+    public static BacktestResult merge(List<Partial> partials, Strategy strategy, double initialCapital) {
+        if (partials.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to merge");
+        }
+        Partial first = partials.get(0);
+        int days = first.marketTotals.length;
+        int valueDays = first.values.length;
+        long initial = 0;
+        long[] totals = new long[valueDays];
+        double[] marketTotals = new double[days];
+        int[] contributors = new int[days];
+        OrderBook.Stats execution = null;
+        for (Partial partial : partials) {
+            if (partial.marketTotals.length != days || partial.values.length != valueDays
+                    || partial.marketFrom != first.marketFrom) {
+                throw new IllegalArgumentException("Partials were run on different calendars or strategies");
+            }
+            initial = Math.addExact(initial, partial.initialValue);
+            for (int i = 0; i < valueDays; i++) {
+                totals[i] = Math.addExact(totals[i], partial.values[i]);
+            }
+            for (int i = 0; i < days; i++) {
+                marketTotals[i] += partial.marketTotals[i];
+                contributors[i] += partial.marketContributors[i];
+            }
+            if (partial.execution != null) {
+                OrderBook.Stats e = partial.execution;
+                execution = execution == null ? e : new OrderBook.Stats(execution.getSubmitted() + e.getSubmitted(),
+                        execution.getFills() + e.getFills(), execution.getFilledShares() + e.getFilledShares(),
+                        execution.getExpiredShares() + e.getExpiredShares(),
+                        execution.getCommissions() + e.getCommissions(), execution.getSlippage() + e.getSlippage());
+            }
+        }
+
+        // As FixedPointPortfolio.markToMarket and StockDataManager.equalWeightedMarketReturns do for a single run
+        double[] dailyReturns = new double[valueDays];
+        double[] values = new double[valueDays];
+        long value = initial;
+        for (int i = 0; i < valueDays; i++) {
+            dailyReturns[i] = (double) (totals[i] - value) / value;
+            values[i] = (double) totals[i] / FixedPointPortfolio.SCALE;
+            value = totals[i];
+        }
+        double[] marketReturns = new double[days];
+        for (int i = 1; i < days; i++) {
+            marketReturns[i] = contributors[i] == 0 ? 0 : marketTotals[i] / contributors[i];
+        }
+
+        PerformanceMetrics metrics = PerformanceMetrics.of(dailyReturns, values, marketReturns, first.marketFrom);
+        return new BacktestResult(strategy.getName(), strategy.getParameters(), initialCapital,
+                BigDecimal.valueOf(value, FixedPointPortfolio.SCALE_DIGITS), metrics.getAlpha(), metrics.getBeta(),
+                metrics.getHitRate(), metrics.getMaxDrawdown(), metrics.getAnnualizedSharpeRatio(), dailyReturns,
+                values, metrics, marketReturns, first.marketFrom, execution);
+    }
+
+    // Contiguous runs of the sorted tickers, as even as possible
+    static List<List<String>> partition(List<String> tickers, int shards) {
+        List<String> sorted = new ArrayList<>(tickers);
+        sorted.sort(null);
+        List<List<String>> partitions = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            List<String> part = sorted.subList(i * sorted.size() / shards, (i + 1) * sorted.size() / shards);
+            if (!part.isEmpty()) partitions.add(new ArrayList<>(part));
+        }
+        return partitions;
+    }
+
+    private static void compare(BacktestResult sharded, BacktestResult single, PrintStream out) {
+        boolean values = Arrays.equals(sharded.getPortfolioValues(), single.getPortfolioValues())
+                && Arrays.equals(sharded.getDailyReturns(), single.getDailyReturns())
+                && sharded.getFinalCapital().equals(single.getFinalCapital());
+        boolean metrics = sharded.getSharpeRatio() == single.getSharpeRatio()
+                && sharded.getMaxDrawdown() == single.getMaxDrawdown()
+                && sharded.getAccuracy() == single.getAccuracy();
+        out.printf("Single run: values and returns %s, Sharpe, drawdown and accuracy %s, alpha %.3g and beta %.3g apart%n",
+                values ? "identical" : "DIFFERENT", metrics ? "identical" : "DIFFERENT",
+                Math.abs(sharded.getAlpha() - single.getAlpha()), Math.abs(sharded.getBeta() - single.getBeta()));
+    }
+
+    private static List<String> workerCommand(String[] strategyArgs, Path directory, int shard, int sleeves,
+                                              String csv, String heap) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        if (heap != null) command.add("-Xmx" + heap);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardedBacktest.class.getName());
+        command.add("--worker=" + shard);
+        command.add("--dir=" + directory);
+        command.add("--sleeves=" + sleeves);
+        command.add("--csv=" + csv);
+        command.addAll(Arrays.asList(strategyArgs));
+        return command;
+    }
+
+    // Usage: ShardedBacktest [--csv=path] [--shards=4] [--strategy=sma|class] [--short=10] [--long=50] [--rsi=14]
+    //                        [--atr-period=14] [--atr=3] [--execution=immediate|key=value,...] [--dir=work directory]
+    //                        [--heap=512m] [--in-process] [--verify]
+    // Each worker JVM gets -Xmx of --heap and the coordinator's JVM options. --verify also runs the whole
+    // universe in this process and compares.
+    public static void main(String[] args) throws Exception {
+        String csv = "stock_data/consolidated_stock_data.csv";
+        int shards = 4;
+        String strategyName = "sma";
+        StrategyParameters d = StrategyParameters.DEFAULT;
+        int shortWindow = d.getShortWindow();
+        int longWindow = d.getLongWindow();
+        int rsi = d.getRsiPeriod();
+        int atrPeriod = d.getAtrPeriod();
+        double atr = d.getAtrMultiplier();
+        ExecutionModel execution = ExecutionModel.IMMEDIATE;
+        Path directory = null;
+        String heap = null;
+        boolean inProcess = false;
+        boolean verify = false;
+        int worker = -1;
+        int sleeves = 0;
+        List<String> strategyArgs = new ArrayList<>();
+
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = eq < 0 ? arg : arg.substring(0, eq);
+            String value = eq < 0 ? "" : arg.substring(eq + 1);
+            switch (name) {
+                case "--csv":
+                    csv = value;
+                    break;
+                case "--shards":
+                    shards = Integer.parseInt(value);
+                    break;
+                case "--strategy":
+                    strategyName = value;
+                    break;
+                case "--short":
+                    shortWindow = Integer.parseInt(value);
+                    break;
+                case "--long":
+                    longWindow = Integer.parseInt(value);
+                    break;
+                case "--rsi":
+                    rsi = Integer.parseInt(value);
+                    break;
+                case "--atr-period":
+                    atrPeriod = Integer.parseInt(value);
+                    break;
+                case "--atr":
+                    atr = Double.parseDouble(value);
+                    break;
+                case "--execution":
+                    execution = ExecutionModel.parse(value);
+                    break;
+                case "--dir":
+                    directory = Paths.get(value);
+                    break;
+                case "--heap":
+                    heap = value;
+                    break;
+                case "--in-process":
+                    inProcess = true;
+                    break;
+                case "--verify":
+                    verify = true;
+                    break;
+                case "--worker":
+                    worker = Integer.parseInt(value);
+                    break;
+                case "--sleeves":
+                    sleeves = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+            if (List.of("--strategy", "--short", "--long", "--rsi", "--atr-period", "--atr", "--execution").contains(name)) {
+                strategyArgs.add(arg);
+            }
+        }
+        StrategyParameters parameters = new StrategyParameters(shortWindow, longWindow, rsi, atrPeriod, atr);
+        BatchRunner.Job job = new BatchRunner.Job("sharded", strategyName, parameters, List.of());
+        double capital = BacktestEngine.DEFAULT_INITIAL_CAPITAL;
+
+        if (worker >= 0) {
+            List<String> tickers = Files.readAllLines(directory.resolve("shard-" + worker + ".tickers"));
+            int[] calendar = readCalendar(directory.resolve("calendar"));
+            StockDataManager dataManager = new StockDataManager();
+            dataManager.indexHistoricalDataFromCSV(csv);
+            runPartition(dataManager, tickers, calendar, sleeves, job.newStrategy(), capital, execution)
+                    .write(directory.resolve("shard-" + worker + ".partial"));
+            return;
+        }
+
+        checkPartitionable(job.newStrategy());
+        if (directory == null) {
+            directory = Files.createTempDirectory("sharded-backtest");
+        }
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+
+        // The calendar is the union of every ticker's days, read one ticker at a time
+        StockDataManager index = new StockDataManager();
+        index.indexHistoricalDataFromCSV(csv, 1);
+        List<String> tickers = index.getStocks();
+        int[] calendar = new int[0];
+        for (String ticker : tickers) {
+            calendar = union(calendar, index.getSeries(ticker));
+        }
+        List<List<String>> partitions = partition(tickers, shards);
+        writeCalendar(directory.resolve("calendar"), calendar);
+        for (int i = 0; i < partitions.size(); i++) {
+            Files.write(directory.resolve("shard-" + i + ".tickers"), partitions.get(i));
+        }
+        long indexed = System.nanoTime();
+
+        if (inProcess) {
+            ExecutorService pool = Executors.newFixedThreadPool(partitions.size());
+            try {
+                List<Future<Void>> running = new ArrayList<>();
+                for (int i = 0; i < partitions.size(); i++) {
+                    List<String> part = partitions.get(i);
+                    Path out = directory.resolve("shard-" + i + ".partial");
+                    int[] days = calendar;
+                    ExecutionModel model = execution;
+                    String source = csv;
+                    running.add(pool.submit(() -> {
+                        StockDataManager dataManager = new StockDataManager();
+                        dataManager.indexHistoricalDataFromCSV(source);
+                        runPartition(dataManager, part, days, tickers.size(), job.newStrategy(), capital, model)
+                                .write(out);
+                        return null;
+                    }));
+                }
+                for (Future<Void> future : running) future.get();
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            List<Process> processes = new ArrayList<>();
+            for (int i = 0; i < partitions.size(); i++) {
+                processes.add(new ProcessBuilder(workerCommand(strategyArgs.toArray(new String[0]), directory, i,
+                        tickers.size(), csv, heap)).inheritIO().start());
+            }
+            for (int i = 0; i < processes.size(); i++) {
+                int exit = processes.get(i).waitFor();
+                if (exit != 0) {
+                    throw new IOException("Shard " + i + " failed with exit code " + exit);
+                }
+            }
+        }
+        long ran = System.nanoTime();
+
+        List<Partial> partials = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            partials.add(Partial.read(directory.resolve("shard-" + i + ".partial")));
+        }
+        BacktestResult result = merge(partials, job.newStrategy(), capital);
+        long merged = System.nanoTime();
+
+        System.out.printf("%d tickers in %d partitions (%s): calendar in %.2f s, partitions in %.2f s, merge in %.1f ms%n",
+                tickers.size(), partitions.size(), inProcess ? "threads" : "worker processes",
+                (indexed - start) / 1e9, (ran - indexed) / 1e9, (merged - ran) / 1e6);
+        result.print(System.out);
+
+        if (verify) {
+            StockDataManager dataManager = new StockDataManager();
+            dataManager.loadHistoricalDataFromCSV(csv);
+            BacktestResult single = new BacktestEngine(dataManager, capital, ArithmeticMode.FIXED_POINT, execution)
+                    .run(job.newStrategy());
+            compare(result, single, System.out);
+        }
+        RunProfiler.report("ShardedBacktest " + strategyName, RunProfiler.defaultReportPath(), System.out);
+    }
+}
@@ -0,0 +1,50 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+// Simple moving average of the close over the last `window` bars, kept as a rolling sum.
+public final class SmaIndicator implements StatefulIndicator {
+    private final int window;
+    private final DoubleRingBuffer prices;
+    private double sum;
+
+    public SmaIndicator(int window) {
+        this.window = window;
+        this.prices = new DoubleRingBuffer(window);
+    }
+
+    @Override
+    public void update(double high, double low, double close) {
+        sum += close - prices.add(close);
+        if (prices.wrapped()) {
+            sum = prices.sum();
+        }
+    }
+
+    @Override
+    public double value() {
+        return sum / window;
+    }
+
+    @Override
+    public boolean isReady() {
+        return prices.isFull();
+    }
+
+    @Override
+    public int stateBytes() {
+        return prices.stateBytes() + 8;
+    }
+
+    @Override
+    public void saveState(ByteBuffer out) {
+        prices.saveState(out);
+        out.putDouble(sum);
+    }
+
+    @Override
+    public void restoreState(ByteBuffer in) {
+        prices.restoreState(in);
+        sum = in.getDouble();
+    }
+}
@@ -0,0 +1,16 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+// Indicator whose state after a bar can be saved and restored into a new instance. IndicatorCache keeps the state
+// as of the last cached bar, so that a series with appended bars is extended rather than recomputed; indicators
+// that don't implement this are only cached in memory.
+public interface StatefulIndicator extends Indicator {
+    // Bytes saveState writes
+    int stateBytes();
+
+    void saveState(ByteBuffer out);
+
+    // Into an indicator created with the same parameters as the one that saved the state
+    void restoreState(ByteBuffer in);
+}
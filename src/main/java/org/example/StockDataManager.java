@@ -1,121 +1,272 @@
 package org.example;
 
-import org.jetbrains.annotations.NotNull;
-
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class StockDataManager {
     private static final LocalDate START_DATE = LocalDate.of(2020, 1, 1);
     private static final LocalDate END_DATE = LocalDate.of(2024, 11, 30);
+    // About 100 MB of decoded bars
+    public static final long DEFAULT_CACHED_BARS = 2_000_000;
+
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final Map<String, PriceSeries> historicalData = new HashMap<>();
+    private final Map<MissingDataPolicy, MarketPanel> panels = new EnumMap<>(MissingDataPolicy.class);
+    private final Map<ArithmeticMode, Map<Universe, double[]>> marketReturns = new EnumMap<>(ArithmeticMode.class);
+    private boolean useSnapshots = true;
+    private boolean sampledKeys;
+    private CsvTickerIndex index;
+    private SeriesCache cache;
+    private List<String> panelStocks;
+    private int[] panelCalendar;
+    private IndicatorCache indicatorCache;
+
+    public StockDataManager() {
+        this(START_DATE, END_DATE);
+    }
+
+    // Only rows dated within [startDate, endDate] are loaded
+    public StockDataManager(LocalDate startDate, LocalDate endDate) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    // When enabled (the default) the parsed data is cached in a binary snapshot next to the CSV
+    public void setUseSnapshots(boolean useSnapshots) {
+        this.useSnapshots = useSnapshots;
+    }
 
-    private final Map<String, List<StockData>> historicalData = new HashMap<>();
+    // Keys the snapshot and the ticker index on a sampled hash of the CSV instead of all of its bytes (see
+    // MarketDataSnapshot.keyOf). Only for sources that are replaced rather than edited in place.
+    public void setSampledSourceKeys(boolean sampledKeys) {
+        this.sampledKeys = sampledKeys;
+    }
 
     public void loadHistoricalDataFromCSV(String filePath) {
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            // Read and skip header
-            String headerLine = br.readLine();
-
-            // Validate header
-            String[] headers = headerLine.split(",");
-            if (headers.length < 8 || !headers[7].trim().equalsIgnoreCase("Ticker")) {
-                throw new IllegalArgumentException("Invalid CSV format. Expected 8 columns with Ticker as last column.");
+        long start = RunProfiler.ENABLED ? RunProfiler.begin() : 0;
+        try {
+            Path source = Paths.get(filePath);
+            Map<String, PriceSeries> loaded = useSnapshots ? loadWithSnapshot(source) : parse(source);
+            historicalData.putAll(loaded);
+            if (RunProfiler.ENABLED) {
+                for (PriceSeries series : loaded.values()) {
+                    RunProfiler.count(RunProfiler.Counter.BARS_LOADED, series.size());
+                }
             }
+            synchronized (this) {
+                panels.clear();
+                marketReturns.clear();
+            }
+            System.out.println("Loaded historical data for " + historicalData.size() + " stocks");
 
-            // Prepare a map to collect data for each stock
-            Map<String, List<StockData>> stockDataMap = new HashMap<>();
-
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] columns = line.split(",");
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (RunProfiler.ENABLED) RunProfiler.end(RunProfiler.Phase.LOAD, start);
+        }
+    }
 
-                // Ensure we have enough columns
-                if (columns.length < 8) continue;
+    // Lazy alternative to loadHistoricalDataFromCSV for files with far more tickers than a run needs: only the
+    // CsvTickerIndex is read (or built) now, and each ticker is decoded when first requested and kept in an LRU
+    // SeriesCache of at most cachedBars bars
+    public void indexHistoricalDataFromCSV(String filePath) {
+        indexHistoricalDataFromCSV(filePath, DEFAULT_CACHED_BARS);
+    }
 
-                try {
-                    // Parse CSV columns
-                    LocalDate date = LocalDate.parse(columns[0]);
-                    String ticker = columns[7].trim(); // Last column is Ticker
-                    StockData stockData = getData(columns, date, ticker);
+    public void indexHistoricalDataFromCSV(String filePath, long cachedBars) {
+        long start = RunProfiler.ENABLED ? RunProfiler.begin() : 0;
+        try {
+            CsvTickerIndex opened = CsvTickerIndex.open(Paths.get(filePath), startDate, endDate, sampledKeys);
+            synchronized (this) {
+                index = opened;
+                cache = new SeriesCache(cachedBars, ticker -> decode(opened, ticker));
+                panels.clear();
+                marketReturns.clear();
+            }
+            System.out.println("Indexed historical data for " + opened.size() + " stocks");
 
-                    // Add to stock-specific list
-                    stockDataMap.computeIfAbsent(ticker, k -> new ArrayList<>()).add(stockData);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (RunProfiler.ENABLED) RunProfiler.end(RunProfiler.Phase.LOAD, start);
+        }
+    }
 
-                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
-                    System.err.println("Error parsing line: " + line);
-                }
+    private static PriceSeries decode(CsvTickerIndex index, String ticker) throws IOException {
+        long start = RunProfiler.ENABLED ? RunProfiler.begin() : 0;
+        try {
+            PriceSeries series = index.load(ticker);
+            if (RunProfiler.ENABLED && series != null) {
+                RunProfiler.count(RunProfiler.Counter.BARS_LOADED, series.size());
             }
+            return series;
+        } finally {
+            if (RunProfiler.ENABLED) RunProfiler.end(RunProfiler.Phase.LOAD, start);
+        }
+    }
 
-            // Filter and store only the stocks in our STOCKS list
-            for (String stock : stockDataMap.keySet()) {
-                List<StockData> stockData = stockDataMap.get(stock);
-                if (stockData != null) {
-                    stockData.sort(Comparator.comparing(StockData::getDate));
+    private Map<String, PriceSeries> parse(Path source) throws IOException {
+        return new MappedCsvLoader(startDate, endDate).load(source);
+    }
 
-                    stockData = stockData.stream()
-                            .filter(sd -> !sd.getDate().isBefore(START_DATE) && !sd.getDate().isAfter(END_DATE))
-                            .collect(Collectors.toList());
+    private Map<String, PriceSeries> loadWithSnapshot(Path source) throws IOException {
+        Path snapshot = MarketDataSnapshot.snapshotPath(source);
+        MarketDataSnapshot.Key key = MarketDataSnapshot.keyOf(source, startDate, endDate, sampledKeys);
+        Map<String, PriceSeries> data = MarketDataSnapshot.read(snapshot, key);
+        if (data != null) {
+            return data;
+        }
 
-                    historicalData.put(stock, stockData);
-                }
-            }
+        data = parse(source);
+        try {
+            MarketDataSnapshot.write(snapshot, key, data);
+        } catch (IOException e) {
+            // The snapshot is only a cache, a read-only data directory shouldn't stop the run
+            System.err.println("Could not write snapshot " + snapshot + ": " + e);
+        }
+        return data;
+    }
 
-            System.out.println("Loaded historical data for " + historicalData.size() + " stocks");
+    // Compatibility view; new code should index the columns through getSeries instead.
+    public List<StockData> getHistoricalData(String symbol) {
+        PriceSeries series = getSeries(symbol);
+        return series == null ? null : series.asStockDataList();
+    }
 
+    public PriceSeries getSeries(String symbol) {
+        PriceSeries series = historicalData.get(symbol);
+        SeriesCache lazy = getSeriesCache();
+        if (series != null || lazy == null) {
+            return series;
+        }
+        try {
+            return lazy.get(symbol);
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new UncheckedIOException("Could not load " + symbol, e);
         }
     }
 
-    @NotNull
-    private static StockData getData(String[] columns, LocalDate date, String ticker) {
-        BigDecimal open = new BigDecimal(columns[1]);
-        BigDecimal high = new BigDecimal(columns[2]);
-        BigDecimal low = new BigDecimal(columns[3]);
-        BigDecimal close = new BigDecimal(columns[4]);
-        BigDecimal adjClose = new BigDecimal(columns[5]);
-        long volume = Long.parseLong(columns[6]);
+    // Every loaded or indexed symbol; indexed ones are listed without being decoded
+    public List<String> getStocks() {
+        List<String> stocks = new ArrayList<>(historicalData.keySet());
+        CsvTickerIndex indexed;
+        synchronized (this) {
+            indexed = index;
+        }
+        if (indexed != null) {
+            for (String ticker : indexed.tickers()) {
+                if (!historicalData.containsKey(ticker)) stocks.add(ticker);
+            }
+        }
+        return stocks;
+    }
 
-        // Create StockData object
-        return new StockData(date,open,high,low,close,adjClose,volume, ticker);
+    // Cache of the indexed data, or null when nothing was loaded through indexHistoricalDataFromCSV
+    public synchronized SeriesCache getSeriesCache() {
+        return cache;
     }
 
-    public List<StockData> getHistoricalData(String symbol) {
-        return historicalData.get(symbol);
+    // Restricts the panel, and so the strategies and market returns, to these symbols in this order; null goes
+    // back to all of getStocks(). Indexed data only decodes these tickers and has no panel until they are set:
+    // pass getStocks() to decode every ticker on purpose.
+    public synchronized void setPanelStocks(List<String> stocks) {
+        panelStocks = stocks == null ? null : new ArrayList<>(stocks);
+        panels.clear();
+        marketReturns.clear();
     }
 
-    public List<String> getStocks() {
-        return new ArrayList<>(historicalData.keySet());
+    // Indicator series cache for the engine runs over this data, or null (the default) to compute every run's
+    // indicators afresh
+    public synchronized void setIndicatorCache(IndicatorCache indicatorCache) {
+        this.indicatorCache = indicatorCache;
     }
 
+    public synchronized IndicatorCache getIndicatorCache() {
+        return indicatorCache;
+    }
+
+    // Epoch days the panel is built on instead of the union of its stocks' days, so that a partition of a larger
+    // universe keeps that universe's calendar (see ShardedBacktest); null goes back to the union
+    public synchronized void setPanelCalendar(int[] epochDays) {
+        panelCalendar = epochDays == null ? null : epochDays.clone();
+        panels.clear();
+        marketReturns.clear();
+    }
+
+    // Date-aligned panel over the panel stocks, or getStocks() when none are set, in that symbol order. Built on
+    // first use and shared afterwards. Indexed data needs setPanelStocks first, as the whole of getStocks() would
+    // decode every indexed ticker through the cache.
+    public MarketPanel getPanel() {
+        return getPanel(MissingDataPolicy.FORWARD_FILL);
+    }
+
+    public synchronized MarketPanel getPanel(MissingDataPolicy policy) {
+        MarketPanel panel = panels.get(policy);
+        if (panel == null) {
+            if (panelStocks == null && index != null) {
+                throw new IllegalStateException("Call setPanelStocks before building a panel over indexed data, "
+                        + "with getStocks() to decode all " + index.size() + " indexed tickers");
+            }
+            long start = RunProfiler.ENABLED ? RunProfiler.begin() : 0;
+            List<PriceSeries> universe = new ArrayList<>();
+            for (String stock : panelStocks == null ? getStocks() : panelStocks) {
+                PriceSeries series = getSeries(stock);
+                if (series == null) {
+                    throw new IllegalArgumentException("Unknown stock: " + stock);
+                }
+                universe.add(series);
+            }
+            panel = panelCalendar == null ? MarketPanel.build(universe, policy)
+                    : MarketPanel.build(universe, policy, panelCalendar);
+            panels.put(policy, panel);
+            if (RunProfiler.ENABLED) RunProfiler.end(RunProfiler.Phase.PANEL, start);
+        }
+        return panel;
+    }
+
+    // One entry per calendar day of the panel. A stock counts towards a day's average when it has a price on
+    // that day and the one before, so listings, delistings and gaps don't shift other stocks' dates.
     public List<BigDecimal> calculateEqualWeightedMarketReturns() {
+        return calculateEqualWeightedMarketReturns(Universe.all(getPanel()));
+    }
+
+    // Same over the universe's members, one entry per day of the universe's calendar
+    public List<BigDecimal> calculateEqualWeightedMarketReturns(Universe universe) {
+        MarketPanel panel = getPanel();
         List<BigDecimal> marketReturns = new ArrayList<>();
+        if (universe.dayCount() == 0) {
+            return marketReturns;
+        }
         marketReturns.add(BigDecimal.ZERO);
-        List<String> stocks = getStocks();
-        int dataLength = getHistoricalData(stocks.get(0)).size();
 
-        for (int i = 1; i < dataLength; i++) {
+        for (int i = 1; i < universe.dayCount(); i++) {
+            int previous = universe.day(i-1);
+            int d = universe.day(i);
             BigDecimal totalReturn = BigDecimal.ZERO;
+            int contributors = 0;
 
-            for (String stock : stocks) {
-                List<StockData> stockData = getHistoricalData(stock);
-                BigDecimal previousClose = stockData.get(i-1).getAdjClose();
-                BigDecimal currentClose = stockData.get(i).getAdjClose();
+            for (int m = 0; m < universe.size(); m++) {
+                int s = universe.symbol(m);
+                if (!panel.hasPrice(previous, s) || !panel.hasPrice(d, s)) continue;
+                BigDecimal previousClose = BigDecimal.valueOf(panel.adjClose(previous, s));
+                BigDecimal currentClose = BigDecimal.valueOf(panel.adjClose(d, s));
 
                 BigDecimal stockReturn = currentClose.subtract(previousClose)
                         .divide(previousClose, MathContext.DECIMAL128);
 
                 totalReturn = totalReturn.add(stockReturn);
+                contributors++;
             }
 
-            BigDecimal averageMarketReturn = totalReturn.divide(
-                    BigDecimal.valueOf(stocks.size()),
+            BigDecimal averageMarketReturn = contributors == 0 ? BigDecimal.ZERO : totalReturn.divide(
+                    BigDecimal.valueOf(contributors),
                     MathContext.DECIMAL128
             );
 
@@ -125,19 +276,69 @@ public class StockDataManager {
         return marketReturns;
     }
 
+    // Market returns for a run in the given arithmetic: DECIMAL converts the BigDecimal calculation above,
+    // FIXED_POINT computes the same averages in double. Computed once per universe and mode until the next load;
+    // the array is shared, so callers must not modify it.
+    public synchronized double[] equalWeightedMarketReturns(Universe universe, ArithmeticMode mode) {
+        return marketReturns.computeIfAbsent(mode, m -> new HashMap<>())
+                .computeIfAbsent(universe, u -> computeMarketReturns(u, mode));
+    }
+
+    private double[] computeMarketReturns(Universe universe, ArithmeticMode mode) {
+        if (mode == ArithmeticMode.DECIMAL) {
+            return toDoubles(calculateEqualWeightedMarketReturns(universe));
+        }
+        double[] totalReturns = new double[universe.dayCount()];
+        int[] contributors = new int[universe.dayCount()];
+        sumMarketReturns(getPanel(), universe, totalReturns, contributors);
+        double[] marketReturns = new double[universe.dayCount()];
+        for (int i = 1; i < universe.dayCount(); i++) {
+            marketReturns[i] = contributors[i] == 0 ? 0 : totalReturns[i] / contributors[i];
+        }
+        return marketReturns;
+    }
+
+    // Sum and count of the members' daily returns per day of the universe's calendar: the equal-weighted market
+    // return before the division, which partitions of a universe can add up (see ShardedBacktest)
+    static void sumMarketReturns(MarketPanel panel, Universe universe, double[] totalReturns, int[] contributors) {
+        for (int i = 1; i < universe.dayCount(); i++) {
+            int previous = universe.day(i-1);
+            int d = universe.day(i);
+            double totalReturn = 0;
+            int count = 0;
+
+            for (int m = 0; m < universe.size(); m++) {
+                int s = universe.symbol(m);
+                if (!panel.hasPrice(previous, s) || !panel.hasPrice(d, s)) continue;
+                double previousClose = panel.adjClose(previous, s);
+                totalReturn += (panel.adjClose(d, s) - previousClose) / previousClose;
+                count++;
+            }
+            totalReturns[i] = totalReturn;
+            contributors[i] = count;
+        }
+    }
+
     public double[] performRegression(List<BigDecimal> strategyReturns, int window) {
-        List<BigDecimal> marketReturns = calculateEqualWeightedMarketReturns();
-        int n = marketReturns.size()-window;
+        return performRegression(equalWeightedMarketReturns(Universe.all(getPanel()), ArithmeticMode.DECIMAL),
+                toDoubles(strategyReturns), window);
+    }
+
+    // Same as above with the market returns computed once by the caller and reused across strategies
+    public double[] performRegression(List<BigDecimal> marketReturns, List<BigDecimal> strategyReturns, int window) {
+        return performRegression(toDoubles(marketReturns), toDoubles(strategyReturns), window);
+    }
+
+    public double[] performRegression(double[] marketReturns, double[] strategyReturns, int window) {
+        int n = marketReturns.length-window;
 
         // Calculate means
-        double marketMean = marketReturns.stream()
+        double marketMean = Arrays.stream(marketReturns)
                 .skip(window)
-                .mapToDouble(BigDecimal::doubleValue)
                 .average()
                 .orElse(0.0);
 
-        double strategyMean = strategyReturns.stream()
-                .mapToDouble(BigDecimal::doubleValue)
+        double strategyMean = Arrays.stream(strategyReturns)
                 .average()
                 .orElse(0.0);
 
@@ -146,9 +347,9 @@ public class StockDataManager {
         double marketVariance = 0;
 
         for (int i = 0; i < n; i++) {
-            covariance += (marketReturns.get(i).doubleValue() - marketMean)
-                    * (strategyReturns.get(i).doubleValue() - strategyMean);
-            marketVariance += Math.pow(marketReturns.get(i).doubleValue() - marketMean, 2);
+            covariance += (marketReturns[i] - marketMean)
+                    * (strategyReturns[i] - strategyMean);
+            marketVariance += Math.pow(marketReturns[i] - marketMean, 2);
         }
 
         covariance /= (n - 1);
@@ -159,4 +360,8 @@ public class StockDataManager {
 
         return new double[]{alpha, beta};
     }
-}
\ No newline at end of file
+
+    private static double[] toDoubles(List<BigDecimal> values) {
+        return values.stream().mapToDouble(BigDecimal::doubleValue).toArray();
+    }
+}
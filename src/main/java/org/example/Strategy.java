@@ -0,0 +1,28 @@
+package org.example;
+
+// A trading rule driven by BacktestEngine. The engine walks the panel calendar once, advances the shared
+// indicators, and then calls generateSignals and sizePositions for every day of the strategy's universe from
+// its warmupDays()-th day on.
+// Instances hold their indicator handles, so each one is used for a single run.
+public interface Strategy {
+    String getName();
+
+    StrategyParameters getParameters();
+
+    // Day of the universe's calendar with the first trade and the first recorded portfolio value
+    int warmupDays();
+
+    default Portfolio.Allocation allocation() {
+        return Portfolio.Allocation.POOLED;
+    }
+
+    // Called once before the first day. Indicators are requested from the bank, so strategies that use
+    // the same indicator in one run share a single instance per symbol.
+    void initialize(MarketPanel panel, Universe universe, IndicatorBank indicators);
+
+    // Sets signals[s] to 1 (buy), -1 (sell) or 0 (hold) for every member s of the universe on panel day d
+    void generateSignals(MarketPanel panel, int d, int[] signals);
+
+    // Turns the day's signals into trades at that day's close
+    void sizePositions(MarketPanel panel, int d, int[] signals, Portfolio portfolio);
+}
@@ -0,0 +1,66 @@
+package org.example;
+
+import java.util.Objects;
+
+// Tunable inputs of a single backtest run. SimpleMovingAverage only uses the two windows.
+public final class StrategyParameters {
+    public static final int DEFAULT_ATR_PERIOD = 14;
+    public static final StrategyParameters DEFAULT = new StrategyParameters(10, 50, 14, 3.0);
+
+    private final int shortWindow;
+    private final int longWindow;
+    private final int rsiPeriod;
+    private final int atrPeriod;
+    private final double atrMultiplier;
+
+    // With the default ATR period
+    public StrategyParameters(int shortWindow, int longWindow, int rsiPeriod, double atrMultiplier) {
+        this(shortWindow, longWindow, rsiPeriod, DEFAULT_ATR_PERIOD, atrMultiplier);
+    }
+
+    public StrategyParameters(int shortWindow, int longWindow, int rsiPeriod, int atrPeriod, double atrMultiplier) {
+        if (shortWindow <= 0 || longWindow <= 0 || rsiPeriod <= 0 || atrPeriod <= 0) {
+            throw new IllegalArgumentException("Windows must be positive: " + shortWindow + ", " + longWindow + ", "
+                    + rsiPeriod + ", " + atrPeriod);
+        }
+        if (atrMultiplier <= 0) {
+            throw new IllegalArgumentException("ATR multiplier must be positive: " + atrMultiplier);
+        }
+        this.shortWindow = shortWindow;
+        this.longWindow = longWindow;
+        this.rsiPeriod = rsiPeriod;
+        this.atrPeriod = atrPeriod;
+        this.atrMultiplier = atrMultiplier;
+    }
+
+    public int getShortWindow() { return shortWindow; }
+    public int getLongWindow() { return longWindow; }
+    public int getRsiPeriod() { return rsiPeriod; }
+    public int getAtrPeriod() { return atrPeriod; }
+    public double getAtrMultiplier() { return atrMultiplier; }
+
+    // Bars of history needed before the first trade
+    public int warmupBars() {
+        return Math.max(Math.max(longWindow, shortWindow), Math.max(rsiPeriod, atrPeriod));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StrategyParameters)) return false;
+        StrategyParameters that = (StrategyParameters) o;
+        return shortWindow == that.shortWindow && longWindow == that.longWindow
+                && rsiPeriod == that.rsiPeriod && atrPeriod == that.atrPeriod && Double.compare(atrMultiplier, that.atrMultiplier) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(shortWindow, longWindow, rsiPeriod, atrPeriod, atrMultiplier);
+    }
+
+    @Override
+    public String toString() {
+        return "short=" + shortWindow + " long=" + longWindow + " rsi=" + rsiPeriod + " atr-period=" + atrPeriod
+                + " atr=" + atrMultiplier;
+    }
+}
@@ -0,0 +1,145 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+// Deterministic random-walk market data in the same layout as consolidated_stock_data.csv,
+// so benchmarks and footprint checks can run without the yfinance download.
+public class SyntheticMarketData {
+    public static final String HEADER = "Date,Open,High,Low,Close,Adj Close,Volume,Ticker";
+
+    private final int tickerCount;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final long seed;
+    private final boolean unevenHistories;
+
+    public SyntheticMarketData(int tickerCount, LocalDate startDate, LocalDate endDate, long seed) {
+        this(tickerCount, startDate, endDate, seed, false);
+    }
+
+    // With unevenHistories, some tickers list late or delist early and about 1% of rows are missing
+    public SyntheticMarketData(int tickerCount, LocalDate startDate, LocalDate endDate, long seed, boolean unevenHistories) {
+        this.tickerCount = tickerCount;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.seed = seed;
+        this.unevenHistories = unevenHistories;
+    }
+
+    public static String tickerName(int index) {
+        StringBuilder sb = new StringBuilder();
+        int n = index;
+        do {
+            sb.append((char) ('A' + n % 26));
+            n = n / 26 - 1;
+        } while (n >= 0);
+        return sb.reverse().toString();
+    }
+
+    public int[] tradingDays() {
+        int count = 0;
+        for (LocalDate d = startDate; !d.isAfter(endDate); d = d.plusDays(1)) {
+            if (isTradingDay(d)) count++;
+        }
+        int[] days = new int[count];
+        int i = 0;
+        for (LocalDate d = startDate; !d.isAfter(endDate); d = d.plusDays(1)) {
+            if (isTradingDay(d)) days[i++] = (int) d.toEpochDay();
+        }
+        return days;
+    }
+
+    private static boolean isTradingDay(LocalDate date) {
+        return date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY;
+    }
+
+    // Builds one ticker's bars directly into columns, without going through text.
+    public PriceSeries generateSeries(int tickerIndex, int[] days) {
+        SplittableRandom random = new SplittableRandom(seed * 31 + tickerIndex);
+        PriceSeries.Builder builder = new PriceSeries.Builder(tickerName(tickerIndex), days.length);
+        double price = 20 + random.nextDouble() * 480;
+        double drift = 0.0002 + random.nextDouble() * 0.0004;
+        double volatility = 0.01 + random.nextDouble() * 0.02;
+
+        // Gaps come from a separate generator so the price paths match the even-history data
+        SplittableRandom gaps = new SplittableRandom(~seed * 17 + tickerIndex);
+        int listed = 0;
+        int delisted = days.length;
+        if (unevenHistories) {
+            if (gaps.nextInt(3) == 0) listed = gaps.nextInt(Math.max(1, days.length * 3 / 10));
+            if (gaps.nextInt(5) == 0) delisted = days.length - gaps.nextInt(Math.max(1, days.length * 3 / 10));
+        }
+
+        for (int i = 0; i < days.length; i++) {
+            int day = days[i];
+            double open = price;
+            double close = Math.max(1.0, open * Math.exp(drift + volatility * gaussian(random)));
+            double high = Math.max(open, close) * (1 + random.nextDouble() * volatility);
+            double low = Math.min(open, close) * (1 - random.nextDouble() * volatility);
+            double adjClose = close * 0.98;
+            long volume = 100_000 + random.nextInt(10_000_000);
+
+            price = close;
+            boolean missing = unevenHistories && gaps.nextInt(100) == 0;
+            if (i < listed || i >= delisted || missing) continue;
+
+            // Prices are rounded through float to mimic the precision of the yfinance export
+            builder.add(day, (float) open, (float) high, (float) low, (float) close, (float) adjClose, volume);
+        }
+        return builder.build();
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        double u = 1.0 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v);
+    }
+
+    public void writeCsv(Path output) throws IOException {
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        int[] days = tradingDays();
+        try (BufferedWriter writer = Files.newBufferedWriter(output)) {
+            writer.write(HEADER);
+            writer.newLine();
+            StringBuilder line = new StringBuilder(128);
+            for (int t = 0; t < tickerCount; t++) {
+                PriceSeries series = generateSeries(t, days);
+                for (int i = 0; i < series.size(); i++) {
+                    line.setLength(0);
+                    line.append(LocalDate.ofEpochDay(series.epochDay(i))).append(',')
+                            .append(series.open(i)).append(',')
+                            .append(series.high(i)).append(',')
+                            .append(series.low(i)).append(',')
+                            .append(series.close(i)).append(',')
+                            .append(series.adjClose(i)).append(',')
+                            .append(series.volume(i)).append(',')
+                            .append(series.getTicker());
+                    writer.write(line.toString());
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    // Usage: SyntheticMarketData <output.csv> [tickers] [startDate] [endDate] [seed] [uneven]
+    public static void main(String[] args) throws IOException {
+        Path output = Paths.get(args.length > 0 ? args[0] : "stock_data/consolidated_stock_data.csv");
+        int tickers = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        LocalDate start = args.length > 2 ? LocalDate.parse(args[2]) : LocalDate.of(2020, 1, 1);
+        LocalDate end = args.length > 3 ? LocalDate.parse(args[3]) : LocalDate.of(2024, 11, 30);
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+        boolean uneven = args.length > 5 && args[5].equals("uneven");
+
+        new SyntheticMarketData(tickers, start, end, seed, uneven).writeCsv(output);
+        System.out.println("Wrote synthetic data for " + tickers + " tickers to " + output);
+    }
+}
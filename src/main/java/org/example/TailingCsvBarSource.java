@@ -0,0 +1,132 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads bars from a CSV in the consolidated_stock_data.csv layout as lines are appended to it, like tail -f.
+// Only complete lines are parsed; at the end of the file the source waits for more data when following,
+// otherwise the feed ends there. Malformed rows are reported and skipped, as the loaders do.
+public final class TailingCsvBarSource implements BarSource {
+    private static final int COLUMNS = 8;
+
+    private final FileChannel channel;
+    private final boolean follow;
+    private final long pollMillis;
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private final int[] commas = new int[COLUMNS - 1];
+    private boolean headerChecked;
+    private boolean endOfFile;
+
+    public TailingCsvBarSource(Path csv, boolean follow, long pollMillis) throws IOException {
+        this.channel = FileChannel.open(csv, StandardOpenOption.READ);
+        this.follow = follow;
+        this.pollMillis = pollMillis;
+        buffer.flip();
+    }
+
+    @Override
+    public Bar take() throws IOException, InterruptedException {
+        while (true) {
+            int newline = indexOf(buffer, (byte) '\n');
+            if (newline >= 0) {
+                Bar bar = line(buffer.position(), newline);
+                buffer.position(newline + 1);
+                if (bar != null) return bar;
+                continue;
+            }
+            if (fill() > 0) continue;
+
+            if (!follow) {
+                // The last line may have no newline
+                if (!endOfFile && buffer.hasRemaining()) {
+                    endOfFile = true;
+                    Bar bar = line(buffer.position(), buffer.limit());
+                    buffer.position(buffer.limit());
+                    if (bar != null) return bar;
+                }
+                return null;
+            }
+            Thread.sleep(pollMillis);
+        }
+    }
+
+    private int fill() throws IOException {
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            // A line longer than the buffer
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        int read = channel.read(buffer);
+        buffer.flip();
+        return read;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte value) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (buffer.get(i) == value) return i;
+        }
+        return -1;
+    }
+
+    // Returns null for the header and for rows that can't be parsed
+    private Bar line(int from, int to) {
+        long arrival = System.nanoTime();
+        if (to > from && buffer.get(to - 1) == '\r') to--;
+        if (!headerChecked) {
+            headerChecked = true;
+            BufferedCsvLoader.validateHeader(text(from, to));
+            return null;
+        }
+        if (to == from) return null;
+
+        int count = 0;
+        for (int i = from; i < to && count < commas.length; i++) {
+            if (buffer.get(i) == ',') commas[count++] = i;
+        }
+        int tickerEnd = to;
+        if (count == commas.length) {
+            for (int i = commas[6] + 1; i < to; i++) {
+                if (buffer.get(i) == ',') {
+                    tickerEnd = i;
+                    break;
+                }
+            }
+        }
+        if (count < commas.length || tickerEnd == commas[6] + 1) {
+            System.err.println("Error parsing line: " + text(from, to));
+            return null;
+        }
+        try {
+            return new Bar(text(commas[6] + 1, tickerEnd),
+                    MappedCsvLoader.parseEpochDay(buffer, from, commas[0]),
+                    MappedCsvLoader.parseDouble(buffer, commas[0] + 1, commas[1]),
+                    MappedCsvLoader.parseDouble(buffer, commas[1] + 1, commas[2]),
+                    MappedCsvLoader.parseDouble(buffer, commas[2] + 1, commas[3]),
+                    MappedCsvLoader.parseDouble(buffer, commas[3] + 1, commas[4]),
+                    MappedCsvLoader.parseDouble(buffer, commas[4] + 1, commas[5]),
+                    MappedCsvLoader.parseLong(buffer, commas[5] + 1, commas[6]),
+                    arrival);
+        } catch (NumberFormatException e) {
+            System.err.println("Error parsing line: " + text(from, to));
+            return null;
+        }
+    }
+
+    private String text(int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,96 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// Subset of a MarketPanel's symbols that a strategy trades, with its own calendar: the panel days on which at
+// least one member has a bar. A strategy run over a universe sees the same days and warm-up as it would with
+// only those tickers loaded.
+public final class Universe {
+    private final int[] symbols;
+    private final int[] days;
+    private final boolean[] active;
+
+    private Universe(MarketPanel panel, int[] symbols) {
+        this.symbols = symbols;
+        this.active = new boolean[panel.dayCount()];
+        int count = 0;
+        for (int d = 0; d < panel.dayCount(); d++) {
+            for (int s : symbols) {
+                if (panel.isObserved(d, s)) {
+                    active[d] = true;
+                    count++;
+                    break;
+                }
+            }
+        }
+        this.days = new int[count];
+        int i = 0;
+        for (int d = 0; d < active.length; d++) {
+            if (active[d]) days[i++] = d;
+        }
+    }
+
+    private Universe(int[] symbols, int[] days, boolean[] active) {
+        this.symbols = symbols;
+        this.days = days;
+        this.active = active;
+    }
+
+    public static Universe all(MarketPanel panel) {
+        int[] symbols = new int[panel.symbolCount()];
+        Arrays.setAll(symbols, s -> s);
+        return new Universe(panel, symbols);
+    }
+
+    // All symbols, active on every day of the panel even where none of them has a bar: a partition of a larger
+    // universe, on a panel built on that universe's calendar, then trades the same days as the whole
+    public static Universe spanning(MarketPanel panel) {
+        int[] symbols = new int[panel.symbolCount()];
+        Arrays.setAll(symbols, s -> s);
+        int[] days = new int[panel.dayCount()];
+        Arrays.setAll(days, d -> d);
+        boolean[] active = new boolean[panel.dayCount()];
+        Arrays.fill(active, true);
+        return new Universe(symbols, days, active);
+    }
+
+    // Members keep the panel's symbol order whatever order the tickers are listed in
+    public static Universe of(MarketPanel panel, Collection<String> tickers) {
+        int[] symbols = new int[tickers.size()];
+        int n = 0;
+        for (String ticker : tickers) {
+            int s = panel.symbolIndex(ticker);
+            if (s < 0) {
+                throw new IllegalArgumentException("Unknown ticker: " + ticker);
+            }
+            symbols[n++] = s;
+        }
+        symbols = Arrays.stream(symbols).sorted().distinct().toArray();
+        if (symbols.length == 0) {
+            throw new IllegalArgumentException("A universe needs at least one ticker");
+        }
+        return new Universe(panel, symbols);
+    }
+
+    public int size() { return symbols.length; }
+    public int symbol(int i) { return symbols[i]; }
+    public int[] symbols() { return symbols.clone(); }
+
+    // Number of days in the universe's calendar and the panel day of each
+    public int dayCount() { return days.length; }
+    public int day(int i) { return days[i]; }
+
+    public boolean isActive(int d) { return active[d]; }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Universe && Arrays.equals(symbols, ((Universe) o).symbols)
+                && Arrays.equals(days, ((Universe) o).days);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(symbols);
+    }
+}
@@ -0,0 +1,229 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+// Walk-forward optimization over the daily returns of a set of candidate runs, one per parameter set, all over
+// the same universe. The calendar is cut into folds of trainDays in-sample followed by testDays out-of-sample,
+// rolled forward by testDays; in each fold the candidate with the best in-sample Sharpe ratio is picked and
+// only its out-of-sample days are kept. The out-of-sample days of all folds form one continuous series.
+// The picks use the full-history runs, but the test windows are simulated again, all in one more engine pass:
+// each with a fresh strategy of the picked parameters that warms its indicators up on the whole history and
+// trades from a flat portfolio on the window's days only (TestWindow). A fold's result therefore depends on its
+// parameters and its window alone, not on positions the candidate built up before.
+public final class WalkForward {
+    private final int trainDays;
+    private final int testDays;
+
+    public WalkForward(int trainDays, int testDays) {
+        if (trainDays < 2 || testDays < 1) {
+            throw new IllegalArgumentException("Need at least 2 training days and 1 test day, got "
+                    + trainDays + " and " + testDays);
+        }
+        this.trainDays = trainDays;
+        this.testDays = testDays;
+    }
+
+    // One in-sample fit and its out-of-sample evaluation; days are indices into the universe's calendar
+    public static final class Fold {
+        private final int trainStart;
+        private final int testStart;
+        private final int testEnd;
+        private final StrategyParameters parameters;
+        private final PerformanceMetrics inSample;
+        private final PerformanceMetrics outOfSample;
+
+        Fold(int trainStart, int testStart, int testEnd, StrategyParameters parameters,
+             PerformanceMetrics inSample, PerformanceMetrics outOfSample) {
+            this.trainStart = trainStart;
+            this.testStart = testStart;
+            this.testEnd = testEnd;
+            this.parameters = parameters;
+            this.inSample = inSample;
+            this.outOfSample = outOfSample;
+        }
+
+        public int getTrainStart() { return trainStart; }
+        public int getTestStart() { return testStart; }
+        // Exclusive
+        public int getTestEnd() { return testEnd; }
+        public StrategyParameters getParameters() { return parameters; }
+        public PerformanceMetrics getInSample() { return inSample; }
+        public PerformanceMetrics getOutOfSample() { return outOfSample; }
+    }
+
+    public static final class Result {
+        private final List<Fold> folds;
+        private final double[] returns;
+        private final int firstDay;
+        private final PerformanceMetrics metrics;
+
+        Result(List<Fold> folds, double[] returns, int firstDay, PerformanceMetrics metrics) {
+            this.folds = folds;
+            this.returns = returns;
+            this.firstDay = firstDay;
+            this.metrics = metrics;
+        }
+
+        public List<Fold> getFolds() { return folds; }
+        // Out-of-sample daily returns of all folds, starting on calendar day getFirstDay()
+        public double[] getReturns() { return returns.clone(); }
+        public int getFirstDay() { return firstDay; }
+        public PerformanceMetrics getMetrics() { return metrics; }
+    }
+
+    // candidates come from one run over universe, whose market returns are marketReturns; engine runs the test
+    // windows over the same data, with the strategies newStrategy creates for the picked parameters
+    public Result run(List<BacktestResult> candidates, double[] marketReturns, BacktestEngine engine, Universe universe,
+                      Function<StrategyParameters, ? extends Strategy> newStrategy) {
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("No candidates to choose from");
+        }
+        int days = marketReturns.length;
+        if (universe.dayCount() != days) {
+            throw new IllegalArgumentException("Universe of " + universe.dayCount() + " days for market returns of "
+                    + days + " days");
+        }
+        double[][] returns = new double[candidates.size()][];
+        int start = 0;
+        for (int c = 0; c < candidates.size(); c++) {
+            BacktestResult candidate = candidates.get(c);
+            returns[c] = candidate.getDailyReturns();
+            if (candidate.getMarketFrom() + returns[c].length != days) {
+                throw new IllegalArgumentException("Candidate " + candidate.getParameters()
+                        + " doesn't cover the calendar of the market returns");
+            }
+            // Folds start once every candidate is past its warm-up
+            start = Math.max(start, candidate.getMarketFrom());
+        }
+
+        List<Integer> picks = new ArrayList<>();
+        List<PerformanceMetrics> inSamples = new ArrayList<>();
+        List<TestWindow> windows = new ArrayList<>();
+        for (int trainStart = start; trainStart + trainDays < days; trainStart += testDays) {
+            int testStart = trainStart + trainDays;
+            int testEnd = Math.min(days, testStart + testDays);
+
+            int best = -1;
+            PerformanceMetrics bestInSample = null;
+            for (int c = 0; c < candidates.size(); c++) {
+                int offset = candidates.get(c).getMarketFrom();
+                PerformanceMetrics inSample = PerformanceMetrics.of(
+                        Arrays.copyOfRange(returns[c], trainStart - offset, testStart - offset), null, null, 0);
+                if (best < 0 || better(inSample.getSharpeRatio(), bestInSample.getSharpeRatio())) {
+                    best = c;
+                    bestInSample = inSample;
+                }
+            }
+            picks.add(best);
+            inSamples.add(bestInSample);
+            windows.add(new TestWindow(newStrategy.apply(candidates.get(best).getParameters()), testStart, testEnd));
+        }
+
+        List<BacktestResult> tested = windows.isEmpty() ? List.of()
+                : engine.run(windows, Collections.nCopies(windows.size(), universe));
+        List<Fold> folds = new ArrayList<>();
+        double[] stitched = new double[Math.max(0, days - start - trainDays)];
+        for (int k = 0; k < windows.size(); k++) {
+            TestWindow window = windows.get(k);
+            BacktestResult chosen = candidates.get(picks.get(k));
+            BacktestResult test = tested.get(k);
+            if (!test.getParameters().equals(chosen.getParameters()) || test.getMarketFrom() > window.testStart) {
+                throw new IllegalArgumentException("The strategy created for " + chosen.getParameters()
+                        + " doesn't match its candidate run");
+            }
+            int offset = test.getMarketFrom();
+            double[] testReturns = Arrays.copyOfRange(test.getDailyReturns(), window.testStart - offset,
+                    window.testEnd - offset);
+            System.arraycopy(testReturns, 0, stitched, window.testStart - start - trainDays, testReturns.length);
+            folds.add(new Fold(window.testStart - trainDays, window.testStart, window.testEnd, chosen.getParameters(),
+                    inSamples.get(k), PerformanceMetrics.of(testReturns, compound(testReturns), marketReturns,
+                    window.testStart)));
+        }
+
+        int firstDay = start + trainDays;
+        PerformanceMetrics metrics = PerformanceMetrics.of(stitched, compound(stitched), marketReturns,
+                Math.min(firstDay, days));
+        return new Result(Collections.unmodifiableList(folds), stitched, firstDay, metrics);
+    }
+
+    // A strategy that only trades on days [testStart, testEnd) of its universe's calendar, so its portfolio holds
+    // nothing but cash when the window opens. Its indicators still advance every day, and its returns keep their
+    // usual offset, warmupDays(), in the calendar.
+    static final class TestWindow implements Strategy {
+        private final Strategy strategy;
+        private final int testStart;
+        private final int testEnd;
+        // Panel days of the window, exclusive at the end
+        private int from;
+        private int to;
+
+        TestWindow(Strategy strategy, int testStart, int testEnd) {
+            this.strategy = strategy;
+            this.testStart = testStart;
+            this.testEnd = testEnd;
+        }
+
+        @Override
+        public String getName() {
+            return strategy.getName();
+        }
+
+        @Override
+        public StrategyParameters getParameters() {
+            return strategy.getParameters();
+        }
+
+        @Override
+        public int warmupDays() {
+            return strategy.warmupDays();
+        }
+
+        @Override
+        public Portfolio.Allocation allocation() {
+            return strategy.allocation();
+        }
+
+        @Override
+        public void initialize(MarketPanel panel, Universe universe, IndicatorBank indicators) {
+            strategy.initialize(panel, universe, indicators);
+            from = universe.day(testStart);
+            to = testEnd < universe.dayCount() ? universe.day(testEnd) : panel.dayCount();
+        }
+
+        @Override
+        public void generateSignals(MarketPanel panel, int d, int[] signals) {
+            if (d >= from && d < to) {
+                strategy.generateSignals(panel, d, signals);
+            } else {
+                Arrays.fill(signals, 0);
+            }
+        }
+
+        @Override
+        public void sizePositions(MarketPanel panel, int d, int[] signals, Portfolio portfolio) {
+            if (d >= from && d < to) {
+                strategy.sizePositions(panel, d, signals, portfolio);
+            }
+        }
+    }
+
+    // Undefined Sharpe ratios rank last; ties keep the earlier candidate
+    private static boolean better(double sharpe, double best) {
+        return !Double.isNaN(sharpe) && (Double.isNaN(best) || sharpe > best);
+    }
+
+    // Value of one unit invested at the start of the series, for the drawdown
+    static double[] compound(double[] returns) {
+        double[] values = new double[returns.length];
+        double value = 1;
+        for (int i = 0; i < returns.length; i++) {
+            value *= 1 + returns[i];
+            values[i] = value;
+        }
+        return values;
+    }
+}
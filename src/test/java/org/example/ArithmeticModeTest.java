@@ -0,0 +1,52 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// FIXED_POINT runs against the DECIMAL audit mode, within the accuracy contract documented on ArithmeticMode.
+// Rounding a price to 1e-6 moves each trade and mark by at most 5e-7 per share, so the final capital differs by
+// a few cents at most on a million, and the double returns and ratios only differ by rounding.
+class ArithmeticModeTest {
+    private static StockDataManager dataManager;
+
+    @BeforeAll
+    static void load(@TempDir Path directory) {
+        dataManager = TestMarkets.load(directory, 40);
+    }
+
+    private static void compare(Strategy fixed, Strategy decimal) {
+        BacktestResult f = new BacktestEngine(dataManager, ArithmeticMode.FIXED_POINT).run(fixed);
+        BacktestResult d = new BacktestEngine(dataManager, ArithmeticMode.DECIMAL).run(decimal);
+        String name = fixed.getName();
+
+        double capital = d.getFinalCapital().doubleValue();
+        assertEquals(capital, f.getFinalCapital().doubleValue(), 1e-7 * capital, name + " final capital");
+        double[] fixedReturns = f.getDailyReturns();
+        double[] decimalReturns = d.getDailyReturns();
+        assertEquals(decimalReturns.length, fixedReturns.length, name + " days");
+        for (int i = 0; i < fixedReturns.length; i++) {
+            assertEquals(decimalReturns[i], fixedReturns[i], 1e-7, name + " return on day " + i);
+        }
+        assertEquals(d.getSharpeRatio(), f.getSharpeRatio(), 1e-6, name + " Sharpe ratio");
+        assertEquals(d.getAccuracy(), f.getAccuracy(), 1e-12, name + " accuracy");
+        assertEquals(d.getMaxDrawdown(), f.getMaxDrawdown(), 1e-7, name + " max drawdown");
+        assertEquals(d.getBeta(), f.getBeta(), 1e-6, name + " beta");
+    }
+
+    @Test
+    void simpleMovingAverageMatchesDecimal() {
+        compare(new SimpleMovingAverage(StrategyParameters.DEFAULT), new SimpleMovingAverage(StrategyParameters.DEFAULT));
+    }
+
+    @Test
+    void exponentialMovingAverageMatchesDecimal() {
+        for (StrategyParameters parameters : List.of(StrategyParameters.DEFAULT, new StrategyParameters(5, 20, 7, 21, 2.0))) {
+            compare(new ExponentialMovingAverage(parameters), new ExponentialMovingAverage(parameters));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Job-file parsing, and a batch of jobs in one engine pass against each job run on its own over only its tickers
+class BatchRunnerTest {
+    private static Path csv;
+    private static StockDataManager dataManager;
+    private static List<String> tickers;
+
+    @BeforeAll
+    static void load(@TempDir Path directory) throws IOException {
+        // Uneven histories, so the universes have calendars of their own
+        csv = directory.resolve("uneven.csv");
+        new SyntheticMarketData(20, TestMarkets.START, TestMarkets.END, 42L, true).writeCsv(csv);
+        dataManager = TestMarkets.load(csv);
+        tickers = dataManager.getStocks();
+    }
+
+    @Test
+    void parsesJobsWithDefaults() {
+        List<BatchRunner.Job> jobs = BatchRunner.parseJobs(List.of(
+                "# comment",
+                "",
+                "  name=ema-tech strategy=ema short=5 long=20 rsi=7 atr-period=21 atr=2 tickers=AAA,BBB  ",
+                "name=all strategy=sma long=30"));
+        assertEquals(2, jobs.size());
+
+        BatchRunner.Job ema = jobs.get(0);
+        assertEquals("ema-tech", ema.getName());
+        assertEquals("ema", ema.getStrategy());
+        assertEquals(new StrategyParameters(5, 20, 7, 21, 2.0), ema.getParameters());
+        assertEquals(List.of("AAA", "BBB"), ema.getTickers());
+
+        BatchRunner.Job sma = jobs.get(1);
+        StrategyParameters d = StrategyParameters.DEFAULT;
+        assertEquals(new StrategyParameters(d.getShortWindow(), 30, d.getRsiPeriod(), d.getAtrPeriod(), d.getAtrMultiplier()),
+                sma.getParameters());
+        assertTrue(sma.getTickers().isEmpty());
+        assertEquals(SimpleMovingAverage.class, sma.newStrategy().getClass());
+        assertEquals(ExponentialMovingAverage.class, ema.newStrategy().getClass());
+    }
+
+    @Test
+    void rejectsMalformedLinesWithTheirLineNumber() {
+        List<String> malformed = List.of(
+                "name=a strategy=sma short",
+                "name=a strategy=sma =10",
+                "strategy=sma",
+                "name=a",
+                "name=a/b strategy=sma",
+                "name=a strategy=sma short=ten",
+                "name=a strategy=sma atr=x",
+                "name=a strategy=sma short=0",
+                "name=a strategy=sma window=10");
+        for (String line : malformed) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> BatchRunner.parseJobs(List.of("# jobs", line)), line);
+            assertTrue(e.getMessage().startsWith("Line 2: "), e.getMessage());
+        }
+
+        IllegalArgumentException duplicate = assertThrows(IllegalArgumentException.class,
+                () -> BatchRunner.parseJobs(List.of("name=a strategy=sma", "name=a strategy=ema")));
+        assertTrue(duplicate.getMessage().startsWith("Line 2: Duplicate job name a"), duplicate.getMessage());
+    }
+
+    @Test
+    void rejectsUnknownStrategiesAndTickers() {
+        List<BatchRunner.Job> unknownStrategy = BatchRunner.parseJobs(List.of("name=a strategy=sma",
+                "name=b strategy=org.example.NoSuchStrategy"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> BatchRunner.run(dataManager, unknownStrategy, ArithmeticMode.FIXED_POINT));
+        assertTrue(e.getMessage().contains("for job b"), e.getMessage());
+
+        // A class that is not a Strategy
+        List<BatchRunner.Job> notAStrategy = BatchRunner.parseJobs(List.of("name=a strategy=java.lang.String"));
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchRunner.run(dataManager, notAStrategy, ArithmeticMode.FIXED_POINT));
+
+        List<BatchRunner.Job> unknownTicker = BatchRunner.parseJobs(List.of(
+                "name=a strategy=sma tickers=" + tickers.get(0) + ",NOPE"));
+        e = assertThrows(IllegalArgumentException.class,
+                () -> BatchRunner.run(dataManager, unknownTicker, ArithmeticMode.FIXED_POINT));
+        assertEquals("Unknown ticker: NOPE", e.getMessage());
+    }
+
+    @Test
+    void oneEnginePassMatchesSeparateRuns() {
+        String some = String.join(",", tickers.subList(3, 9));
+        // Listed out of symbol order, and overlapping the first universe
+        String others = String.join(",", tickers.get(15), tickers.get(4), tickers.get(11));
+        List<BatchRunner.Job> jobs = BatchRunner.parseJobs(List.of(
+                "name=sma-all strategy=sma",
+                "name=ema-all strategy=ema short=5 long=20 rsi=7 atr-period=21 atr=2",
+                "name=sma-some strategy=sma short=5 long=30 tickers=" + some,
+                "name=ema-some strategy=ema tickers=" + some,
+                "name=ema-others strategy=ema short=8 long=40 atr=1.5 tickers=" + others));
+
+        List<ExecutionModel> executions = List.of(ExecutionModel.IMMEDIATE,
+                ExecutionModel.parse("commission=0.005,min=1,slippage=5,participation=0.1,pending=3"));
+        for (ArithmeticMode arithmetic : ArithmeticMode.values()) {
+            for (ExecutionModel execution : executions) {
+                List<BacktestResult> batch = BatchRunner.run(dataManager, jobs, arithmetic, execution);
+                assertEquals(jobs.size(), batch.size());
+                for (int i = 0; i < jobs.size(); i++) {
+                    BatchRunner.Job job = jobs.get(i);
+                    BacktestResult alone = BatchRunner.run(separate(job), List.of(job), arithmetic, execution).get(0);
+                    assertSameResult(alone, batch.get(i), job.getName() + " " + arithmetic + " " + execution);
+                }
+            }
+        }
+    }
+
+    // A data manager holding only the job's tickers
+    private static StockDataManager separate(BatchRunner.Job job) {
+        if (job.getTickers().isEmpty()) {
+            return TestMarkets.load(csv);
+        }
+        StockDataManager only = new StockDataManager();
+        only.setUseSnapshots(false);
+        only.indexHistoricalDataFromCSV(csv.toString());
+        only.setPanelStocks(tickers.stream().filter(job.getTickers()::contains).toList());
+        return only;
+    }
+
+    private static void assertSameResult(BacktestResult expected, BacktestResult actual, String name) {
+        assertEquals(expected.getStrategy(), actual.getStrategy(), name);
+        assertEquals(expected.getParameters(), actual.getParameters(), name);
+        assertEquals(0, expected.getFinalCapital().compareTo(actual.getFinalCapital()),
+                name + " final capital " + expected.getFinalCapital() + " vs " + actual.getFinalCapital());
+        assertArrayEquals(expected.getPortfolioValues(), actual.getPortfolioValues(), name + " portfolio values");
+        assertArrayEquals(expected.getDailyReturns(), actual.getDailyReturns(), name + " daily returns");
+        assertEquals(expected.getSharpeRatio(), actual.getSharpeRatio(), 0.0, name + " Sharpe ratio");
+        assertEquals(expected.getAccuracy(), actual.getAccuracy(), 0.0, name + " accuracy");
+        assertEquals(expected.getMaxDrawdown(), actual.getMaxDrawdown(), 0.0, name + " max drawdown");
+        assertEquals(expected.getAlpha(), actual.getAlpha(), 0.0, name + " alpha");
+        assertEquals(expected.getBeta(), actual.getBeta(), 0.0, name + " beta");
+        assertEquals(String.valueOf(expected.getExecution()), String.valueOf(actual.getExecution()), name + " execution");
+    }
+}
@@ -0,0 +1,107 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+// Resamples that depend on the seed alone, whatever the pool, and blocks that wrap around the end of the series
+class BlockBootstrapTest {
+
+    private static double[] returns(int days) {
+        SplittableRandom random = new SplittableRandom(7);
+        double[] returns = new double[days];
+        for (int i = 0; i < days; i++) {
+            returns[i] = 0.0004 + 0.01 * (random.nextDouble() * 2 - 1);
+        }
+        return returns;
+    }
+
+    private static BlockBootstrap.Result run(BlockBootstrap bootstrap, int resamples, long seed, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return bootstrap.run(resamples, seed, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void resamplesDependOnTheSeedOnly() {
+        BlockBootstrap bootstrap = new BlockBootstrap(returns(500), 20);
+        // More resamples than one leaf task takes, so the pool splits them
+        BlockBootstrap.Result serial = run(bootstrap, 1000, 42, 1);
+        assertEquals(1000, serial.resamples());
+        for (int threads : new int[]{1, 2, 4}) {
+            BlockBootstrap.Result parallel = run(bootstrap, 1000, 42, threads);
+            assertArrayEquals(serial.getSharpeRatios(), parallel.getSharpeRatios(), threads + " threads");
+            assertArrayEquals(serial.getMaxDrawdowns(), parallel.getMaxDrawdowns(), threads + " threads");
+        }
+        // A shorter run draws the same first resamples
+        assertArrayEquals(Arrays.copyOf(serial.getSharpeRatios(), 100), run(bootstrap, 100, 42, 2).getSharpeRatios());
+
+        BlockBootstrap.Result reseeded = run(bootstrap, 1000, 43, 1);
+        assertFalse(Arrays.equals(serial.getSharpeRatios(), reseeded.getSharpeRatios()));
+        assertEquals(1000, Arrays.stream(serial.getSharpeRatios()).distinct().count(), "resamples differ");
+    }
+
+    @Test
+    void blocksWrapAroundTheEnd() {
+        // One block as long as the series: every resample is the series rotated to a random start, so each
+        // has the original Sharpe ratio and the drawdown of one of the rotations
+        double[] returns = returns(60);
+        PerformanceMetrics original = PerformanceMetrics.of(returns, null, null, 0);
+        Set<Double> rotationDrawdowns = new HashSet<>();
+        double[] rotated = new double[returns.length];
+        for (int start = 0; start < returns.length; start++) {
+            for (int k = 0; k < returns.length; k++) {
+                rotated[k] = returns[(start + k) % returns.length];
+            }
+            double[] values = WalkForward.compound(rotated);
+            double[] withStart = new double[values.length + 1];
+            withStart[0] = 1;
+            System.arraycopy(values, 0, withStart, 1, values.length);
+            rotationDrawdowns.add(BacktestEngine.calculateMaxDrawdown(withStart));
+        }
+
+        BlockBootstrap.Result result = run(new BlockBootstrap(returns, returns.length), 300, 1, 1);
+        Set<Double> seen = new HashSet<>();
+        for (int i = 0; i < result.resamples(); i++) {
+            assertEquals(original.getAnnualizedSharpeRatio(), result.getSharpeRatios()[i], 1e-9);
+            double drawdown = result.getMaxDrawdowns()[i];
+            double closest = rotationDrawdowns.stream().mapToDouble(x -> Math.abs(x - drawdown)).min().getAsDouble();
+            assertTrue(closest < 1e-12, "resample " + i + " drawdown " + drawdown);
+            seen.add(drawdown);
+        }
+        // Most start points were drawn, not just the unwrapped one
+        assertTrue(seen.size() > 30, seen.size() + " distinct rotations");
+    }
+
+    @Test
+    void nearestRankIntervals() {
+        double[] samples = new double[102];
+        for (int i = 0; i < 100; i++) {
+            samples[i] = 100 - i;
+        }
+        samples[100] = Double.NaN;
+        samples[101] = Double.NaN;
+        BlockBootstrap.Interval interval = BlockBootstrap.interval(samples, 0.9);
+        assertEquals(5, interval.getLower(), 0.0);
+        assertEquals(50, interval.getMedian(), 0.0);
+        assertEquals(95, interval.getUpper(), 0.0);
+
+        assertTrue(Double.isNaN(BlockBootstrap.interval(new double[]{Double.NaN}, 0.9).getMedian()));
+        assertThrows(IllegalArgumentException.class, () -> BlockBootstrap.interval(samples, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> new BlockBootstrap(new double[1], 1));
+        assertThrows(IllegalArgumentException.class, () -> new BlockBootstrap(new double[10], 11));
+        assertThrows(IllegalArgumentException.class, () -> new BlockBootstrap(new double[10], 0));
+    }
+}
@@ -0,0 +1,89 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// CrossSection's ranges, and the EMA strategy's parallel pass over a universe wide enough to be split, against
+// the serial pass with no pool: every pool size must give the same results, in both arithmetic modes and with
+// orders filled immediately or through an OrderBook
+class CrossSectionTest {
+    private static final int TICKERS = 600;
+    private static final StrategyParameters PARAMETERS = new StrategyParameters(10, 50, 14, 3.0);
+    private static final ExecutionModel ORDER_BOOK = new ExecutionModel(0.005, 0.5, 1.0, 5, 0.1, 0.1, 3);
+
+    private static StockDataManager dataManager;
+    private static final List<ForkJoinPool> pools = new ArrayList<>();
+
+    @BeforeAll
+    static void load(@TempDir Path directory) throws IOException {
+        Path csv = directory.resolve("wide.csv");
+        new SyntheticMarketData(TICKERS, TestMarkets.START, LocalDate.of(2020, 12, 31), 42L, true).writeCsv(csv);
+        dataManager = TestMarkets.load(csv);
+        for (int threads = 1; threads <= 4; threads++) {
+            pools.add(new ForkJoinPool(threads));
+        }
+    }
+
+    @AfterAll
+    static void shutdown() {
+        for (ForkJoinPool pool : pools) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void forEachCoversEveryIndexOnce() {
+        int[] counts = {0, 1, CrossSection.GRAIN, 2 * CrossSection.GRAIN - 1, 2 * CrossSection.GRAIN, 1000, 4097};
+        List<ForkJoinPool> all = new ArrayList<>(pools);
+        all.add(null);
+        for (ForkJoinPool pool : all) {
+            for (int count : counts) {
+                AtomicIntegerArray visits = new AtomicIntegerArray(count);
+                CrossSection.forEach(pool, count, (from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        visits.incrementAndGet(i);
+                    }
+                });
+                for (int i = 0; i < count; i++) {
+                    assertEquals(1, visits.get(i), "index " + i + " of " + count);
+                }
+            }
+        }
+    }
+
+    @Test
+    void everyPoolSizeGivesTheSerialResults() {
+        assertEquals(TICKERS, dataManager.getPanel().symbolCount());
+        for (ArithmeticMode arithmetic : ArithmeticMode.values()) {
+            for (ExecutionModel execution : List.of(ExecutionModel.IMMEDIATE, ORDER_BOOK)) {
+                BacktestResult serial = ExponentialMovingAverage.simulate(dataManager, PARAMETERS, arithmetic, execution, null);
+                for (ForkJoinPool pool : pools) {
+                    String run = arithmetic + ", " + pool.getParallelism() + " threads"
+                            + (execution.isImmediate() ? "" : ", order book");
+                    assertSameResult(serial,
+                            ExponentialMovingAverage.simulate(dataManager, PARAMETERS, arithmetic, execution, pool), run);
+                }
+            }
+        }
+    }
+
+    private static void assertSameResult(BacktestResult expected, BacktestResult actual, String run) {
+        assertEquals(expected.getFinalCapital(), actual.getFinalCapital(), run);
+        assertEquals(expected.getSharpeRatio(), actual.getSharpeRatio(), 0.0, run);
+        assertEquals(expected.getMaxDrawdown(), actual.getMaxDrawdown(), 0.0, run);
+        assertArrayEquals(expected.getDailyReturns(), actual.getDailyReturns(), 0.0, run);
+        assertArrayEquals(expected.getPortfolioValues(), actual.getPortfolioValues(), 0.0, run);
+    }
+}
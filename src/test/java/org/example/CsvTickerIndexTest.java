@@ -0,0 +1,163 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Tickers decoded one at a time through the index against MappedCsvLoader's load of the whole file, for files
+// grouped by ticker and sorted by date, and the sidecar index file reused or rebuilt as its key requires
+class CsvTickerIndexTest {
+    private static final FileTime LONG_AGO = FileTime.fromMillis(0);
+
+    private static Path unevenCsv(Path directory, int tickers) throws IOException {
+        Path csv = directory.resolve("uneven.csv");
+        new SyntheticMarketData(tickers, TestMarkets.START, TestMarkets.END, 42L, true).writeCsv(csv);
+        return csv;
+    }
+
+    // The same rows with the lines reordered
+    private static Path rewrite(Path csv, String name, Comparator<String> order) throws IOException {
+        List<String> lines = Files.readAllLines(csv);
+        List<String> rows = new ArrayList<>(lines.subList(1, lines.size()));
+        rows.sort(order);
+        rows.add(0, lines.get(0));
+        Path rewritten = csv.resolveSibling(name);
+        Files.write(rewritten, rows);
+        return rewritten;
+    }
+
+    private static String ticker(String row) {
+        return row.substring(row.lastIndexOf(',') + 1);
+    }
+
+    private static void assertMatchesFullLoad(Path csv, LocalDate start, LocalDate end) throws IOException {
+        Map<String, PriceSeries> loaded = new MappedCsvLoader(start, end).load(csv);
+        CsvTickerIndex index = CsvTickerIndex.open(csv, start, end);
+        loaded.values().removeIf(series -> series.size() == 0);
+        assertEquals(loaded.keySet(), new HashSet<>(index.tickers()));
+        assertEquals(loaded.size(), index.size());
+        for (String ticker : index.tickers()) {
+            PriceSeries expected = loaded.get(ticker);
+            TestMarkets.assertSameSeries(expected, index.load(ticker));
+            CsvTickerIndex.Entry entry = index.entry(ticker);
+            assertEquals(expected.size(), entry.getRows(), ticker);
+            assertEquals(LocalDate.ofEpochDay(expected.epochDay(0)), entry.getFirstDate(), ticker);
+            assertEquals(LocalDate.ofEpochDay(expected.epochDay(expected.size() - 1)), entry.getLastDate(), ticker);
+        }
+        assertNull(index.load("NOPE"));
+    }
+
+    @Test
+    void lazyLoadsMatchTheFullLoader(@TempDir Path directory) throws IOException {
+        Path csv = unevenCsv(directory, 15);
+        assertMatchesFullLoad(csv, TestMarkets.START, TestMarkets.END);
+        // Grouped by ticker: one extent each
+        CsvTickerIndex index = CsvTickerIndex.open(csv, TestMarkets.START, TestMarkets.END);
+        for (String ticker : index.tickers()) {
+            assertEquals(1, index.entry(ticker).extentCount(), ticker);
+        }
+        // A narrower range drops the rows, and tickers, outside it
+        assertMatchesFullLoad(csv, LocalDate.of(2021, 3, 1), LocalDate.of(2021, 9, 30));
+    }
+
+    @Test
+    void interleavedRowsShareExtents(@TempDir Path directory) throws IOException {
+        // Sorted by date, so every ticker's rows are spread over the whole file a row at a time
+        Path byDate = rewrite(unevenCsv(directory, 15), "by-date.csv",
+                Comparator.comparing((String row) -> row.substring(0, 10)).thenComparing(CsvTickerIndexTest::ticker));
+        assertMatchesFullLoad(byDate, TestMarkets.START, TestMarkets.END);
+        CsvTickerIndex index = CsvTickerIndex.open(byDate, TestMarkets.START, TestMarkets.END);
+        for (String ticker : index.tickers()) {
+            assertEquals(1, index.entry(ticker).extentCount(), ticker);
+        }
+    }
+
+    @Test
+    void runsFarApartKeepTheirOwnExtents(@TempDir Path directory) throws IOException {
+        // The first ticker's early rows, every other ticker's rows (well over MERGE_GAP_BYTES), then its late rows
+        Path csv = unevenCsv(directory, 50);
+        String first = SyntheticMarketData.tickerName(0);
+        String middle = "2021-07-01";
+        Path split = rewrite(csv, "split.csv", Comparator.comparingInt((String row) -> {
+            if (!ticker(row).equals(first)) return 1;
+            return row.substring(0, 10).compareTo(middle) < 0 ? 0 : 2;
+        }));
+        assertTrue(Files.size(split) > 2 * CsvTickerIndex.MERGE_GAP_BYTES);
+
+        assertMatchesFullLoad(split, TestMarkets.START, TestMarkets.END);
+        CsvTickerIndex index = CsvTickerIndex.open(split, TestMarkets.START, TestMarkets.END);
+        assertEquals(2, index.entry(first).extentCount());
+        assertEquals(1, index.entry(SyntheticMarketData.tickerName(1)).extentCount());
+    }
+
+    @Test
+    void indexIsReusedUntilItsKeyChanges(@TempDir Path directory) throws IOException {
+        Path csv = unevenCsv(directory, 10);
+        Path indexFile = CsvTickerIndex.indexPath(csv);
+        CsvTickerIndex built = CsvTickerIndex.open(csv, TestMarkets.START, TestMarkets.END);
+        assertTrue(Files.isRegularFile(indexFile));
+
+        // Read back as written, not rebuilt
+        Files.setLastModifiedTime(indexFile, LONG_AGO);
+        CsvTickerIndex read = CsvTickerIndex.open(csv, TestMarkets.START, TestMarkets.END);
+        assertEquals(LONG_AGO, Files.getLastModifiedTime(indexFile));
+        assertEquals(built.tickers(), read.tickers());
+        for (String ticker : built.tickers()) {
+            assertEquals(built.entry(ticker).getRows(), read.entry(ticker).getRows());
+            TestMarkets.assertSameSeries(built.load(ticker), read.load(ticker));
+        }
+
+        // Another date range
+        LocalDate start = LocalDate.of(2021, 1, 1);
+        CsvTickerIndex narrower = CsvTickerIndex.open(csv, start, TestMarkets.END);
+        assertNotEquals(LONG_AGO, Files.getLastModifiedTime(indexFile));
+        assertEquals(start, narrower.entry(SyntheticMarketData.tickerName(0)).getFirstDate());
+
+        // The source edited
+        CsvTickerIndex.open(csv, TestMarkets.START, TestMarkets.END);
+        Files.setLastModifiedTime(indexFile, LONG_AGO);
+        Files.writeString(csv, "2022-12-30,1.0,1.0,1.0,1.0,1.0,100,NEW\n", StandardOpenOption.APPEND);
+        CsvTickerIndex edited = CsvTickerIndex.open(csv, TestMarkets.START, TestMarkets.END);
+        assertNotEquals(LONG_AGO, Files.getLastModifiedTime(indexFile));
+        assertEquals(built.size() + 1, edited.size());
+        assertEquals(1, edited.load("NEW").size());
+
+        // An unreadable index
+        Files.write(indexFile, new byte[]{1, 2, 3});
+        assertEquals(edited.tickers(), CsvTickerIndex.open(csv, TestMarkets.START, TestMarkets.END).tickers());
+    }
+
+    @Test
+    void indexedDataNeedsPanelStocks(@TempDir Path directory) throws IOException {
+        Path csv = unevenCsv(directory, 6);
+        StockDataManager dataManager = new StockDataManager();
+        dataManager.setUseSnapshots(false);
+        dataManager.indexHistoricalDataFromCSV(csv.toString());
+        assertThrows(IllegalStateException.class, dataManager::getPanel);
+        assertEquals(0, dataManager.getSeriesCache().getMisses(), "nothing decoded");
+
+        List<String> some = List.of(SyntheticMarketData.tickerName(4), SyntheticMarketData.tickerName(1));
+        dataManager.setPanelStocks(some);
+        assertEquals(2, dataManager.getPanel().symbolCount());
+        assertEquals(2, dataManager.getSeriesCache().getMisses());
+
+        dataManager.setPanelStocks(dataManager.getStocks());
+        assertEquals(6, dataManager.getPanel().symbolCount());
+    }
+}
@@ -0,0 +1,277 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The engine's SimpleMovingAverage and ExponentialMovingAverage against the trading loops they had before the
+// BacktestEngine, kept below as they were apart from returning a BacktestResult. In DECIMAL mode the engine does
+// the same BigDecimal operations in the same order, so the series, final capital and audited ratios are equal,
+// not just close; only the regression is computed differently. The old EMA loop sized its ATR on the RSI period,
+// so the parameters keep the two equal.
+class EngineParityTest {
+    private static final double INITIAL_CAPITAL = 1_000_000.0;
+    private static final double RISK_PER_TRADE = 0.005;
+
+    private static StockDataManager even;
+    private static StockDataManager uneven;
+
+    @BeforeAll
+    static void load(@TempDir Path directory) throws IOException {
+        even = TestMarkets.load(directory, 30);
+        Path csv = directory.resolve("uneven.csv");
+        new SyntheticMarketData(30, TestMarkets.START, TestMarkets.END, 42L, true).writeCsv(csv);
+        uneven = TestMarkets.load(csv);
+    }
+
+    private static List<StrategyParameters> parameters() {
+        return List.of(StrategyParameters.DEFAULT, new StrategyParameters(5, 20, 7, 7, 2.0),
+                new StrategyParameters(20, 60, 21, 21, 1.5));
+    }
+
+    @Test
+    void simpleMovingAverageMatchesTheBaselineLoop() {
+        for (StockDataManager dataManager : List.of(even, uneven)) {
+            for (StrategyParameters p : parameters()) {
+                assertSameResult(baselineSma(dataManager, p),
+                        SimpleMovingAverage.simulate(dataManager, p, ArithmeticMode.DECIMAL));
+            }
+        }
+    }
+
+    @Test
+    void exponentialMovingAverageMatchesTheBaselineLoop() {
+        for (StockDataManager dataManager : List.of(even, uneven)) {
+            for (StrategyParameters p : parameters()) {
+                assertSameResult(baselineEma(dataManager, p),
+                        ExponentialMovingAverage.simulate(dataManager, p, ArithmeticMode.DECIMAL));
+            }
+        }
+    }
+
+    private static void assertSameResult(BacktestResult expected, BacktestResult actual) {
+        String name = actual.getStrategy() + " " + actual.getParameters();
+        assertArrayEquals(expected.getPortfolioValues(), actual.getPortfolioValues(), name + " portfolio values");
+        assertArrayEquals(expected.getDailyReturns(), actual.getDailyReturns(), name + " daily returns");
+        assertEquals(0, expected.getFinalCapital().compareTo(actual.getFinalCapital()),
+                name + " final capital " + expected.getFinalCapital() + " vs " + actual.getFinalCapital());
+        assertEquals(expected.getSharpeRatio(), actual.getSharpeRatio(), 0.0, name + " Sharpe ratio");
+        assertEquals(expected.getAccuracy(), actual.getAccuracy(), 0.0, name + " accuracy");
+        assertEquals(expected.getMaxDrawdown(), actual.getMaxDrawdown(), 0.0, name + " max drawdown");
+        // PerformanceMetrics sums in one pass, performRegression in two, so the last digits differ
+        assertEquals(expected.getAlpha(), actual.getAlpha(), 1e-12, name + " alpha");
+        assertEquals(expected.getBeta(), actual.getBeta(), 1e-9, name + " beta");
+    }
+
+    private static BacktestResult result(String strategy, StrategyParameters parameters, BigDecimal finalCapital,
+                                         List<BigDecimal> dailyReturns, double[] portfolioValues, int warmup,
+                                         StockDataManager dataManager) {
+        BigDecimal averageReturn = dailyReturns.stream().reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(BigDecimal.valueOf(dailyReturns.size()), MathContext.DECIMAL128);
+        BigDecimal variance = dailyReturns.stream()
+                .map(r -> r.subtract(averageReturn).pow(2))
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(BigDecimal.valueOf(dailyReturns.size()), MathContext.DECIMAL128);
+        BigDecimal standardDeviation = BigDecimal.valueOf(Math.sqrt(variance.doubleValue()));
+        BigDecimal sharpeRatio = averageReturn.divide(standardDeviation, MathContext.DECIMAL128);
+
+        // Paired with the market return of the same day, as the engine has done since the regression was realigned
+        double[] returns = dailyReturns.stream().mapToDouble(BigDecimal::doubleValue).toArray();
+        double[] market = dataManager.equalWeightedMarketReturns(Universe.all(dataManager.getPanel()), ArithmeticMode.DECIMAL);
+        double[] coefficients = dataManager.performRegression(
+                Arrays.copyOfRange(market, warmup, warmup + returns.length), returns, 0);
+
+        double accuracy = dailyReturns.stream()
+                .map(r -> r.compareTo(BigDecimal.ZERO) > 0 ? BigDecimal.ONE : BigDecimal.ZERO)
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(BigDecimal.valueOf(dailyReturns.size()), MathContext.DECIMAL128)
+                .doubleValue();
+
+        return new BacktestResult(strategy, parameters, INITIAL_CAPITAL, finalCapital, coefficients[0], coefficients[1],
+                accuracy, BacktestEngine.calculateMaxDrawdown(portfolioValues), sharpeRatio.doubleValue()*Math.sqrt(252),
+                returns, portfolioValues, null, null, warmup, null);
+    }
+
+    // SimpleMovingAverage.simulate before the engine
+    private static BacktestResult baselineSma(StockDataManager dataManager, StrategyParameters parameters) {
+        int shortWindow = parameters.getShortWindow();
+        int longWindow = parameters.getLongWindow();
+        MarketPanel panel = dataManager.getPanel();
+        int stockCount = panel.symbolCount();
+
+        long[] Portfolio = new long[stockCount];
+        BigDecimal[] Capital = new BigDecimal[stockCount];
+        BigDecimal[] ClosingPrice = new BigDecimal[stockCount];
+        List<BigDecimal> dailyReturns = new ArrayList<>(Stream.generate(() -> BigDecimal.ZERO)
+                .limit(Math.max(0, panel.dayCount()-longWindow))
+                .toList());
+
+        for(int s=0; s<stockCount; s++) {
+            BigDecimal capital = BigDecimal.valueOf(INITIAL_CAPITAL/stockCount);
+
+            Indicator shortAverage = new LaggedIndicator(new SmaIndicator(shortWindow));
+            Indicator longAverage = new LaggedIndicator(new SmaIndicator(longWindow));
+
+            for(int d=0; d<panel.dayCount(); d++) {
+                if(panel.isObserved(d, s)) {
+                    shortAverage.update(panel.high(d, s), panel.low(d, s), panel.adjClose(d, s));
+                    longAverage.update(panel.high(d, s), panel.low(d, s), panel.adjClose(d, s));
+
+                    if(d >= longWindow && shortAverage.isReady() && longAverage.isReady()) {
+                        BigDecimal closingPrice = BigDecimal.valueOf(panel.adjClose(d, s));
+                        int comparison = Double.compare(shortAverage.value(), longAverage.value());
+
+                        if(comparison > 0) {
+                            long bought = Math.min(capital.divideToIntegralValue(closingPrice).longValue(), panel.volume(d, s));
+
+                            Portfolio[s] += bought;
+                            capital = capital.subtract(closingPrice.multiply(new BigDecimal(bought)));
+                        } else if(comparison < 0) {
+                            long sold = Math.min(Portfolio[s], panel.volume(d, s));
+
+                            Portfolio[s] -= sold;
+                            capital = capital.add(closingPrice.multiply(new BigDecimal(sold)));
+                        }
+                    }
+                }
+                if(d < longWindow) continue;
+
+                BigDecimal newportfolioValue = capital;
+                if(panel.hasPrice(d, s)) {
+                    ClosingPrice[s] = BigDecimal.valueOf(panel.adjClose(d, s));
+                    newportfolioValue = capital.add(ClosingPrice[s].multiply(BigDecimal.valueOf(Portfolio[s])));
+                }
+                dailyReturns.set(d-longWindow, dailyReturns.get(d-longWindow).add(newportfolioValue));
+            }
+
+            Capital[s] = capital;
+        }
+
+        double[] portfolioValues = dailyReturns.stream().mapToDouble(BigDecimal::doubleValue).toArray();
+
+        for(int i=dailyReturns.size()-1; i>0; i--) {
+            dailyReturns.set(i, dailyReturns.get(i).subtract(dailyReturns.get(i-1)).divide(dailyReturns.get(i-1), MathContext.DECIMAL128));
+        }
+        dailyReturns.set(0, BigDecimal.ZERO);
+
+        BigDecimal finalCapital = new BigDecimal(0);
+        for(int s=0; s<stockCount; s++) {
+            finalCapital = finalCapital.add(Capital[s]);
+            if(Portfolio[s] != 0) {
+                finalCapital = finalCapital.add(BigDecimal.valueOf(Portfolio[s]).multiply(ClosingPrice[s]));
+            }
+        }
+
+        return result("SimpleMovingAverage", parameters, finalCapital, dailyReturns, portfolioValues, longWindow, dataManager);
+    }
+
+    // ExponentialMovingAverage.simulate before the engine
+    private static BacktestResult baselineEma(StockDataManager dataManager, StrategyParameters parameters) {
+        int shortWindow = parameters.getShortWindow();
+        int longWindow = parameters.getLongWindow();
+        int warmup = parameters.warmupBars();
+        MarketPanel panel = dataManager.getPanel();
+        int stockCount = panel.symbolCount();
+
+        BigDecimal cash = BigDecimal.valueOf(INITIAL_CAPITAL);
+        long[] portfolio = new long[stockCount];
+        BigDecimal[] closingPrice = new BigDecimal[stockCount];
+        int[] signals = new int[stockCount];
+        List<BigDecimal> dailyReturns = new ArrayList<>();
+        List<BigDecimal> portfolioValues = new ArrayList<>();
+        BigDecimal portfolioValue = cash;
+
+        Indicator[] shortEMA = new Indicator[stockCount];
+        Indicator[] longEMA = new Indicator[stockCount];
+        Indicator[] rsi = new Indicator[stockCount];
+        Indicator[] atr = new Indicator[stockCount];
+        for (int s = 0; s < stockCount; s++) {
+            shortEMA[s] = new EmaIndicator(shortWindow);
+            longEMA[s] = new EmaIndicator(longWindow);
+            rsi[s] = new RsiIndicator(parameters.getRsiPeriod());
+            atr[s] = new AtrIndicator(parameters.getRsiPeriod());
+        }
+
+        for (int d = 0; d < panel.dayCount(); d++) {
+            for (int s = 0; s < stockCount; s++) {
+                if (!panel.isObserved(d, s)) continue;
+                double high = panel.high(d, s);
+                double low = panel.low(d, s);
+                double close = panel.adjClose(d, s);
+                shortEMA[s].update(high, low, close);
+                longEMA[s].update(high, low, close);
+                rsi[s].update(high, low, close);
+                atr[s].update(high, low, close);
+            }
+            if (d < warmup) continue;
+
+            for (int s = 0; s < stockCount; s++) {
+                closingPrice[s] = panel.hasPrice(d, s) ? BigDecimal.valueOf(panel.adjClose(d, s)) : null;
+                signals[s] = 0;
+                if (!panel.isObserved(d, s) || !longEMA[s].isReady() || !shortEMA[s].isReady()
+                        || !rsi[s].isReady() || !atr[s].isReady()) continue;
+
+                double shortValue = shortEMA[s].value();
+                double longValue = longEMA[s].value();
+                double rsiValue = rsi[s].value();
+
+                if (shortValue > longValue && rsiValue > 30) {
+                    signals[s] = 1;
+                } else if (shortValue < longValue && rsiValue < 70) {
+                    signals[s] = -1;
+                }
+            }
+
+            for (int s = 0; s < stockCount; s++) {
+                if (signals[s] == 0) continue;
+                BigDecimal price = closingPrice[s];
+
+                BigDecimal riskAmount = portfolioValue.multiply(BigDecimal.valueOf(RISK_PER_TRADE));
+                BigDecimal stopLossDistance = BigDecimal.valueOf(atr[s].value()).multiply(BigDecimal.valueOf(parameters.getAtrMultiplier()));
+
+                long maxSharesBasedOnRisk = riskAmount
+                        .divide(stopLossDistance, MathContext.DECIMAL128)
+                        .divide(price, MathContext.DECIMAL128)
+                        .longValue();
+
+                if (signals[s] == 1) {
+                    long affordableShares = cash.divideToIntegralValue(price).longValue();
+                    long sharesToBuy = Math.min(maxSharesBasedOnRisk, affordableShares);
+
+                    if (sharesToBuy > 0) {
+                        cash = cash.subtract(price.multiply(BigDecimal.valueOf(sharesToBuy)));
+                        portfolio[s] += sharesToBuy;
+                    }
+                } else {
+                    cash = cash.add(price.multiply(BigDecimal.valueOf(maxSharesBasedOnRisk)));
+                    portfolio[s] -= maxSharesBasedOnRisk;
+                }
+            }
+
+            BigDecimal newPortfolioValue = cash;
+            for (int s = 0; s < stockCount; s++) {
+                if (portfolio[s] == 0) continue;
+                newPortfolioValue = newPortfolioValue.add(BigDecimal.valueOf(portfolio[s]).multiply(closingPrice[s]));
+            }
+
+            BigDecimal dailyReturn = newPortfolioValue.subtract(portfolioValue).divide(portfolioValue, MathContext.DECIMAL128);
+            dailyReturns.add(dailyReturn);
+            portfolioValue = newPortfolioValue;
+            portfolioValues.add(portfolioValue);
+        }
+
+        double[] values = portfolioValues.stream().mapToDouble(BigDecimal::doubleValue).toArray();
+        return result("ExponentialMovingAverage", parameters, portfolioValue, dailyReturns, values, warmup, dataManager);
+    }
+}
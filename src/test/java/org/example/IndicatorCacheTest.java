@@ -0,0 +1,175 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// EMA sweeps through an IndicatorCache in each of its states, cold, warm in memory, warm on disk only and
+// extended over appended bars, against the same sweeps without a cache; the saved indicator state the
+// extension relies on, against an uninterrupted indicator; and indicators without state kept in memory only
+class IndicatorCacheTest {
+    private static final int TICKERS = 20;
+    private static final int APPENDED_DAYS = 20;
+    private static final List<StrategyParameters> GRID = ParameterSweep.grid(new int[]{5, 20}, new int[]{50},
+            new int[]{14}, new int[]{10, 14}, new double[]{2.0});
+
+    private static List<BacktestResult> sweep(Path csv, IndicatorCache cache) {
+        StockDataManager dataManager = TestMarkets.load(csv);
+        dataManager.setIndicatorCache(cache);
+        List<BacktestResult> results = new ArrayList<>(GRID.size());
+        for (StrategyParameters parameters : GRID) {
+            results.add(ExponentialMovingAverage.simulate(dataManager, parameters));
+        }
+        return results;
+    }
+
+    private static void assertSame(List<BacktestResult> expected, List<BacktestResult> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            String parameters = GRID.get(i).toString();
+            assertArrayEquals(expected.get(i).getPortfolioValues(), actual.get(i).getPortfolioValues(), parameters);
+            assertEquals(expected.get(i).getFinalCapital(), actual.get(i).getFinalCapital(), parameters);
+            assertEquals(expected.get(i).getSharpeRatio(), actual.get(i).getSharpeRatio(), 0.0, parameters);
+        }
+    }
+
+    @Test
+    void cachedSweepsMatchUncached(@TempDir Path directory) throws Exception {
+        Path csv = TestMarkets.writeCsv(directory, "synthetic.csv", TICKERS, TestMarkets.END);
+        Path cacheDirectory = directory.resolve("cache");
+        List<BacktestResult> reference = sweep(csv, null);
+
+        IndicatorCache cache = new IndicatorCache(IndicatorCache.DEFAULT_CACHED_VALUES, cacheDirectory);
+        assertSame(reference, sweep(csv, cache));
+        assertTrue(cache.getMisses() > 0);
+        long misses = cache.getMisses();
+        assertSame(reference, sweep(csv, cache));
+        assertEquals(misses, cache.getMisses());
+        assertTrue(cache.getMemoryHits() > 0);
+
+        IndicatorCache reopened = new IndicatorCache(IndicatorCache.DEFAULT_CACHED_VALUES, cacheDirectory);
+        assertSame(reference, sweep(csv, reopened));
+        assertEquals(0, reopened.getMisses());
+        assertTrue(reopened.getDiskHits() > 0);
+    }
+
+    @Test
+    void appendedBarsExtendTheCachedSeries(@TempDir Path directory) throws Exception {
+        LocalDate cut = TestMarkets.END.minusDays(APPENDED_DAYS * 7L / 5);
+        Path before = TestMarkets.writeCsv(directory, "before.csv", TICKERS, cut);
+        Path after = TestMarkets.writeCsv(directory, "after.csv", TICKERS, TestMarkets.END);
+        Path cacheDirectory = directory.resolve("cache");
+
+        IndicatorCache cache = new IndicatorCache(IndicatorCache.DEFAULT_CACHED_VALUES, cacheDirectory);
+        assertSame(sweep(before, null), sweep(before, cache));
+        long fullBars = cache.getComputedBars() / cache.getMisses();
+
+        IndicatorCache reopened = new IndicatorCache(IndicatorCache.DEFAULT_CACHED_VALUES, cacheDirectory);
+        assertSame(sweep(after, null), sweep(after, reopened));
+        assertEquals(0, reopened.getMisses());
+        assertTrue(reopened.getExtensions() > 0);
+        // Only the appended bars are fed to the restored indicators
+        assertTrue(reopened.getComputedBars() / reopened.getExtensions() < fullBars / 10,
+                reopened.toString());
+    }
+
+    private static void checkContinuation(String name, Supplier<StatefulIndicator> factory) {
+        SyntheticMarketData data = new SyntheticMarketData(1, LocalDate.of(2015, 1, 1), LocalDate.of(2018, 12, 31), 7L);
+        PriceSeries series = data.generateSeries(0, data.tradingDays());
+        for (int cut : new int[]{0, 3, 100, series.size() / 2}) {
+            Indicator uninterrupted = factory.get();
+            StatefulIndicator saved = factory.get();
+            for (int i = 0; i < cut; i++) {
+                uninterrupted.update(series, i);
+                saved.update(series, i);
+            }
+            ByteBuffer state = ByteBuffer.allocate(saved.stateBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            saved.saveState(state);
+            assertEquals(saved.stateBytes(), state.position(), name);
+            state.flip();
+            StatefulIndicator restored = factory.get();
+            restored.restoreState(state);
+            for (int i = cut; i < series.size(); i++) {
+                uninterrupted.update(series, i);
+                restored.update(series, i);
+                String bar = name + " cut at " + cut + ", bar " + i;
+                assertEquals(uninterrupted.isReady(), restored.isReady(), bar);
+                if (uninterrupted.isReady()) {
+                    assertEquals(uninterrupted.value(), restored.value(), 0.0, bar);
+                }
+            }
+        }
+    }
+
+    @Test
+    void restoredStateContinuesLikeTheUninterruptedIndicator() {
+        checkContinuation("SMA", () -> new SmaIndicator(20));
+        checkContinuation("lagged SMA", () -> new LaggedIndicator(new SmaIndicator(50)));
+        checkContinuation("EMA", () -> new EmaIndicator(20));
+        checkContinuation("RSI", () -> new RsiIndicator(14));
+        checkContinuation("ATR", () -> new AtrIndicator(14));
+    }
+
+    // The last close, with no state to save
+    private static final class LastClose implements Indicator {
+        private double close;
+        private boolean ready;
+
+        @Override
+        public void update(double high, double low, double close) {
+            this.close = close;
+            ready = true;
+        }
+
+        @Override public double value() { return close; }
+        @Override public boolean isReady() { return ready; }
+    }
+
+    private static long files(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void indicatorsWithoutStateStayInMemory(@TempDir Path directory) throws IOException {
+        SyntheticMarketData data = new SyntheticMarketData(1, LocalDate.of(2015, 1, 1), LocalDate.of(2016, 12, 31), 7L);
+        PriceSeries series = data.generateSeries(0, data.tradingDays());
+        MarketPanel panel = MarketPanel.build(List.of(series), MissingDataPolicy.FORWARD_FILL);
+        long[] prefixes = IndicatorCache.prefixFingerprints(panel, 0);
+
+        IndicatorCache cache = new IndicatorCache(IndicatorCache.DEFAULT_CACHED_VALUES, directory);
+        Indicator lastClose = cache.indicator(panel, 0, prefixes, "LastClose", LastClose::new);
+        for (int i = 0; i < series.size(); i++) {
+            lastClose.update(series, i);
+            assertEquals(series.adjClose(i), lastClose.value(), 0.0);
+        }
+        assertEquals(0, files(directory));
+        cache.indicator(panel, 0, prefixes, "LastClose", LastClose::new);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getMemoryHits());
+
+        cache.indicator(panel, 0, prefixes, "SMA(20)", () -> new SmaIndicator(20));
+        assertEquals(1, files(directory));
+
+        // A later process finds the stateful series on disk and recomputes the other
+        IndicatorCache reopened = new IndicatorCache(IndicatorCache.DEFAULT_CACHED_VALUES, directory);
+        reopened.indicator(panel, 0, prefixes, "LastClose", LastClose::new);
+        reopened.indicator(panel, 0, prefixes, "SMA(20)", () -> new SmaIndicator(20));
+        assertEquals(1, reopened.getMisses());
+        assertEquals(1, reopened.getDiskHits());
+    }
+}
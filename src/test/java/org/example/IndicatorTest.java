@@ -0,0 +1,61 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.function.IntFunction;
+import org.junit.jupiter.api.Test;
+
+// The streaming indicators against the windowed BigDecimal calculations of ReferenceIndicators, at every bar
+// from the first one the reference is defined on
+class IndicatorTest {
+    private static final int[] WINDOWS = {2, 14, 50, 200};
+    private static final double TOLERANCE = 1e-9;
+
+    private interface Reference {
+        BigDecimal at(PriceSeries series, int endIndex, int window);
+    }
+
+    private static final PriceSeries SERIES = series();
+
+    private static PriceSeries series() {
+        SyntheticMarketData data = new SyntheticMarketData(1, LocalDate.of(2015, 1, 1), LocalDate.of(2018, 12, 31), 7L);
+        return data.generateSeries(0, data.tradingDays());
+    }
+
+    private static void check(String name, IntFunction<Indicator> factory, Reference reference) {
+        for (int window : WINDOWS) {
+            Indicator indicator = factory.apply(window);
+            for (int i = 0; i < SERIES.size(); i++) {
+                indicator.update(SERIES, i);
+                if (i < window) continue;
+                assertTrue(indicator.isReady(), name + "(" + window + ") not ready at bar " + i);
+                double expected = reference.at(SERIES, i, window).doubleValue();
+                assertEquals(expected, indicator.value(), TOLERANCE * Math.max(1, Math.abs(expected)),
+                        name + "(" + window + ") at bar " + i);
+            }
+        }
+    }
+
+    @Test
+    void laggedSmaMatchesReference() {
+        check("SMA", w -> new LaggedIndicator(new SmaIndicator(w)), ReferenceIndicators::movingAverage);
+    }
+
+    @Test
+    void emaMatchesReference() {
+        check("EMA", EmaIndicator::new, ReferenceIndicators::ema);
+    }
+
+    @Test
+    void rsiMatchesReference() {
+        check("RSI", RsiIndicator::new, ReferenceIndicators::rsi);
+    }
+
+    @Test
+    void atrMatchesReference() {
+        check("ATR", AtrIndicator::new, ReferenceIndicators::atr);
+    }
+}
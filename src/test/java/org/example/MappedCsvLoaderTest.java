@@ -0,0 +1,116 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The byte-level number parsing of MappedCsvLoader against Double.parseDouble, and whole files against
+// BufferedCsvLoader
+class MappedCsvLoaderTest {
+    private static final LocalDate FROM = LocalDate.of(1900, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2100, 12, 31);
+
+    // Long mantissas that overflow a long, mantissas around 2^53, halfway cases, zeros, signs, exponents
+    private static final String[] EDGE_CASES = {
+            "99.99999999999999999", "9.999999999999999999", "9223372036854775807", "9223372036854775808",
+            "18446744073709551616.5", "0.000000000000000000001", "123456789012345678", "1234567890123456789",
+            "9007199254740992", "9007199254740993", "900719925474099.35", "4503599627370496.5", "0.1", "0.30000000000000004",
+            "123.456", "0", "0.0", "-0.000", "+1.5", "-42.125", "00012.50", "1.", ".5", "1e3", "2.5E-3",
+            "1.7976931348623157E308", "4.9E-324", "NaN", "Infinity", "-Infinity"};
+
+    private static double parse(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        return MappedCsvLoader.parseDouble(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    @Test
+    void edgeCasesMatchDoubleParseDouble() {
+        for (String text : EDGE_CASES) {
+            assertEquals(Double.doubleToLongBits(Double.parseDouble(text)), Double.doubleToLongBits(parse(text)), text);
+        }
+    }
+
+    @Test
+    void randomDecimalsMatchDoubleParseDouble() {
+        SplittableRandom random = new SplittableRandom(42L);
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder text = new StringBuilder();
+            int digits = 1 + random.nextInt(24);
+            int dot = random.nextInt(digits + 1);
+            for (int k = 0; k < digits; k++) {
+                if (k == dot && k > 0) text.append('.');
+                text.append((char) ('0' + random.nextInt(10)));
+            }
+            String value = text.toString();
+            assertEquals(Double.parseDouble(value), parse(value), 0.0, value);
+        }
+    }
+
+    @Test
+    void shortestRepresentationsRoundTrip() {
+        // Double.toString of float and double prices, as SyntheticMarketData and the yfinance export write them
+        SplittableRandom random = new SplittableRandom(11L);
+        for (int i = 0; i < 200_000; i++) {
+            double price = Math.exp(random.nextDouble(-3, 9));
+            double value = (i & 1) == 0 ? price : (float) price;
+            String text = Double.toString(value);
+            if (text.indexOf('E') >= 0) continue;
+            assertEquals(Double.doubleToLongBits(value), Double.doubleToLongBits(parse(text)), text);
+        }
+    }
+
+    @Test
+    void longMantissasTakeTheCheckedDivision() {
+        SplittableRandom random = new SplittableRandom(13L);
+        for (int i = 0; i < 200_000; i++) {
+            // 16 to 18 significant digits, at or above 2^53, with 0 to 18 decimals
+            long mantissa = random.nextLong(1L << 53, 1_000_000_000_000_000_000L);
+            int decimals = random.nextInt(19);
+            double value = MappedCsvLoader.nearestQuotient(mantissa, decimals);
+            BigDecimal exact = new BigDecimal(BigInteger.valueOf(mantissa), decimals);
+            String text = exact.toPlainString();
+            double expected = Double.parseDouble(text);
+            if (Double.isNaN(value)) {
+                // Only an exact halfway point may be left to Double.parseDouble
+                BigDecimal nearest = new BigDecimal(expected);
+                BigDecimal other = new BigDecimal(exact.compareTo(nearest) > 0 ? Math.nextUp(expected) : Math.nextDown(expected));
+                assertEquals(0, nearest.add(other).divide(BigDecimal.valueOf(2)).compareTo(exact), text);
+                continue;
+            }
+            assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(value), text);
+        }
+        // Exactly halfway between 2^53 and 2^53 + 2, left to Double.parseDouble
+        assertTrue(Double.isNaN(MappedCsvLoader.nearestQuotient(9007199254740993L, 0)));
+    }
+
+    @Test
+    void loadsTheSameColumnsAsBufferedCsvLoader(@TempDir Path directory) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(SyntheticMarketData.HEADER);
+        SplittableRandom random = new SplittableRandom(7L);
+        LocalDate day = LocalDate.of(2020, 1, 1);
+        for (int i = 0; i < 2000; i++) {
+            String price = EDGE_CASES[random.nextInt(17)];
+            double base = 1 + random.nextDouble() * 500;
+            lines.add(String.format("%s,%s,%s,%.17f,%s,%s,%d,%s", day.plusDays(i / 4), base, price, base / 3,
+                    Double.toString(base * 1.1), price, random.nextLong(1_000_000_000L), "T" + (i % 4)));
+        }
+        Path csv = directory.resolve("edge.csv");
+        Files.write(csv, lines);
+
+        TestMarkets.assertSameData(new BufferedCsvLoader(FROM, TO).load(csv), new MappedCsvLoader(FROM, TO).load(csv));
+    }
+}
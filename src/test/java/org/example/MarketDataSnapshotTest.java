@@ -0,0 +1,181 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Snapshots written from a parsed CSV and read back, and every way a snapshot must be refused: another source key
+// or a truncated or corrupt file
+class MarketDataSnapshotTest {
+    private static final LocalDate FROM = LocalDate.of(2020, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2022, 12, 31);
+
+    private static Path uneven(Path directory, int tickers) throws IOException {
+        Path csv = directory.resolve("uneven.csv");
+        new SyntheticMarketData(tickers, TestMarkets.START, TestMarkets.END, 42L, true).writeCsv(csv);
+        return csv;
+    }
+
+    private static Map<String, PriceSeries> snapshotOf(Path csv) throws IOException {
+        Map<String, PriceSeries> data = new MappedCsvLoader(FROM, TO).load(csv);
+        MarketDataSnapshot.write(MarketDataSnapshot.snapshotPath(csv), MarketDataSnapshot.keyOf(csv, FROM, TO), data);
+        return data;
+    }
+
+    private static Map<String, PriceSeries> read(Path csv) throws IOException {
+        return MarketDataSnapshot.read(MarketDataSnapshot.snapshotPath(csv), MarketDataSnapshot.keyOf(csv, FROM, TO));
+    }
+
+    // Replaces the byte at position with another digit, keeping the file's size and modification time
+    private static void editDigitInPlace(Path csv, long position) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(csv);
+        byte[] bytes = Files.readAllBytes(csv);
+        int i = (int) position;
+        while (bytes[i] < '0' || bytes[i] > '8') i++;
+        bytes[i]++;
+        Files.write(csv, bytes);
+        Files.setLastModifiedTime(csv, modified);
+    }
+
+    @Test
+    void roundTripMatchesTheParsedCsv(@TempDir Path directory) throws IOException {
+        Path csv = uneven(directory, 20);
+        Map<String, PriceSeries> data = new HashMap<>(new MappedCsvLoader(FROM, TO).load(csv));
+        data.put("EMPTY", new PriceSeries.Builder("EMPTY", 1).build());
+        MarketDataSnapshot.write(MarketDataSnapshot.snapshotPath(csv), MarketDataSnapshot.keyOf(csv, FROM, TO), data);
+
+        TestMarkets.assertSameData(data, read(csv));
+    }
+
+    @Test
+    void anotherSourceKeyIsRefused(@TempDir Path directory) throws IOException {
+        Path csv = uneven(directory, 5);
+        Path snapshot = MarketDataSnapshot.snapshotPath(csv);
+        snapshotOf(csv);
+        assertNotNull(read(csv));
+
+        // Another date range
+        assertNull(MarketDataSnapshot.read(snapshot, MarketDataSnapshot.keyOf(csv, FROM, TO.minusDays(1))));
+        assertNull(MarketDataSnapshot.read(snapshot, MarketDataSnapshot.keyOf(csv, FROM.plusDays(1), TO)));
+
+        // Another modification time
+        FileTime modified = Files.getLastModifiedTime(csv);
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(modified.toMillis() + 1000));
+        assertNull(read(csv));
+        Files.setLastModifiedTime(csv, modified);
+        assertNotNull(read(csv));
+
+        // Another size
+        Files.writeString(csv, "2022-12-30,1.0,1.0,1.0,1.0,1.0,1,NEW\n", StandardOpenOption.APPEND);
+        assertNull(read(csv));
+    }
+
+    @Test
+    void inPlaceEditsChangeTheKey(@TempDir Path directory) throws IOException {
+        // Large enough that the 32 samples of the sampled hash leave gaps between them
+        Path csv = uneven(directory, 60);
+        long size = Files.size(csv);
+        long stride = size / 32;
+        MarketDataSnapshot.Key sampled = MarketDataSnapshot.keyOf(csv, FROM, TO, true);
+        snapshotOf(csv);
+
+        // In the gap between the first two samples, with the same size and modification time
+        editDigitInPlace(csv, stride - 1024);
+        assertEquals(size, Files.size(csv));
+        assertNull(read(csv));
+        // The opt-in sampled key can't see it
+        MarketDataSnapshot.Key sampledAfter = MarketDataSnapshot.keyOf(csv, FROM, TO, true);
+        ByteBuffer header = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+        sampled.writeTo(header.position(8));
+        assertTrue(sampledAfter.matches(header));
+        // and never matches a full key
+        header.clear();
+        MarketDataSnapshot.keyOf(csv, FROM, TO).writeTo(header.position(8));
+        assertFalse(sampledAfter.matches(header));
+    }
+
+    @Test
+    void stockDataManagerReparsesAnEditedSource(@TempDir Path directory) throws IOException {
+        Path csv = uneven(directory, 5);
+        StockDataManager first = new StockDataManager(FROM, TO);
+        first.loadHistoricalDataFromCSV(csv.toString());
+        assertNotNull(read(csv));
+
+        // Rewrite the open of one row with another value of the same length
+        List<String> lines = Files.readAllLines(csv);
+        String[] fields = lines.get(1000).split(",");
+        int digit = fields[1].length() - 1;
+        char last = fields[1].charAt(digit);
+        fields[1] = fields[1].substring(0, digit) + (char) (last == '9' ? '1' : last + 1);
+        lines.set(1000, String.join(",", fields));
+        FileTime modified = Files.getLastModifiedTime(csv);
+        long size = Files.size(csv);
+        Files.write(csv, lines);
+        Files.setLastModifiedTime(csv, modified);
+        assertEquals(size, Files.size(csv));
+
+        StockDataManager second = new StockDataManager(FROM, TO);
+        second.loadHistoricalDataFromCSV(csv.toString());
+        PriceSeries series = second.getSeries(fields[7]);
+        int i = series.indexOfDay((int) LocalDate.parse(fields[0]).toEpochDay());
+        assertEquals(Double.parseDouble(fields[1]), series.open(i), 0.0);
+        TestMarkets.assertSameData(new MappedCsvLoader(FROM, TO).load(csv), read(csv));
+    }
+
+    @Test
+    void truncatedSnapshotsAreRefused(@TempDir Path directory) throws IOException {
+        Path csv = uneven(directory, 5);
+        Path snapshot = MarketDataSnapshot.snapshotPath(csv);
+        snapshotOf(csv);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        for (int length : new int[]{0, 10, 55, 56, 100, bytes.length / 2, bytes.length - 1}) {
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(bytes));
+                channel.truncate(length);
+            }
+            assertNull(read(csv), "truncated to " + length);
+        }
+    }
+
+    @Test
+    void corruptSnapshotsAreRefused(@TempDir Path directory) throws IOException {
+        Path csv = uneven(directory, 5);
+        Path snapshot = MarketDataSnapshot.snapshotPath(csv);
+        snapshotOf(csv);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        int tickerLength = ByteBuffer.wrap(bytes, 56, 2).order(ByteOrder.LITTLE_ENDIAN).getShort();
+        int rowsAt = 56 + 2 + tickerLength;
+        // Magic, version, file size in the header, then the first table entry's row count and offset
+        int[][] corruptions = {{0, 4}, {4, 4}, {48, 8}, {rowsAt, 4}, {rowsAt + 4, 8}};
+        for (int[] corruption : corruptions) {
+            byte[] corrupt = bytes.clone();
+            for (int i = corruption[0]; i < corruption[0] + corruption[1]; i++) {
+                corrupt[i] = (byte) 0x7F;
+            }
+            Files.write(snapshot, corrupt);
+            assertNull(read(csv), "corrupt at " + corruption[0]);
+        }
+        Files.write(snapshot, "not a snapshot".getBytes(StandardCharsets.US_ASCII));
+        assertNull(read(csv));
+        Files.write(snapshot, bytes);
+        assertNotNull(read(csv));
+    }
+}
@@ -0,0 +1,132 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+// Alignment of gapped series on the union calendar under both missing-data policies
+class MarketPanelTest {
+    // A trades days 1, 2, 4 and 5; B lists on day 2 and skips 4; C trades only on day 3; D has two rows on day 1
+    private static final List<PriceSeries> UNIVERSE = List.of(
+            series("A", new int[]{1, 2, 4, 5}),
+            series("B", new int[]{2, 3, 5, 7}),
+            series("C", new int[]{3}),
+            series("D", new int[]{1, 1, 7}));
+
+    // Prices encode the symbol and row: the close of row i of symbol s is 100 * (s + 1) + i, high and low add 0.5 and 0.25
+    private static PriceSeries series(String ticker, int[] days) {
+        PriceSeries.Builder builder = new PriceSeries.Builder(ticker);
+        double base = 100 * (ticker.charAt(0) - 'A' + 1);
+        for (int i = 0; i < days.length; i++) {
+            builder.add(days[i], base + i, base + i + 0.5, base + i + 0.25, base + i, base + i, 1000 + i);
+        }
+        return builder.build();
+    }
+
+    private static void assertCell(MarketPanel panel, int d, int s, int row, boolean observed) {
+        double base = 100 * (s + 1) + row;
+        String cell = panel.symbol(s) + " on day " + panel.epochDay(d);
+        assertEquals(observed, panel.isObserved(d, s), cell);
+        assertTrue(panel.hasPrice(d, s), cell);
+        assertEquals(base + 0.5, panel.high(d, s), 0.0, cell);
+        assertEquals(base + 0.25, panel.low(d, s), 0.0, cell);
+        assertEquals(base, panel.adjClose(d, s), 0.0, cell);
+        assertEquals(observed ? 1000 + row : 0, panel.volume(d, s), cell);
+    }
+
+    private static void assertEmpty(MarketPanel panel, int d, int s) {
+        String cell = panel.symbol(s) + " on day " + panel.epochDay(d);
+        assertFalse(panel.isObserved(d, s), cell);
+        assertFalse(panel.hasPrice(d, s), cell);
+        assertTrue(Double.isNaN(panel.high(d, s)), cell);
+        assertTrue(Double.isNaN(panel.low(d, s)), cell);
+        assertTrue(Double.isNaN(panel.adjClose(d, s)), cell);
+        assertEquals(0, panel.volume(d, s), cell);
+    }
+
+    private static int[] calendar(MarketPanel panel) {
+        int[] days = new int[panel.dayCount()];
+        for (int d = 0; d < days.length; d++) {
+            days[d] = panel.epochDay(d);
+        }
+        return days;
+    }
+
+    @Test
+    void forwardFillRepeatsTheLastBarAfterTheFirst() {
+        MarketPanel panel = MarketPanel.build(UNIVERSE, MissingDataPolicy.FORWARD_FILL);
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 7}, calendar(panel));
+        assertEquals(4, panel.symbolCount());
+
+        // A: bars on days 1, 2, 4, 5; day 3 shows day 2's bar and day 7 day 5's
+        assertCell(panel, 0, 0, 0, true);
+        assertCell(panel, 1, 0, 1, true);
+        assertCell(panel, 2, 0, 1, false);
+        assertCell(panel, 3, 0, 2, true);
+        assertCell(panel, 4, 0, 3, true);
+        assertCell(panel, 5, 0, 3, false);
+        // B: nothing before its first bar
+        assertEmpty(panel, 0, 1);
+        assertCell(panel, 1, 1, 0, true);
+        assertCell(panel, 2, 1, 1, true);
+        assertCell(panel, 3, 1, 1, false);
+        assertCell(panel, 4, 1, 2, true);
+        assertCell(panel, 5, 1, 3, true);
+        // C: filled to the end after its only bar
+        assertEmpty(panel, 0, 2);
+        assertEmpty(panel, 1, 2);
+        assertCell(panel, 2, 2, 0, true);
+        for (int d = 3; d < 6; d++) {
+            assertCell(panel, d, 2, 0, false);
+        }
+        // D: the later of the two rows on day 1 wins and fills days 2 to 5
+        assertCell(panel, 0, 3, 1, true);
+        for (int d = 1; d < 5; d++) {
+            assertCell(panel, d, 3, 1, false);
+        }
+        assertCell(panel, 5, 3, 2, true);
+    }
+
+    @Test
+    void skipLeavesMissingCellsEmpty() {
+        MarketPanel panel = MarketPanel.build(UNIVERSE, MissingDataPolicy.SKIP);
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 7}, calendar(panel));
+        int[][] rows = {
+                {0, 1, -1, 2, 3, -1},
+                {-1, 0, 1, -1, 2, 3},
+                {-1, -1, 0, -1, -1, -1},
+                {1, -1, -1, -1, -1, 2}};
+        for (int s = 0; s < rows.length; s++) {
+            for (int d = 0; d < rows[s].length; d++) {
+                if (rows[s][d] < 0) {
+                    assertEmpty(panel, d, s);
+                } else {
+                    assertCell(panel, d, s, rows[s][d], true);
+                }
+            }
+        }
+    }
+
+    @Test
+    void givenCalendarMustHoldEveryBar() {
+        MarketPanel panel = MarketPanel.build(UNIVERSE, MissingDataPolicy.FORWARD_FILL, new int[]{0, 1, 2, 3, 4, 5, 6, 7});
+        assertEmpty(panel, 0, 0);
+        assertCell(panel, 6, 0, 3, false);
+        assertThrows(IllegalArgumentException.class,
+                () -> MarketPanel.build(UNIVERSE, MissingDataPolicy.SKIP, new int[]{1, 2, 3, 5, 7}));
+    }
+
+    @Test
+    void symbolsResolveToTheirColumn() {
+        MarketPanel panel = MarketPanel.build(UNIVERSE, MissingDataPolicy.SKIP);
+        for (int s = 0; s < UNIVERSE.size(); s++) {
+            assertEquals(s, panel.symbolIndex(UNIVERSE.get(s).getTicker()));
+        }
+        assertEquals(-1, panel.symbolIndex("E"));
+    }
+}
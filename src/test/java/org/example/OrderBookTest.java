@@ -0,0 +1,181 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+// Fill prices and commissions, fills capped by the day's volume, orders expiring or replaced with shares left
+// unfilled, and buys cut to the cash, on a two-symbol panel whose closes are all 100
+class OrderBookTest {
+    private static final double CLOSE = 100;
+    private static final long VOLUME = 1000;
+    private static final double CAPITAL = 1_000_000;
+
+    // A trades every day; B lists a day late and skips day 3
+    private static final MarketPanel PANEL = MarketPanel.build(List.of(
+            series("A", new int[]{0, 1, 2, 3, 4, 5}),
+            series("B", new int[]{1, 2, 4, 5})), MissingDataPolicy.FORWARD_FILL);
+
+    private static PriceSeries series(String ticker, int[] days) {
+        PriceSeries.Builder builder = new PriceSeries.Builder(ticker);
+        for (int day : days) {
+            builder.add(18000 + day, CLOSE, CLOSE, CLOSE, CLOSE, CLOSE, VOLUME);
+        }
+        return builder.build();
+    }
+
+    private static Portfolio portfolio(double capital) {
+        return Portfolio.create(ArithmeticMode.DECIMAL, Portfolio.Allocation.POOLED, PANEL.symbolCount(),
+                Universe.all(PANEL), capital);
+    }
+
+    @Test
+    void pricesAndCommissions() {
+        ExecutionModel model = ExecutionModel.parse("commission=0.01,bps=2,min=1,slippage=10,impact=0.1");
+        // 10 bp of slippage plus 0.1 x the 20% of the day's volume taken
+        assertEquals(102.1, model.fillPrice(CLOSE, 200, VOLUME), 1e-12);
+        assertEquals(97.9, model.fillPrice(CLOSE, -200, VOLUME), 1e-12);
+        assertEquals(CLOSE * 1.001, model.fillPrice(CLOSE, 200, 0), 1e-12);
+        // 0.01 x 200 shares plus 2 bp of 20,420 notional, over the minimum
+        assertEquals(6.084, model.commission(200, 102.1), 1e-12);
+        assertEquals(6.084, model.commission(-200, 102.1), 1e-12);
+        // 0.1 plus 0.02: the minimum applies
+        assertEquals(1.0, model.commission(10, 100), 0.0);
+
+        Portfolio portfolio = portfolio(CAPITAL);
+        OrderBook book = new OrderBook(model, portfolio, PANEL.symbolCount());
+        portfolio.attach(book);
+        portfolio.buy(0, 200, CLOSE);
+        // Held until the book is filled
+        assertEquals(0, portfolio.position(0));
+        assertEquals(200, book.pendingShares(0));
+
+        book.fill(PANEL, 0);
+        assertEquals(200, portfolio.position(0));
+        assertEquals(CAPITAL - 200 * 102.1 - 6.084, portfolio.availableCash(0), 1e-6);
+        OrderBook.Stats stats = book.stats();
+        assertEquals(1, stats.getFills());
+        assertEquals(200, stats.getFilledShares());
+        assertEquals(6.084, stats.getCommissions(), 1e-12);
+        assertEquals(2.1 * 200, stats.getSlippage(), 1e-9);
+        assertEquals(6.084 + 2.1 * 200, stats.getTransactionCosts(), 1e-9);
+
+        portfolio.sell(0, 200, CLOSE);
+        book.fill(PANEL, 1);
+        assertEquals(0, portfolio.position(0));
+        assertEquals(CAPITAL - 200 * 102.1 - 6.084 + 200 * 97.9 - model.commission(200, 97.9),
+                portfolio.availableCash(0), 1e-6);
+    }
+
+    @Test
+    void fillsAreCappedByVolume() {
+        // At most 100 shares a day
+        ExecutionModel model = ExecutionModel.parse("participation=0.1,pending=5");
+        assertEquals(100, model.capacity(VOLUME));
+        assertEquals(Long.MAX_VALUE, ExecutionModel.IMMEDIATE.capacity(VOLUME));
+
+        Portfolio portfolio = portfolio(CAPITAL);
+        OrderBook book = new OrderBook(model, portfolio, PANEL.symbolCount());
+        book.submitBuy(0, 250);
+        book.submitSell(1, 250);
+        // Pending shares are signed; B has no bar on days 0 and 3, so doesn't fill on them
+        long[] a = {150, 50, 0, 0};
+        long[] b = {-250, -150, -50, -50};
+        for (int d = 0; d < 4; d++) {
+            book.fill(PANEL, d);
+            assertEquals(a[d], book.pendingShares(0), "A after day " + d);
+            assertEquals(b[d], book.pendingShares(1), "B after day " + d);
+        }
+        assertEquals(250, portfolio.position(0));
+        // Sells may go short
+        assertEquals(-200, portfolio.position(1));
+        book.fill(PANEL, 4);
+        assertEquals(-250, portfolio.position(1));
+        assertEquals(0, book.size());
+
+        OrderBook.Stats stats = book.stats();
+        assertEquals(2, stats.getSubmitted());
+        assertEquals(6, stats.getFills());
+        assertEquals(500, stats.getFilledShares());
+        assertEquals(0, stats.getExpiredShares());
+        assertEquals(0.0, stats.getTransactionCosts(), 0.0);
+    }
+
+    @Test
+    void unfilledSharesExpire() {
+        // Cancelled at the end of the first day
+        OrderBook today = new OrderBook(ExecutionModel.parse("participation=0.1"), portfolio(CAPITAL), 2);
+        today.submitBuy(0, 250);
+        today.fill(PANEL, 0);
+        assertEquals(0, today.size());
+        assertEquals(0, today.pendingShares(0));
+        assertEquals(100, today.stats().getFilledShares());
+        assertEquals(150, today.stats().getExpiredShares());
+
+        // One more day, counted from the first day the book fills
+        OrderBook twoDays = new OrderBook(ExecutionModel.parse("participation=0.1,pending=1"), portfolio(CAPITAL), 2);
+        twoDays.submitBuy(0, 350);
+        twoDays.fill(PANEL, 2);
+        assertEquals(250, twoDays.pendingShares(0));
+        twoDays.fill(PANEL, 3);
+        assertEquals(0, twoDays.size());
+        assertEquals(200, twoDays.stats().getFilledShares());
+        assertEquals(150, twoDays.stats().getExpiredShares());
+
+        // A new order for the symbol replaces the pending one, whose rest counts as expired
+        OrderBook replaced = new OrderBook(ExecutionModel.parse("participation=0.1,pending=5"), portfolio(CAPITAL), 2);
+        replaced.submitBuy(0, 350);
+        replaced.fill(PANEL, 0);
+        replaced.submitSell(0, 50);
+        assertEquals(1, replaced.size());
+        assertEquals(-50, replaced.pendingShares(0));
+        assertEquals(250, replaced.stats().getExpiredShares());
+        replaced.fill(PANEL, 1);
+        assertEquals(0, replaced.size());
+        assertEquals(150, replaced.stats().getFilledShares());
+    }
+
+    @Test
+    void buysAreCutToTheCash() {
+        // 10,000 buys 100 shares at 100, but the 5 commission leaves room for 99
+        ExecutionModel model = ExecutionModel.parse("min=5,pending=1");
+        Portfolio portfolio = portfolio(10_000);
+        OrderBook book = new OrderBook(model, portfolio, 2);
+        book.submitBuy(0, 200);
+        book.fill(PANEL, 0);
+        assertEquals(99, portfolio.position(0));
+        assertEquals(101, book.pendingShares(0));
+        assertEquals(10_000 - 99 * CLOSE - 5, portfolio.availableCash(0), 1e-9);
+
+        // Nothing left to buy with
+        book.fill(PANEL, 1);
+        assertEquals(99, portfolio.position(0));
+        assertEquals(1, book.stats().getFills());
+        assertEquals(101, book.stats().getExpiredShares());
+    }
+
+    @Test
+    void rejectsBadOrdersAndSettings() {
+        Portfolio portfolio = portfolio(CAPITAL);
+        OrderBook book = new OrderBook(ExecutionModel.parse("pending=1"), portfolio, 2);
+        portfolio.attach(book);
+        assertThrows(IllegalArgumentException.class, () -> book.submitBuy(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> book.submitSell(0, -5));
+        // A negative size from a strategy doesn't turn into the opposite trade
+        assertThrows(IllegalArgumentException.class, () -> portfolio.buy(1, -10, CLOSE));
+        assertThrows(IllegalArgumentException.class, () -> portfolio.sell(1, 0, CLOSE));
+        assertEquals(0, book.size());
+        assertEquals(0, book.stats().getSubmitted());
+
+        assertEquals(new ExecutionModel(0.005, 1, 1, 5, 0.1, 0.1, 5),
+                ExecutionModel.parse("commission=0.005, bps=1,min=1,slippage=5,impact=0.1,participation=0.1,pending=5"));
+        assertEquals(ExecutionModel.IMMEDIATE, ExecutionModel.parse("IMMEDIATE"));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionModel.parse("commission"));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionModel.parse("spread=1"));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionModel.parse("slippage=-1"));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionModel.parse("participation=0"));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionModel.parse("pending=-1"));
+    }
+}
@@ -0,0 +1,111 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The grid, the indicators each swept parameter selects, and the sweep's results against one simulate() per
+// parameter set
+class ParameterSweepTest {
+    private static final StrategyParameters BASE = new StrategyParameters(10, 50, 14, 14, 3.0);
+
+    @TempDir
+    static Path directory;
+    private static StockDataManager dataManager;
+
+    @BeforeAll
+    static void load() {
+        dataManager = TestMarkets.load(directory, 10);
+    }
+
+    // Fails if strategy didn't request the indicator under key when it was initialized
+    private static void assertRequested(IndicatorBank bank, String key) {
+        bank.get(key, () -> {
+            throw new AssertionError(key + " was not requested");
+        });
+    }
+
+    @Test
+    void gridSkipsShortWindowsNotBelowTheLongWindow() {
+        List<StrategyParameters> grid = ParameterSweep.grid(new int[]{5, 50, 60}, new int[]{50, 100}, new int[]{9, 14},
+                new int[]{7}, new double[]{2.0, 3.0});
+        // (5, 50), (5, 100), (50, 100) and (60, 100), each with 2 RSI periods and 2 multipliers
+        assertEquals(16, grid.size());
+        for (StrategyParameters parameters : grid) {
+            assertTrue(parameters.getShortWindow() < parameters.getLongWindow(), parameters.toString());
+            assertEquals(7, parameters.getAtrPeriod());
+        }
+    }
+
+    @Test
+    void eachParameterSelectsItsOwnIndicator() {
+        MarketPanel panel = dataManager.getPanel();
+        IndicatorBank bank = new IndicatorBank(panel.symbolCount());
+        new ExponentialMovingAverage(new StrategyParameters(5, 30, 9, 21, 2.0)).initialize(panel, Universe.all(panel), bank);
+        assertRequested(bank, "EMA(5)");
+        assertRequested(bank, "EMA(30)");
+        assertRequested(bank, "RSI(9)");
+        assertRequested(bank, "ATR(21)");
+        assertEquals(4, bank.size());
+
+        bank = new IndicatorBank(panel.symbolCount());
+        new SimpleMovingAverage(new StrategyParameters(5, 30, 9, 21, 2.0)).initialize(panel, Universe.all(panel), bank);
+        assertRequested(bank, "LaggedSMA(5)");
+        assertRequested(bank, "LaggedSMA(30)");
+        assertEquals(2, bank.size());
+    }
+
+    @Test
+    void eachSweptParameterChangesTheEmaResult() {
+        BacktestResult base = ExponentialMovingAverage.simulate(dataManager, BASE);
+        StrategyParameters[] variations = {
+                new StrategyParameters(5, 50, 14, 14, 3.0),
+                new StrategyParameters(10, 100, 14, 14, 3.0),
+                new StrategyParameters(10, 50, 7, 14, 3.0),
+                new StrategyParameters(10, 50, 14, 7, 3.0),
+                new StrategyParameters(10, 50, 14, 14, 2.0)};
+        for (StrategyParameters parameters : variations) {
+            BacktestResult varied = ExponentialMovingAverage.simulate(dataManager, parameters);
+            assertFalse(Arrays.equals(base.getPortfolioValues(), varied.getPortfolioValues()), parameters.toString());
+        }
+    }
+
+    @Test
+    void sweepMatchesSeparateSimulations() {
+        List<StrategyParameters> grid = ParameterSweep.grid(new int[]{5, 10}, new int[]{50}, new int[]{14},
+                new int[]{10, 14}, new double[]{2.0, 3.0});
+        ForkJoinPool pool = new ForkJoinPool(3);
+        List<BacktestResult> results;
+        try {
+            results = new ParameterSweep(dataManager, ExponentialMovingAverage::simulate, pool).run(grid);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(grid.size(), results.size());
+        Map<StrategyParameters, BacktestResult> byParameters = new HashMap<>();
+        for (BacktestResult result : results) {
+            byParameters.put(result.getParameters(), result);
+        }
+        for (StrategyParameters parameters : grid) {
+            BacktestResult expected = ExponentialMovingAverage.simulate(dataManager, parameters);
+            BacktestResult actual = byParameters.get(parameters);
+            assertArrayEquals(expected.getPortfolioValues(), actual.getPortfolioValues(), parameters.toString());
+            assertEquals(expected.getSharpeRatio(), actual.getSharpeRatio(), 0.0, parameters.toString());
+        }
+        for (int i = 1; i < results.size(); i++) {
+            assertTrue(ParameterSweep.RANKING.compare(results.get(i - 1), results.get(i)) <= 0);
+        }
+    }
+}
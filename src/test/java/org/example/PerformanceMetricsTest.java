@@ -0,0 +1,155 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+// The fused pass and the rolling windows against a naive two-pass computation of each metric
+class PerformanceMetricsTest {
+    private static final int MARKET_FROM = 7;
+
+    // Daily returns around 5 bp with 1% volatility, and the values they compound to from a million
+    private static double[][] series(int days, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] returns = new double[days];
+        double[] values = new double[days];
+        double[] market = new double[MARKET_FROM + days];
+        for (int i = 0; i < market.length; i++) {
+            market[i] = 0.0003 + 0.008 * (random.nextDouble() * 2 - 1);
+        }
+        double value = 1_000_000;
+        for (int i = 0; i < days; i++) {
+            returns[i] = 0.0005 + 0.6 * market[MARKET_FROM + i] + 0.01 * (random.nextDouble() * 2 - 1);
+            value *= 1 + returns[i];
+            values[i] = value;
+        }
+        return new double[][]{returns, values, market};
+    }
+
+    // Two passes over days [from, to): the means first, then the deviations from them
+    private static void assertMatchesReference(double[] returns, double[] values, double[] market, int from, int to,
+                                               PerformanceMetrics actual, String name) {
+        int n = to - from;
+        double mean = 0, marketMean = 0;
+        for (int i = from; i < to; i++) {
+            mean += returns[i];
+            marketMean += market[MARKET_FROM + i];
+        }
+        mean /= n;
+        marketMean /= n;
+
+        double variance = 0, downside = 0, covariance = 0, marketVariance = 0, marketSquares = 0;
+        int positive = 0;
+        for (int i = from; i < to; i++) {
+            double deviation = returns[i] - mean;
+            double m = market[MARKET_FROM + i] - marketMean;
+            variance += deviation * deviation;
+            if (returns[i] < 0) downside += returns[i] * returns[i];
+            if (returns[i] > 0) positive++;
+            covariance += deviation * m;
+            marketVariance += m * m;
+            marketSquares += market[MARKET_FROM + i] * market[MARKET_FROM + i];
+        }
+        variance /= n;
+        double beta = covariance / marketVariance;
+        // A window of nearly equal market returns leaves the regression ill-conditioned: the market variance is a
+        // small difference of the sums of squares, and beta is only as accurate as that difference
+        double condition = Math.max(1, marketSquares / marketVariance);
+
+        assertEquals(n, actual.getDays(), name);
+        assertClose(mean, actual.getMean(), name + " mean");
+        assertClose(variance, actual.getVariance(), name + " variance");
+        assertClose(mean / Math.sqrt(variance), actual.getSharpeRatio(), name + " Sharpe ratio");
+        assertClose(mean / Math.sqrt(downside / n), actual.getSortinoRatio(), name + " Sortino ratio");
+        assertEquals((double) positive / n, actual.getHitRate(), 0.0, name + " hit rate");
+        assertClose(beta, actual.getBeta(), condition, name + " beta");
+        assertClose(mean - beta * marketMean, actual.getAlpha(), condition * Math.abs(beta * marketMean / mean),
+                name + " alpha");
+        assertEquals(BacktestEngine.calculateMaxDrawdown(Arrays.copyOfRange(values, from, to)), actual.getMaxDrawdown(),
+                0.0, name + " max drawdown");
+    }
+
+    private static void assertClose(double expected, double actual, String name) {
+        assertClose(expected, actual, 1, name);
+    }
+
+    private static void assertClose(double expected, double actual, double condition, String name) {
+        assertEquals(expected, actual, 1e-9 * condition * Math.abs(expected) + 1e-15, name);
+    }
+
+    @Test
+    void computeMatchesTwoPassReference() {
+        for (int days : new int[]{2, 3, 17, 252, 5000}) {
+            double[][] s = series(days, days);
+            assertMatchesReference(s[0], s[1], s[2], 0, days, PerformanceMetrics.of(s[0], s[1], s[2], MARKET_FROM),
+                    days + " days");
+            assertMatchesReference(s[0], s[1], s[2], 0, days, PerformanceMetrics.scalarOf(s[0], s[1], s[2], MARKET_FROM),
+                    days + " days, scalar");
+        }
+    }
+
+    @Test
+    void rollingMatchesTwoPassReferenceOverManyWindows() {
+        // Long enough for the sums to be recomputed afresh many times over
+        int days = 3000;
+        double[][] s = series(days, 11);
+        for (int window : new int[]{2, 21, 63, 252}) {
+            PerformanceMetrics[] rolling = PerformanceMetrics.rolling(s[0], s[1], s[2], MARKET_FROM, window);
+            assertEquals(days - window + 1, rolling.length);
+            for (int start = 0; start < rolling.length; start++) {
+                assertMatchesReference(s[0], s[1], s[2], start, start + window, rolling[start],
+                        "window " + window + " from " + start);
+            }
+        }
+        assertEquals(0, PerformanceMetrics.rolling(s[0], s[1], s[2], MARKET_FROM, days + 1).length);
+    }
+
+    @Test
+    void constantReturnsHaveNoVariance() {
+        int days = 400;
+        double[][] s = series(days, 3);
+        double[] returns = new double[days];
+        double[] values = new double[days];
+        Arrays.fill(returns, 0.001);
+        double value = 1_000_000;
+        for (int i = 0; i < days; i++) {
+            value *= 1.001;
+            values[i] = value;
+        }
+
+        PerformanceMetrics all = PerformanceMetrics.of(returns, values, s[2], MARKET_FROM);
+        PerformanceMetrics[] rolling = PerformanceMetrics.rolling(returns, values, s[2], MARKET_FROM, 30);
+        PerformanceMetrics[] checked = Arrays.copyOf(rolling, rolling.length + 1);
+        checked[rolling.length] = all;
+        for (PerformanceMetrics m : checked) {
+            assertEquals(0.001, m.getMean(), 1e-18);
+            assertEquals(0.0, m.getVariance(), 0.0);
+            assertEquals(Double.POSITIVE_INFINITY, m.getSharpeRatio());
+            // No negative returns to risk
+            assertEquals(Double.POSITIVE_INFINITY, m.getSortinoRatio());
+            assertEquals(1.0, m.getHitRate(), 0.0);
+            assertEquals(0.0, m.getMaxDrawdown(), 0.0);
+            // Uncorrelated with any market: all of the return is alpha
+            assertEquals(0.0, m.getBeta(), 0.0);
+            assertEquals(0.001, m.getAlpha(), 1e-18);
+        }
+    }
+
+    @Test
+    void optionalSeriesAndBadInput() {
+        double[][] s = series(100, 5);
+        PerformanceMetrics withoutValues = PerformanceMetrics.of(s[0], null, s[2], MARKET_FROM);
+        assertTrue(Double.isNaN(withoutValues.getMaxDrawdown()));
+        assertEquals(PerformanceMetrics.of(s[0], s[1], s[2], MARKET_FROM).getSharpeRatio(),
+                withoutValues.getSharpeRatio(), 0.0);
+        assertTrue(Double.isNaN(PerformanceMetrics.of(s[0], s[1], null, 0).getBeta()));
+
+        assertThrows(IllegalArgumentException.class, () -> PerformanceMetrics.of(s[0], new double[99], s[2], MARKET_FROM));
+        assertThrows(IllegalArgumentException.class, () -> PerformanceMetrics.of(s[0], s[1], s[2], MARKET_FROM + 1));
+        assertThrows(IllegalArgumentException.class, () -> PerformanceMetrics.rolling(s[0], s[1], s[2], MARKET_FROM, 1));
+    }
+}
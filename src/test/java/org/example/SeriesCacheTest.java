@@ -0,0 +1,106 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+// Eviction in least-recently-used order once the bars held go over the bound, and the counts kept along the way
+class SeriesCacheTest {
+    private static final Map<String, Integer> SIZES = Map.of("A", 10, "B", 10, "C", 10, "D", 10, "BIG", 50);
+
+    // Series of the sizes above; records every ticker it is asked to decode
+    private static final class Loader implements SeriesCache.Loader {
+        private final List<String> loads = new ArrayList<>();
+
+        @Override
+        public PriceSeries load(String ticker) {
+            loads.add(ticker);
+            Integer size = SIZES.get(ticker);
+            if (size == null) {
+                return null;
+            }
+            PriceSeries.Builder builder = new PriceSeries.Builder(ticker, size);
+            for (int i = 0; i < size; i++) {
+                builder.add(18000 + i, 1, 1, 1, 1, 1, 100);
+            }
+            return builder.build();
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedFirst() throws IOException {
+        Loader loader = new Loader();
+        SeriesCache cache = new SeriesCache(30, loader);
+        PriceSeries a = cache.get("A");
+        cache.get("B");
+        cache.get("C");
+        assertEquals(30, cache.getCachedBars());
+        assertEquals(0, cache.getEvictions());
+
+        // A used again, so B is now the eldest
+        assertSame(a, cache.get("A"));
+        cache.get("D");
+        assertEquals(List.of("A", "B", "C", "D"), loader.loads);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.getCachedSeries());
+
+        cache.get("A");
+        cache.get("C");
+        cache.get("D");
+        assertEquals(4, loader.loads.size(), "A, C and D still cached");
+        cache.get("B");
+        assertEquals("B", loader.loads.get(4));
+        assertEquals(2, cache.getEvictions(), "A went");
+        cache.get("A");
+        assertEquals("A", loader.loads.get(5));
+
+        assertEquals(4, cache.getHits());
+        assertEquals(6, cache.getMisses());
+        assertEquals(30, cache.getCachedBars());
+    }
+
+    @Test
+    void keepsTheLatestSeriesOverTheBound() throws IOException {
+        SeriesCache cache = new SeriesCache(30, new Loader());
+        cache.get("A");
+        cache.get("B");
+        assertEquals(50, cache.get("BIG").size());
+        assertEquals(1, cache.getCachedSeries());
+        assertEquals(50, cache.getCachedBars());
+        assertEquals(2, cache.getEvictions());
+
+        cache.get("BIG");
+        assertEquals(1, cache.getHits());
+        cache.get("A");
+        assertEquals(10, cache.getCachedBars(), "BIG went for A");
+    }
+
+    @Test
+    void unknownTickersAndClear() throws IOException {
+        Loader loader = new Loader();
+        SeriesCache cache = new SeriesCache(30, loader);
+        assertNull(cache.get("NOPE"));
+        assertNull(cache.get("NOPE"));
+        // Not cached: each lookup asks the loader again
+        assertEquals(List.of("NOPE", "NOPE"), loader.loads);
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getCachedSeries());
+
+        cache.get("A");
+        cache.clear();
+        assertEquals(0, cache.getCachedBars());
+        assertEquals(0, cache.getCachedSeries());
+        cache.get("A");
+        assertEquals(4, cache.getMisses());
+        assertEquals(List.of("NOPE", "NOPE", "A", "A"), loader.loads);
+
+        assertThrows(IllegalArgumentException.class, () -> new SeriesCache(0, loader));
+    }
+}
@@ -0,0 +1,84 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Partitions run one by one as the worker JVMs would, written to and read back from their partial files, and
+// merged, against a single run over every ticker
+class ShardedBacktestTest {
+    private static final double CAPITAL = BacktestEngine.DEFAULT_INITIAL_CAPITAL;
+
+    private static BacktestResult sharded(Path csv, Path directory, int shards, ExecutionModel execution)
+            throws IOException {
+        StockDataManager index = new StockDataManager();
+        index.setUseSnapshots(false);
+        index.indexHistoricalDataFromCSV(csv.toString(), 1);
+        List<String> tickers = index.getStocks();
+        int[] calendar = new int[0];
+        for (String ticker : tickers) {
+            calendar = ShardedBacktest.union(calendar, index.getSeries(ticker));
+        }
+
+        List<ShardedBacktest.Partial> partials = new ArrayList<>();
+        List<List<String>> partitions = ShardedBacktest.partition(tickers, shards);
+        for (int i = 0; i < partitions.size(); i++) {
+            StockDataManager dataManager = new StockDataManager();
+            dataManager.setUseSnapshots(false);
+            dataManager.indexHistoricalDataFromCSV(csv.toString());
+            Path file = directory.resolve("shard-" + i + ".partial");
+            ShardedBacktest.runPartition(dataManager, partitions.get(i), calendar, tickers.size(),
+                    new SimpleMovingAverage(StrategyParameters.DEFAULT), CAPITAL, execution).write(file);
+            partials.add(ShardedBacktest.Partial.read(file));
+        }
+        return ShardedBacktest.merge(partials, new SimpleMovingAverage(StrategyParameters.DEFAULT), CAPITAL);
+    }
+
+    private static void check(int shards, ExecutionModel execution, Path directory) throws IOException {
+        // Uneven histories, so the partitions' own calendars differ from the whole one
+        Path csv = directory.resolve("uneven.csv");
+        new SyntheticMarketData(30, TestMarkets.START, TestMarkets.END, 42L, true).writeCsv(csv);
+
+        BacktestResult merged = sharded(csv, directory, shards, execution);
+        BacktestResult single = new BacktestEngine(TestMarkets.load(csv), CAPITAL, ArithmeticMode.FIXED_POINT, execution)
+                .run(new SimpleMovingAverage(StrategyParameters.DEFAULT));
+
+        assertEquals(single.getFinalCapital(), merged.getFinalCapital());
+        assertArrayEquals(single.getPortfolioValues(), merged.getPortfolioValues());
+        assertArrayEquals(single.getDailyReturns(), merged.getDailyReturns());
+        assertEquals(single.getSharpeRatio(), merged.getSharpeRatio(), 0.0);
+        assertEquals(single.getMaxDrawdown(), merged.getMaxDrawdown(), 0.0);
+        assertEquals(single.getAccuracy(), merged.getAccuracy(), 0.0);
+        // The market returns are summed per partition, so the regression only agrees to rounding
+        assertEquals(single.getAlpha(), merged.getAlpha(), 1e-12);
+        assertEquals(single.getBeta(), merged.getBeta(), 1e-9);
+    }
+
+    @Test
+    void mergedPartitionsMatchASingleRun(@TempDir Path directory) throws IOException {
+        check(4, ExecutionModel.IMMEDIATE, directory);
+    }
+
+    @Test
+    void mergedPartitionsMatchASingleRunWithExecutionCosts(@TempDir Path directory) throws IOException {
+        check(3, ExecutionModel.parse("commission=0.005,min=1,slippage=5,participation=0.1,pending=3"), directory);
+    }
+
+    @Test
+    void pooledStrategiesCannotBePartitioned(@TempDir Path directory) {
+        Path csv = TestMarkets.writeCsv(directory, "small.csv", 4, TestMarkets.END);
+        StockDataManager dataManager = new StockDataManager();
+        dataManager.setUseSnapshots(false);
+        dataManager.indexHistoricalDataFromCSV(csv.toString());
+        assertThrows(IllegalArgumentException.class, () -> ShardedBacktest.runPartition(dataManager,
+                List.of(SyntheticMarketData.tickerName(0)), new int[0], 4,
+                new ExponentialMovingAverage(StrategyParameters.DEFAULT), CAPITAL, ExecutionModel.IMMEDIATE));
+    }
+}
@@ -0,0 +1,62 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+
+// Synthetic market data for the tests: a CSV written by SyntheticMarketData and loaded without snapshots
+final class TestMarkets {
+    static final LocalDate START = LocalDate.of(2020, 1, 1);
+    static final LocalDate END = LocalDate.of(2022, 12, 30);
+
+    private TestMarkets() {
+    }
+
+    static Path writeCsv(Path directory, String name, int tickers, LocalDate end) {
+        Path csv = directory.resolve(name);
+        try {
+            new SyntheticMarketData(tickers, START, end, 42L).writeCsv(csv);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return csv;
+    }
+
+    static StockDataManager load(Path csv) {
+        StockDataManager dataManager = new StockDataManager();
+        dataManager.setUseSnapshots(false);
+        dataManager.loadHistoricalDataFromCSV(csv.toString());
+        return dataManager;
+    }
+
+    static StockDataManager load(Path directory, int tickers) {
+        return load(writeCsv(directory, "synthetic.csv", tickers, END));
+    }
+
+    static void assertSameSeries(PriceSeries expected, PriceSeries actual) {
+        String ticker = expected.getTicker();
+        assertEquals(ticker, actual.getTicker());
+        assertEquals(expected.size(), actual.size(), ticker);
+        for (int i = 0; i < expected.size(); i++) {
+            String row = ticker + " row " + i;
+            assertEquals(expected.epochDay(i), actual.epochDay(i), row);
+            assertEquals(expected.open(i), actual.open(i), 0.0, row);
+            assertEquals(expected.high(i), actual.high(i), 0.0, row);
+            assertEquals(expected.low(i), actual.low(i), 0.0, row);
+            assertEquals(expected.close(i), actual.close(i), 0.0, row);
+            assertEquals(expected.adjClose(i), actual.adjClose(i), 0.0, row);
+            assertEquals(expected.volume(i), actual.volume(i), row);
+        }
+    }
+
+    static void assertSameData(Map<String, PriceSeries> expected, Map<String, PriceSeries> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String ticker : expected.keySet()) {
+            assertSameSeries(expected.get(ticker), actual.get(ticker));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Folds that tile the calendar, picks made from in-sample days only, and test windows that start flat
+class WalkForwardTest {
+    private static final int TRAIN = 120;
+    private static final int TEST = 50;
+
+    private static StockDataManager dataManager;
+    private static Universe universe;
+    private static double[] marketReturns;
+
+    @BeforeAll
+    static void load(@TempDir Path directory) {
+        dataManager = TestMarkets.load(directory, 20);
+        universe = Universe.all(dataManager.getPanel());
+        marketReturns = dataManager.equalWeightedMarketReturns(universe, ArithmeticMode.FIXED_POINT);
+    }
+
+    private static List<StrategyParameters> grid() {
+        return ParameterSweep.grid(new int[]{5, 10, 20}, new int[]{30, 60}, new int[]{14}, new int[]{14}, new double[]{2.0, 3.0});
+    }
+
+    private static WalkForward.Result walk(Function<StrategyParameters, Strategy> newStrategy, List<BacktestResult> candidates) {
+        BacktestEngine engine = new BacktestEngine(dataManager);
+        return new WalkForward(TRAIN, TEST).run(candidates, marketReturns, engine, universe, newStrategy);
+    }
+
+    private static List<BacktestResult> candidates(Function<StrategyParameters, Strategy> newStrategy) {
+        List<Strategy> strategies = new ArrayList<>();
+        for (StrategyParameters parameters : grid()) {
+            strategies.add(newStrategy.apply(parameters));
+        }
+        return new BacktestEngine(dataManager).run(strategies);
+    }
+
+    @Test
+    void foldsTileTheCalendarWithoutOverlap() {
+        List<BacktestResult> candidates = candidates(ExponentialMovingAverage::new);
+        WalkForward.Result result = walk(ExponentialMovingAverage::new, candidates);
+        List<WalkForward.Fold> folds = result.getFolds();
+        int days = marketReturns.length;
+        int start = candidates.stream().mapToInt(BacktestResult::getMarketFrom).max().getAsInt();
+
+        assertTrue(folds.size() > 5, folds.size() + " folds");
+        assertEquals(start + TRAIN, result.getFirstDay());
+        assertEquals(days - result.getFirstDay(), result.getReturns().length);
+        int expectedTestStart = result.getFirstDay();
+        for (WalkForward.Fold fold : folds) {
+            assertEquals(expectedTestStart, fold.getTestStart());
+            assertEquals(fold.getTestStart() - TRAIN, fold.getTrainStart());
+            assertEquals(Math.min(days, fold.getTestStart() + TEST), fold.getTestEnd());
+            assertEquals(fold.getTestEnd() - fold.getTestStart(), fold.getOutOfSample().getDays());
+            assertEquals(TRAIN, fold.getInSample().getDays());
+            expectedTestStart = fold.getTestEnd();
+        }
+        assertEquals(days, expectedTestStart);
+    }
+
+    @Test
+    void picksOnInSampleDaysAndTestsFromFlat() {
+        for (Function<StrategyParameters, Strategy> newStrategy
+                : List.<Function<StrategyParameters, Strategy>>of(SimpleMovingAverage::new, ExponentialMovingAverage::new)) {
+            List<BacktestResult> candidates = candidates(newStrategy);
+            WalkForward.Result result = walk(newStrategy, candidates);
+            double[] stitched = result.getReturns();
+
+            for (WalkForward.Fold fold : result.getFolds()) {
+                // The best in-sample Sharpe ratio, from the training days of each candidate alone
+                BacktestResult best = null;
+                double bestSharpe = Double.NaN;
+                for (BacktestResult candidate : candidates) {
+                    int offset = candidate.getMarketFrom();
+                    double sharpe = PerformanceMetrics.of(Arrays.copyOfRange(candidate.getDailyReturns(),
+                            fold.getTrainStart() - offset, fold.getTestStart() - offset), null, null, 0).getSharpeRatio();
+                    if (best == null || sharpe > bestSharpe) {
+                        best = candidate;
+                        bestSharpe = sharpe;
+                    }
+                }
+                assertEquals(best.getParameters(), fold.getParameters());
+                assertEquals(bestSharpe, fold.getInSample().getSharpeRatio(), 0.0);
+
+                // The picked parameters run on their own with a portfolio that opens on the first test day
+                int length = fold.getTestEnd() - fold.getTestStart();
+                BacktestResult alone = new BacktestEngine(dataManager)
+                        .run(new OpeningOn(newStrategy.apply(fold.getParameters()), fold.getTestStart()));
+                double[] expected = Arrays.copyOf(alone.getDailyReturns(), length);
+                int from = fold.getTestStart() - result.getFirstDay();
+                assertArrayEquals(expected, Arrays.copyOfRange(stitched, from, from + length),
+                        fold.getParameters() + " from day " + fold.getTestStart());
+            }
+        }
+    }
+
+    @Test
+    void rejectsCandidatesThatDontFit() {
+        List<BacktestResult> candidates = candidates(SimpleMovingAverage::new);
+        assertThrows(IllegalArgumentException.class, () -> walk(SimpleMovingAverage::new, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new WalkForward(TRAIN, TEST).run(candidates,
+                Arrays.copyOf(marketReturns, marketReturns.length - 1), new BacktestEngine(dataManager), universe,
+                SimpleMovingAverage::new));
+        // Strategies of other parameters than the picks
+        assertThrows(IllegalArgumentException.class, () -> walk(
+                parameters -> new SimpleMovingAverage(StrategyParameters.DEFAULT), candidates));
+        assertThrows(IllegalArgumentException.class, () -> new WalkForward(1, TEST));
+        assertThrows(IllegalArgumentException.class, () -> new WalkForward(TRAIN, 0));
+    }
+
+    // The strategy with its warm-up pushed back to a given day, so its first trade and first mark fall on it
+    private static final class OpeningOn implements Strategy {
+        private final Strategy strategy;
+        private final int day;
+
+        OpeningOn(Strategy strategy, int day) {
+            this.strategy = strategy;
+            this.day = day;
+        }
+
+        @Override public String getName() { return strategy.getName(); }
+        @Override public StrategyParameters getParameters() { return strategy.getParameters(); }
+        @Override public int warmupDays() { return day; }
+        @Override public Portfolio.Allocation allocation() { return strategy.allocation(); }
+
+        @Override
+        public void initialize(MarketPanel panel, Universe universe, IndicatorBank indicators) {
+            strategy.initialize(panel, universe, indicators);
+        }
+
+        @Override
+        public void generateSignals(MarketPanel panel, int d, int[] signals) {
+            strategy.generateSignals(panel, d, signals);
+        }
+
+        @Override
+        public void sizePositions(MarketPanel panel, int d, int[] signals, Portfolio portfolio) {
+            strategy.sizePositions(panel, d, signals, portfolio);
+        }
+    }
+}
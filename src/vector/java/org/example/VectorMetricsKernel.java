@@ -0,0 +1,59 @@
+package org.example;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Vector API version of the PerformanceMetrics sums, built only by the vector profile (mvn -P vector) since it
+// needs the jdk.incubator.vector module. PerformanceMetrics looks it up by name when the module is present.
+final class VectorMetricsKernel implements MetricsKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    // Accumulates the whole vectors of days [0, n) and returns how many days it covered; the caller does the
+    // rest with PerformanceMetrics.accumulate. The running peak and drawdown stay scalar, within the same pass.
+    @Override
+    public int accumulate(double[] returns, double[] market, int marketFrom, double[] values, int n, double[] acc) {
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        DoubleVector sum = zero, squares = zero, downside = zero, marketSum = zero, marketSquares = zero, cross = zero;
+        DoubleVector shift = DoubleVector.broadcast(SPECIES, acc[PerformanceMetrics.SHIFT]);
+        DoubleVector marketShift = DoubleVector.broadcast(SPECIES, acc[PerformanceMetrics.MARKET_SHIFT]);
+        long positive = 0;
+        double peak = acc[PerformanceMetrics.PEAK];
+        double drawdown = acc[PerformanceMetrics.DRAWDOWN];
+
+        int upper = SPECIES.loopBound(n);
+        for (int i = 0; i < upper; i += SPECIES.length()) {
+            DoubleVector r = DoubleVector.fromArray(SPECIES, returns, i);
+            DoubleVector m = DoubleVector.fromArray(SPECIES, market, marketFrom + i).sub(marketShift);
+            DoubleVector deviation = r.sub(shift);
+            sum = sum.add(deviation);
+            squares = deviation.fma(deviation, squares);
+            DoubleVector negative = r.min(0);
+            downside = negative.fma(negative, downside);
+            VectorMask<Double> up = r.compare(VectorOperators.GT, 0);
+            positive += up.trueCount();
+            marketSum = marketSum.add(m);
+            marketSquares = m.fma(m, marketSquares);
+            cross = deviation.fma(m, cross);
+
+            if (values != null) {
+                for (int j = i; j < i + SPECIES.length(); j++) {
+                    peak = Math.max(peak, values[j]);
+                    drawdown = Math.max(drawdown, (peak - values[j]) / peak);
+                }
+            }
+        }
+
+        acc[PerformanceMetrics.SUM] += sum.reduceLanes(VectorOperators.ADD);
+        acc[PerformanceMetrics.SUM_SQUARES] += squares.reduceLanes(VectorOperators.ADD);
+        acc[PerformanceMetrics.DOWNSIDE_SQUARES] += downside.reduceLanes(VectorOperators.ADD);
+        acc[PerformanceMetrics.POSITIVE] += positive;
+        acc[PerformanceMetrics.MARKET_SUM] += marketSum.reduceLanes(VectorOperators.ADD);
+        acc[PerformanceMetrics.MARKET_SQUARES] += marketSquares.reduceLanes(VectorOperators.ADD);
+        acc[PerformanceMetrics.CROSS] += cross.reduceLanes(VectorOperators.ADD);
+        acc[PerformanceMetrics.PEAK] = peak;
+        acc[PerformanceMetrics.DRAWDOWN] = drawdown;
+        return upper;
+    }
+}